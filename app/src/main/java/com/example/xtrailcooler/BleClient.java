@@ -1,39 +1,59 @@
 package com.example.xtrailcooler;
 
-import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattDescriptor;
-import android.bluetooth.BluetoothGattService;
-import android.bluetooth.BluetoothManager;
-import android.bluetooth.BluetoothProfile;
-import android.bluetooth.le.BluetoothLeScanner;
-import android.bluetooth.le.ScanCallback;
-import android.bluetooth.le.ScanFilter;
-import android.bluetooth.le.ScanResult;
-import android.bluetooth.le.ScanSettings;
 import android.content.Context;
-import android.content.pm.PackageManager;
-import android.os.Build;
+import android.os.BatteryManager;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.app.ActivityCompat;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
-import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Simple BLE client capable of discovering and interacting with the XTrailCooler controller.
+ * <p>
+ * All protocol state (scan, transport, operation queue, decoded values) is owned by a dedicated
+ * worker thread: transport callbacks are delivered there and the public methods post to it. Listener
+ * callbacks run on the main thread and only ever receive immutable snapshots. Consumers that should
+ * not depend on the main thread, or that need their own backpressure, subscribe to the
+ * {@link EventStream}s instead ({@link #getTelemetryStream()} and friends), which are published from
+ * the worker thread.
+ * <p>
+ * The link itself sits behind {@link CoolerTransport}: {@link #connect()} connects straight to the
+ * last known controller, falling back to a scan, and talks to it through {@link GattTransport}, while
+ * {@link #connect(CoolerTransport.Factory)} accepts any other implementation, such as
+ * {@link SimulatedCoolerTransport}. A client created for a specific device address only ever talks to
+ * that controller and keeps its cache and telemetry log apart from other clients, so several can run
+ * side by side (see {@link CoolerManager}). The last known telemetry, parameters and device info are
+ * saved to a {@link SnapshotStore} shortly after they change, so the next launch can show them at once.
+ * <p>
+ * Once connected, the client keeps the link up until {@link #disconnect()}: when it drops with a
+ * transient status it moves to {@link ConnectionState#BACKOFF} and reconnects after an exponentially
+ * growing, jittered delay, then re-enables notifications and sends any writes that had not completed.
+ * <p>
+ * Telemetry streams through notifications while a UI is watching (see {@link #setUiVisible}). With
+ * nobody watching, the client disables notifications and reads the values every
+ * {@link #setPollingInterval polling interval} at low-power connection priority instead, switching
+ * back to streaming for as long as an alarm is raised or a temperature changes quickly.
+ * <p>
+ * Telemetry updates that arrive together are evaluated as one sample, which then has to pass a
+ * {@link TelemetryFilter} (see {@link #setTelemetryFilter}) before it is stored or dispatched. Every
+ * sample, filtered or not, also feeds an {@link AlarmEngine} whose warnings are published on
+ * {@link #getAlarmStream()}, and {@link DutyCycleAnalytics} that accumulate output on-time and energy.
  */
 public class BleClient {
     public interface Listener {
@@ -41,343 +61,988 @@ public class BleClient {
 
         void onTelemetryUpdated(@NonNull Telemetry telemetry);
 
-        void onParametersUpdated(@NonNull CoolerParams params);
+        /**
+         * Everything read while connecting, delivered at once when the link becomes
+         * {@link ConnectionState#READY}; after a reconnect too. No telemetry, parameter or device
+         * info callbacks are made while the initial reads are in progress.
+         *
+         * @param telemetry  the latest sample, or {@code null} if the controller did not report one
+         * @param deviceInfo the controller's device info, or {@code null} if unknown
+         */
+        void onSyncComplete(@Nullable Telemetry telemetry, @NonNull CoolerParams params, @Nullable String deviceInfo);
+
+        /**
+         * @param changedFields the {@link ParamField#getMask() masks} of the fields that differ from
+         *                      the parameters delivered before
+         */
+        void onParametersChanged(@NonNull CoolerParams params, int changedFields);
 
         void onDeviceInfo(@NonNull String info);
 
         void onError(@NonNull String message);
+
+        /**
+         * Finer-grained companion to {@link #onConnectionStateChanged(boolean)}.
+         */
+        default void onConnectionStateChanged(@NonNull ConnectionState state) {
+        }
+    }
+
+    /**
+     * Completion of {@link #applyParams}, called on the main thread.
+     */
+    public interface ApplyParamsCallback {
+        void onParamsApplied(@NonNull ParamsApplyResult result);
     }
 
     private static final long SCAN_TIMEOUT_MS = 15000L;
+    /** A known controller that is in range answers within a few connection intervals. */
+    private static final long DIRECT_CONNECT_TIMEOUT_MS = 4000L;
+    /** Large enough for the longest Wi-Fi credentials payload in a single write. */
+    private static final int SYNC_MTU = 247;
+    /** Keeps HIGH priority across a burst of parameter writes, e.g. while a slider is dragged. */
+    private static final long PRIORITY_RELAX_DELAY_MS = 1000L;
+    private static final long RECONNECT_BASE_DELAY_MS = 500L;
+    private static final long RECONNECT_MAX_DELAY_MS = 30000L;
+    private static final long DEFAULT_POLL_INTERVAL_MS = 30000L;
+    private static final float DEFAULT_ESCALATION_RATE_C_PER_MIN = 1f;
+    /** Streaming continues this long after the last alarm or fast change before polling resumes. */
+    private static final long ESCALATION_HOLD_MS = 120000L;
+    /** Rates are measured over at least this long so sensor noise is not mistaken for a trend. */
+    private static final long RATE_WINDOW_MS = 10000L;
+    /**
+     * The controller notifies inside, hot and state one after another each cycle; evaluating them
+     * together yields one sample per cycle rather than up to three.
+     */
+    private static final long TELEMETRY_COALESCE_MS = 50L;
+    // Built-in predictive alarms.
+    private static final long HOT_RISE_HORIZON_MS = 5 * 60000L;
+    private static final long HOT_RISE_LEVEL_TAU_MS = 30000L;
+    private static final long HOT_RISE_RATE_TAU_MS = 2 * 60000L;
+    private static final long OUT_OF_BAND_LIMIT_MS = 15 * 60000L;
+    private static final long STUCK_SENSOR_LIMIT_MS = 30 * 60000L;
+    /** Telemetry changes every few seconds; the snapshot only needs to be roughly current. */
+    private static final long SNAPSHOT_DEBOUNCE_MS = 2000L;
+    private static final long[] ANALYTICS_WINDOWS_MS = {15 * 60000L, 60 * 60000L, 24 * 60 * 60000L};
+
+    // HCI/GATT statuses after which the link is worth re-establishing.
+    private static final int STATUS_GATT_ERROR = 133;
+    private static final int STATUS_CONNECTION_TIMEOUT = 8;
+    private static final int STATUS_REMOTE_TERMINATED = 19;
+    private static final int STATUS_LOCAL_TERMINATED = 22;
+    private static final int STATUS_LMP_RESPONSE_TIMEOUT = 34;
+    private static final int STATUS_FAILED_TO_ESTABLISH = 62;
+    private static final String TELEMETRY_LOG_DIR = "telemetry";
+    private static final String DEVICE_CACHE_NAME = "device_cache";
 
     private final Context context;
     private final Listener listener;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HandlerThread workerThread;
+    private final Handler workerHandler;
+    private final Executor workerExecutor;
+    private final String telemetryLogDir;
+
+    @Nullable
+    private final String boundAddress;
+    private final DeviceCache deviceCache;
+    private final SnapshotStore snapshotStore;
+    // Written on the worker, a while after the last change; worker thread only.
+    private boolean snapshotWritePending;
+    private final Runnable writeSnapshotTask = this::writeSnapshot;
+    private boolean hasSnapshotTelemetry;
+    private long snapshotTelemetry;
+    private long snapshotTelemetryTimeMs;
+    private final CoolerScanner scanner;
+    // True while connecting to the cached address; a failure then falls back to scanning.
+    private boolean directConnectPending;
+    private final Runnable directConnectTimeout = this::fallBackToScan;
+    private final Runnable scanTimeout = this::onScanTimeout;
+
+    // Connection lifecycle; worker thread only.
+    private ConnectionState state = ConnectionState.IDLE;
+    // Set between connect() and disconnect(): the client keeps reconnecting while it is.
+    private boolean keepConnected;
+    @Nullable
+    private CoolerTransport.Factory transportFactory;
+    private int reconnectAttempt;
+    private long linkLostAtMs;
+    private int syncOutstanding;
+    private final Runnable reconnectTask = this::startConnectAttempt;
+    private long stateEnteredAtMs;
 
-    private BluetoothLeScanner scanner;
-    private boolean scanning;
-    private BluetoothGatt bluetoothGatt;
-
-    private BluetoothGattCharacteristic chInsideTemp;
-    private BluetoothGattCharacteristic chHotTemp;
-    private BluetoothGattCharacteristic chStateBits;
-    private BluetoothGattCharacteristic chSetpoint;
-    private BluetoothGattCharacteristic chHysteresis;
-    private BluetoothGattCharacteristic chHotCut;
-    private BluetoothGattCharacteristic chHotResume;
-    private BluetoothGattCharacteristic chFanRunOn;
-    private BluetoothGattCharacteristic chCommand;
-    private BluetoothGattCharacteristic chDeviceInfo;
-    private BluetoothGattCharacteristic chWifiCreds;
-
-    private Float lastInside;
-    private Float lastHot;
-    private Integer lastStateBits;
-    private final CoolerParams params = new CoolerParams();
-
-    private final Queue<BluetoothGattDescriptor> descriptorQueue = new ArrayDeque<>();
-    private final Queue<BluetoothGattCharacteristic> readQueue = new ArrayDeque<>();
+    // The link runs at HIGH priority while the initial sync or a parameter push is in progress and at
+    // the steady-state priority while it only streams notifications.
+    private int steadyStatePriority = CoolerTransport.PRIORITY_BALANCED;
+    private boolean highPriority;
+    private long pushStartedAtMs;
+    private final Runnable relaxPriorityTask = this::relaxPriority;
+    private final ConnectionMetrics connectionMetrics = new ConnectionMetrics();
+    private final GattMetrics gattMetrics = new GattMetrics();
+    // Start times of the connect, discovery and scan being timed for gattMetrics.
+    private long connectStartedAtNanos;
+    private long discoveryStartedAtNanos;
+    private long scanStartedAtNanos;
+
+    // Telemetry mode; worker thread only. A mode interval is open while the client is READY.
+    private boolean uiVisible = true;
+    private boolean escalated;
+    private long pollIntervalMs = DEFAULT_POLL_INTERVAL_MS;
+    private float escalationRateCPerMin = DEFAULT_ESCALATION_RATE_C_PER_MIN;
+    private TelemetryMode telemetryMode = TelemetryMode.STREAMING;
+    private long modeEnteredAtMs;
+    private long modeEnteredChargeMicroAh;
+    private long modeWakeups;
+    private long rateSampleAtMs;
+    private int rateSampleInsideRaw;
+    private int rateSampleHotRaw;
+    private final Runnable pollTask = this::poll;
+    private final Runnable endEscalationTask = this::endEscalation;
+    private final TelemetryModeMetrics telemetryModeMetrics = new TelemetryModeMetrics();
+    @Nullable
+    private CoolerTransport transport;
+
+    // Decoded characteristic values; worker thread only.
+    private final CoolerMirror mirror = new CoolerMirror();
+
+    /**
+     * Telemetry is conflated to at most one listener callback per display frame: the worker publishes
+     * the latest raw values packed into one long (see {@link CoolerMirror#packTelemetry}), and the first update
+     * after a dispatch schedules the next frame callback on the main thread.
+     */
+    private final AtomicLong latestTelemetry = new AtomicLong();
+    private final AtomicBoolean telemetryDispatchPending = new AtomicBoolean();
+    private final Choreographer.FrameCallback telemetryFrameCallback = frameTimeNanos -> dispatchTelemetry();
+    private final Runnable scheduleTelemetryFrame =
+            () -> Choreographer.getInstance().postFrameCallback(telemetryFrameCallback);
+
+    // Worker thread only, apart from its counters.
+    private final TelemetryFilter telemetryFilter = new TelemetryFilter();
+    private boolean telemetryEvaluationPending;
+    private final Runnable evaluateTelemetryTask = this::evaluateTelemetry;
+    private final Runnable heartbeatTask = this::onHeartbeat;
+
+    private final EventStream<Telemetry> telemetryStream = new EventStream<>(true);
+    private final EventStream<CoolerParams> paramsStream = new EventStream<>(true);
+    private final EventStream<ConnectionState> connectionStateStream = new EventStream<>(true);
+    private final EventStream<List<PredictiveAlarm>> alarmStream = new EventStream<>(true);
+
+    // Fed every evaluated sample; worker thread only.
+    private final AlarmEngine alarmEngine = new AlarmEngine(alarmStream::publish);
+    private final DutyCycleAnalytics dutyCycleAnalytics = new DutyCycleAnalytics(ANALYTICS_WINDOWS_MS);
+
+    private final TelemetryHistory history = new TelemetryHistory();
+    // Opened on the worker; written there, read from anywhere.
+    @Nullable
+    private volatile TelemetryLog telemetryLog;
+
+    private final GattOperationQueue operationQueue;
+    private final GattOperation.Callback syncCallback = (operation, status) -> {
+        if (status == GattOperationQueue.STATUS_CANCELLED) {
+            return;
+        }
+        if (status != CoolerTransport.STATUS_SUCCESS && operation.getType() == GattOperation.TYPE_WRITE_DESCRIPTOR) {
+            postError("Descriptor write failed: " + status);
+        }
+        if (--syncOutstanding == 0 && state == ConnectionState.SYNCING) {
+            onSyncComplete();
+        }
+    };
+    private final GattOperation.Callback writeCallback = this::onWriteComplete;
 
     public BleClient(@NonNull Context context, @NonNull Listener listener) {
+        this(context, listener, null);
+    }
+
+    /**
+     * @param deviceAddress address of the only controller this client connects to, or {@code null} to
+     *                      connect to the last known controller or the first one a scan finds
+     */
+    public BleClient(@NonNull Context context, @NonNull Listener listener, @Nullable String deviceAddress) {
         this.context = context.getApplicationContext();
         this.listener = listener;
+        this.boundAddress = deviceAddress;
+        String suffix = deviceAddress != null ? "-" + deviceAddress.replace(":", "") : "";
+        workerThread = new HandlerThread("BleClient" + suffix);
+        workerThread.start();
+        workerHandler = new Handler(workerThread.getLooper());
+        workerExecutor = workerHandler::post;
+        operationQueue = new GattOperationQueue(new GattOperationQueue.Scheduler() {
+            @Override
+            public void postDelayed(@NonNull Runnable task, long delayMs) {
+                workerHandler.postDelayed(task, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(@NonNull Runnable task) {
+                workerHandler.removeCallbacks(task);
+            }
+
+            @Override
+            public long nowNanos() {
+                return SystemClock.elapsedRealtimeNanos();
+            }
+        }, gattMetrics);
+        deviceCache = new DeviceCache(context, DEVICE_CACHE_NAME + suffix);
+        snapshotStore = SnapshotStore.forClient(context, deviceAddress);
+        scanner = new CoolerScanner(context, workerHandler, scanCallback);
+        telemetryLogDir = TELEMETRY_LOG_DIR + suffix;
+        alarmEngine.addRule(new AlarmRules.HotRiseRule(
+                HOT_RISE_HORIZON_MS, HOT_RISE_LEVEL_TAU_MS, HOT_RISE_RATE_TAU_MS));
+        alarmEngine.addRule(new AlarmRules.OutOfBandRule(OUT_OF_BAND_LIMIT_MS));
+        alarmEngine.addRule(new AlarmRules.StuckSensorRule(AlarmRules.Sensor.INSIDE, STUCK_SENSOR_LIMIT_MS));
+        alarmEngine.addRule(new AlarmRules.StuckSensorRule(AlarmRules.Sensor.HOT, STUCK_SENSOR_LIMIT_MS));
+        workerHandler.post(() -> {
+            restoreCachedState();
+            openTelemetryLog();
+        });
+    }
+
+    /**
+     * In-memory history of every telemetry sample received, kept across reconnects.
+     */
+    @NonNull
+    public TelemetryHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Every telemetry sample that passes the filter, unconflated. New subscribers get the latest
+     * sample first; samples that arrive while nobody is subscribed are not published, so that one
+     * may be older than {@link Listener#onTelemetryUpdated}'s.
+     */
+    @NonNull
+    public EventStream<Telemetry> getTelemetryStream() {
+        return telemetryStream;
+    }
+
+    /**
+     * Parameter snapshots, starting with the latest one.
+     */
+    @NonNull
+    public EventStream<CoolerParams> getParamsStream() {
+        return paramsStream;
     }
 
     /**
-     * Initiates a scan for a controller advertising the {@link #TARGET_NAME} name.
+     * Connection state changes, starting with the current state.
+     */
+    @NonNull
+    public EventStream<ConnectionState> getConnectionStateStream() {
+        return connectionStateStream;
+    }
+
+    /**
+     * Predictive alarms currently raised, oldest first, republished whenever one is raised or cleared.
+     * New subscribers get the current set first, once there has been one.
+     */
+    @NonNull
+    public EventStream<List<PredictiveAlarm>> getAlarmStream() {
+        return alarmStream;
+    }
+
+    /**
+     * Adds a rule to the predictive alarm engine, next to the built-in hot-side rate of rise,
+     * out-of-band and stuck sensor rules. The rule is only ever called on the worker thread.
+     */
+    public void addAlarmRule(@NonNull AlarmEngine.Rule rule) {
+        workerHandler.post(() -> alarmEngine.addRule(rule));
+    }
+
+    /**
+     * Persistent log of every telemetry sample, or {@code null} while it is being opened or if it
+     * could not be opened.
+     */
+    @Nullable
+    public TelemetryLog getTelemetryLog() {
+        return telemetryLog;
+    }
+
+    /**
+     * Reconnect counters and timings, kept for the lifetime of the client.
+     */
+    @NonNull
+    public ConnectionMetrics getConnectionMetrics() {
+        return connectionMetrics;
+    }
+
+    /**
+     * Latency per GATT operation, notification counts and queue depth, kept for the lifetime of the
+     * client.
+     */
+    @NonNull
+    public GattMetrics getGattMetrics() {
+        return gattMetrics;
+    }
+
+    /**
+     * Output on-time, duty cycles over the last 15 min, hour and day, and energy, kept for the lifetime
+     * of the client. Element powers can be adjusted on the returned instance.
+     */
+    @NonNull
+    public DutyCycleAnalytics getDutyCycleAnalytics() {
+        return dutyCycleAnalytics;
+    }
+
+    /**
+     * Writes every metric this client keeps as plain text, for comparing phones offline.
+     */
+    public void writeMetricsReport(@NonNull Appendable out) throws IOException {
+        out.append("## gatt\n");
+        gattMetrics.writeReport(out);
+        out.append("## connection\n");
+        connectionMetrics.writeReport(out);
+        out.append("## telemetry_mode\n");
+        telemetryModeMetrics.writeReport(out);
+        out.append("## telemetry_filter\n");
+        out.append("passed ").append(Long.toString(telemetryFilter.getPassedCount())).append('\n');
+        out.append("suppressed ").append(Long.toString(telemetryFilter.getSuppressedCount())).append('\n');
+        out.append("## analytics\n");
+        dutyCycleAnalytics.writeReport(out);
+    }
+
+    /**
+     * Radio wakeups and battery drain per {@link TelemetryMode}, kept for the lifetime of the client.
+     */
+    @NonNull
+    public TelemetryModeMetrics getTelemetryModeMetrics() {
+        return telemetryModeMetrics;
+    }
+
+    /**
+     * Connects to the controller this client is bound to. An unbound client connects to the controller
+     * used last time without scanning, or scans for one advertising the
+     * {@link CoolerScanner#TARGET_NAME} name when none is known or the direct attempt fails.
      */
     public void connect() {
-        if (bluetoothGatt != null) {
-            bluetoothGatt.disconnect();
-        }
-        startScan();
+        workerHandler.post(() -> beginConnecting(null));
     }
 
-    public void disconnect() {
+    /**
+     * Connects through a transport created by {@code factory}, skipping the BLE scan. The factory is
+     * handed the worker executor on which the transport must deliver its callbacks, and is called
+     * again for every reconnect.
+     */
+    public void connect(@NonNull CoolerTransport.Factory factory) {
+        workerHandler.post(() -> beginConnecting(factory));
+    }
+
+    private void beginConnecting(@Nullable CoolerTransport.Factory factory) {
+        closeTransport(false);
         stopScan();
-        if (bluetoothGatt != null) {
-            bluetoothGatt.disconnect();
-            bluetoothGatt.close();
-            bluetoothGatt = null;
+        workerHandler.removeCallbacks(reconnectTask);
+        keepConnected = true;
+        transportFactory = factory;
+        reconnectAttempt = 0;
+        startConnectAttempt();
+    }
+
+    private void startConnectAttempt() {
+        if (!keepConnected) {
+            return;
+        }
+        if (reconnectAttempt > 0) {
+            connectionMetrics.recordReconnectAttempt();
+        }
+        if (transportFactory != null) {
+            setState(ConnectionState.CONNECTING);
+            openTransport(transportFactory.create(workerExecutor));
+        } else if (boundAddress != null) {
+            if (connectDirect(boundAddress, false)) {
+                setState(ConnectionState.CONNECTING);
+            } else {
+                String problem = CoolerScanner.checkBluetooth(context);
+                postError(problem != null ? problem : "Invalid device address");
+                connectAttemptFailed();
+            }
+        } else if (connectToCachedDevice()) {
+            setState(ConnectionState.CONNECTING);
+        } else if (startScan()) {
+            setState(ConnectionState.SCANNING);
+        } else {
+            connectAttemptFailed();
         }
-        notifyConnectionState(false);
     }
 
-    private static final String TARGET_NAME = "XTrailCooler";
+    /**
+     * Handles a link that dropped or could not be brought up. Transient failures are retried after a
+     * backoff for as long as the client should stay connected; so is anything that fails while a
+     * reconnect is already under way.
+     */
+    private void onLinkFailed(int status) {
+        boolean wasUp = state.isLinkUp();
+        closeTransport(true);
+        if (wasUp) {
+            notifyConnectionState(false);
+            connectionMetrics.recordLinkLost();
+            linkLostAtMs = SystemClock.elapsedRealtime();
+            reconnectAttempt = 0;
+        }
+        boolean retry = isTransient(status);
+        if (!retry) {
+            postError(String.format(Locale.US, "Connection error: 0x%02X", status));
+        }
+        if (keepConnected && (retry || reconnectAttempt > 0)) {
+            scheduleReconnect();
+        } else {
+            stopConnecting();
+        }
+    }
 
-    private void startScan() {
-        BluetoothManager manager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
-        if (manager == null) {
-            postError("Bluetooth not available on this device");
-            return;
+    /**
+     * A connect attempt that never reached the controller (no adapter, nothing found by the scan).
+     */
+    private void connectAttemptFailed() {
+        if (keepConnected && reconnectAttempt > 0) {
+            scheduleReconnect();
+        } else {
+            stopConnecting();
         }
-        BluetoothAdapter adapter = manager.getAdapter();
-        if (adapter == null || !adapter.isEnabled()) {
-            postError("Bluetooth adapter disabled");
-            return;
+    }
+
+    private void scheduleReconnect() {
+        reconnectAttempt++;
+        long ceiling = Math.min(RECONNECT_MAX_DELAY_MS,
+                RECONNECT_BASE_DELAY_MS << Math.min(reconnectAttempt - 1, 16));
+        // Equal jitter: half the delay is fixed, the other half random, so a car full of phones does
+        // not retry in lockstep but no retry comes back immediately either.
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        setState(ConnectionState.BACKOFF);
+        workerHandler.postDelayed(reconnectTask, delay);
+    }
+
+    private void stopConnecting() {
+        keepConnected = false;
+        workerHandler.removeCallbacks(reconnectTask);
+        operationQueue.clear();
+        setState(ConnectionState.IDLE);
+    }
+
+    private static boolean isTransient(int status) {
+        switch (status) {
+            case CoolerTransport.STATUS_SUCCESS:
+            case STATUS_GATT_ERROR:
+            case STATUS_CONNECTION_TIMEOUT:
+            case STATUS_REMOTE_TERMINATED:
+            case STATUS_LOCAL_TERMINATED:
+            case STATUS_LMP_RESPONSE_TIMEOUT:
+            case STATUS_FAILED_TO_ESTABLISH:
+                return true;
+            default:
+                return false;
         }
-        if (!hasScanPermission()) {
-            postError("Missing Bluetooth permissions");
+    }
+
+    private void setState(@NonNull ConnectionState newState) {
+        if (state == newState) {
             return;
         }
-        if (scanning) {
-            return;
+        long now = SystemClock.elapsedRealtime();
+        if (stateEnteredAtMs != 0) {
+            connectionMetrics.recordPhase(state, now - stateEnteredAtMs);
         }
-        scanner = adapter.getBluetoothLeScanner();
-        if (scanner == null) {
-            postError("Unable to access BLE scanner");
-            return;
+        stateEnteredAtMs = now;
+        state = newState;
+        connectionStateStream.publish(newState);
+        mainHandler.post(() -> listener.onConnectionStateChanged(newState));
+    }
+
+    private void onSyncComplete() {
+        deliverSyncResult();
+        setState(ConnectionState.READY);
+        beginModeInterval();
+        if (telemetryMode == TelemetryMode.POLLING) {
+            workerHandler.postDelayed(pollTask, pollIntervalMs);
         }
-        List<ScanFilter> filters = new ArrayList<>();
-        filters.add(new ScanFilter.Builder().setDeviceName(TARGET_NAME).build());
-        ScanSettings settings = new ScanSettings.Builder()
-                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
-                .build();
-        scanner.startScan(filters, settings, scanCallback);
-        scanning = true;
-        mainHandler.postDelayed(() -> {
-            if (scanning && bluetoothGatt == null) {
-                stopScan();
-                postError("No XTrailCooler device found");
+        if (operationQueue.size() == 0) {
+            relaxPriority();
+        }
+        connectionMetrics.recordConnected();
+        if (linkLostAtMs != 0) {
+            connectionMetrics.recordReconnected(SystemClock.elapsedRealtime() - linkLostAtMs,
+                    Math.max(reconnectAttempt, 1));
+        }
+        reconnectAttempt = 0;
+        linkLostAtMs = 0;
+    }
+
+    public void disconnect() {
+        workerHandler.post(this::disconnectInternal);
+    }
+
+    /**
+     * Disconnects and stops the worker thread. The client cannot be used afterwards.
+     */
+    public void close() {
+        workerHandler.post(() -> {
+            disconnectInternal();
+            closeTelemetryLog();
+            if (snapshotWritePending) {
+                workerHandler.removeCallbacks(writeSnapshotTask);
+                writeSnapshot();
             }
-        }, SCAN_TIMEOUT_MS);
+        });
+        workerThread.quitSafely();
     }
 
-    private void stopScan() {
-        if (!scanning) {
+    private void disconnectInternal() {
+        stopScan();
+        closeTransport(false);
+        stopConnecting();
+        linkLostAtMs = 0;
+        alarmEngine.reset();
+        dutyCycleAnalytics.breakSeries();
+        notifyConnectionState(false);
+    }
+
+    /**
+     * Serves parameters and device info remembered from the previous session until fresh reads
+     * replace them. The remembered telemetry is only carried into the next snapshot and never
+     * dispatched as if it were live; the UI reads it from the {@link SnapshotStore} itself.
+     */
+    private void restoreCachedState() {
+        DeviceSnapshot snapshot = snapshotStore.load();
+        if (snapshot == null) {
+            return;
+        }
+        Telemetry telemetry = snapshot.getTelemetry();
+        if (telemetry != null) {
+            hasSnapshotTelemetry = true;
+            snapshotTelemetry = CoolerMirror.packTelemetry(telemetry);
+            snapshotTelemetryTimeMs = snapshot.getTelemetryTimeMs();
+        }
+        mirror.restore(snapshot.getParams(), snapshot.getDeviceInfo());
+        if (snapshot.getParams() != null) {
+            publishParams(mirror.getParams(), ParamField.ALL_MASK);
+        }
+        if (snapshot.getDeviceInfo() != null) {
+            postDeviceInfo(snapshot.getDeviceInfo());
+        }
+    }
+
+    private void scheduleSnapshotWrite() {
+        if (!snapshotWritePending) {
+            snapshotWritePending = true;
+            workerHandler.postDelayed(writeSnapshotTask, SNAPSHOT_DEBOUNCE_MS);
+        }
+    }
+
+    private void writeSnapshot() {
+        snapshotWritePending = false;
+        Telemetry telemetry = hasSnapshotTelemetry ? CoolerMirror.unpackTelemetry(snapshotTelemetry) : null;
+        DeviceSnapshot snapshot = new DeviceSnapshot(telemetry, snapshotTelemetryTimeMs,
+                paramsStream.getLatest(), mirror.getDeviceInfo());
+        try {
+            snapshotStore.save(snapshot);
+        } catch (IOException e) {
+            postError("Last known values not saved: " + e.getMessage());
+        }
+    }
+
+    private void openTelemetryLog() {
+        try {
+            telemetryLog = TelemetryLog.open(new File(context.getFilesDir(), telemetryLogDir));
+        } catch (IOException e) {
+            postError("Telemetry log unavailable: " + e.getMessage());
+        }
+    }
+
+    private void closeTelemetryLog() {
+        TelemetryLog log = telemetryLog;
+        telemetryLog = null;
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    private void openTransport(@NonNull CoolerTransport newTransport) {
+        connectStartedAtNanos = SystemClock.elapsedRealtimeNanos();
+        transport = newTransport;
+        newTransport.connect(transportCallback);
+    }
+
+    /**
+     * @param keepWrites keep writes that have not completed for the next connection, rather than
+     *                   cancelling them
+     */
+    private void closeTransport(boolean keepWrites) {
+        cancelDirectConnect();
+        endModeInterval();
+        workerHandler.removeCallbacks(pollTask);
+        workerHandler.removeCallbacks(evaluateTelemetryTask);
+        workerHandler.removeCallbacks(heartbeatTask);
+        telemetryEvaluationPending = false;
+        workerHandler.removeCallbacks(relaxPriorityTask);
+        highPriority = false;
+        pushStartedAtMs = 0;
+        if (keepWrites) {
+            operationQueue.suspend();
+        } else {
+            operationQueue.setTransport(null);
+        }
+        if (transport != null) {
+            transport.close();
+            transport = null;
+        }
+    }
+
+    /**
+     * @return {@code false} when no controller is remembered or Bluetooth is unusable
+     */
+    private boolean connectToCachedDevice() {
+        String address = deviceCache.getAddress();
+        return address != null && connectDirect(address, true);
+    }
+
+    /**
+     * Connects to {@code address} without scanning.
+     *
+     * @param fallBackToScan scan instead if the controller does not answer quickly
+     * @return {@code false} when the address is invalid or Bluetooth is unusable
+     */
+    private boolean connectDirect(@NonNull String address, boolean fallBackToScan) {
+        if (!BluetoothAdapter.checkBluetoothAddress(address)) {
+            return false;
+        }
+        BluetoothAdapter adapter = CoolerScanner.getAdapter(context);
+        if (adapter == null) {
+            return false;
+        }
+        stopScan();
+        if (fallBackToScan) {
+            directConnectPending = true;
+            workerHandler.postDelayed(directConnectTimeout, DIRECT_CONNECT_TIMEOUT_MS);
+        }
+        openTransport(new GattTransport(context, adapter.getRemoteDevice(address), workerHandler));
+        return true;
+    }
+
+    private void cancelDirectConnect() {
+        directConnectPending = false;
+        workerHandler.removeCallbacks(directConnectTimeout);
+    }
+
+    private void fallBackToScan() {
+        if (!directConnectPending) {
             return;
         }
-        if (scanner != null && hasScanPermission()) {
-            scanner.stopScan(scanCallback);
+        closeTransport(true);
+        if (startScan()) {
+            setState(ConnectionState.SCANNING);
+        } else {
+            connectAttemptFailed();
         }
-        scanning = false;
     }
 
-    private boolean hasScanPermission() {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S) {
-            return ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH) == PackageManager.PERMISSION_GRANTED
-                    && ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+    /**
+     * @return {@code false} when the scan could not be started; the reason has been reported
+     */
+    private boolean startScan() {
+        if (!scanner.start()) {
+            return false;
         }
-        return ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED
-                && ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED;
+        scanStartedAtNanos = SystemClock.elapsedRealtimeNanos();
+        workerHandler.removeCallbacks(scanTimeout);
+        workerHandler.postDelayed(scanTimeout, SCAN_TIMEOUT_MS);
+        return true;
     }
 
-    private final ScanCallback scanCallback = new ScanCallback() {
-        @Override
-        public void onScanFailed(int errorCode) {
+    private void stopScan() {
+        workerHandler.removeCallbacks(scanTimeout);
+        scanner.stop();
+    }
+
+    private void onScanTimeout() {
+        if (scanner.isScanning() && transport == null) {
             stopScan();
-            postError("Scan failed: " + errorCode);
+            if (reconnectAttempt == 0) {
+                postError("No XTrailCooler device found");
+            }
+            connectAttemptFailed();
         }
+    }
 
+    private final CoolerScanner.Callback scanCallback = new CoolerScanner.Callback() {
         @Override
-        public void onScanResult(int callbackType, @NonNull ScanResult result) {
-            BluetoothDevice device = result.getDevice();
-            String name = result.getScanRecord() != null ? result.getScanRecord().getDeviceName() : device.getName();
-            if (name != null && name.equalsIgnoreCase(TARGET_NAME)) {
+        public void onDeviceFound(@NonNull BluetoothDevice device) {
+            if (state == ConnectionState.SCANNING) {
+                gattMetrics.recordLatency(GattMetrics.Operation.SCAN,
+                        SystemClock.elapsedRealtimeNanos() - scanStartedAtNanos);
                 stopScan();
-                connectGatt(device);
+                setState(ConnectionState.CONNECTING);
+                openTransport(new GattTransport(context, device, workerHandler));
             }
         }
-    };
 
-    private void connectGatt(BluetoothDevice device) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            bluetoothGatt = device.connectGatt(context, false, gattCallback, BluetoothDevice.TRANSPORT_LE);
-        } else {
-            bluetoothGatt = device.connectGatt(context, false, gattCallback);
+        @Override
+        public void onScanFailed(@NonNull String message) {
+            postError(message);
+            // Failures to start are handled by the caller of startScan(); only a running scan that
+            // the stack aborted ends the attempt here.
+            if (state == ConnectionState.SCANNING) {
+                connectAttemptFailed();
+            }
         }
-    }
+    };
 
-    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+    private final CoolerTransport.Callback transportCallback = new CoolerTransport.Callback() {
         @Override
-        public void onConnectionStateChange(@NonNull BluetoothGatt gatt, int status, int newState) {
-            if (status != BluetoothGatt.GATT_SUCCESS) {
-                gatt.close();
-                bluetoothGatt = null;
-                postError(String.format(Locale.US, "Connection error: 0x%02X", status));
-                notifyConnectionState(false);
+        public void onConnectionStateChanged(int status, boolean connected) {
+            if (directConnectPending && (status != CoolerTransport.STATUS_SUCCESS || !connected)) {
+                // The remembered controller is gone, renamed or out of range; look for it.
+                fallBackToScan();
                 return;
             }
-            if (newState == BluetoothProfile.STATE_CONNECTED) {
-                notifyConnectionState(true);
-                gatt.discoverServices();
-            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
-                gatt.close();
-                bluetoothGatt = null;
-                notifyConnectionState(false);
+            cancelDirectConnect();
+            if (status != CoolerTransport.STATUS_SUCCESS || !connected) {
+                onLinkFailed(status);
+                return;
+            }
+            gattMetrics.recordLatency(GattMetrics.Operation.CONNECT,
+                    SystemClock.elapsedRealtimeNanos() - connectStartedAtNanos);
+            setState(ConnectionState.DISCOVERING);
+            notifyConnectionState(true);
+            discoveryStartedAtNanos = SystemClock.elapsedRealtimeNanos();
+            if (transport != null && !transport.discoverServices()) {
+                onLinkFailed(STATUS_GATT_ERROR);
             }
         }
 
         @Override
-        public void onServicesDiscovered(@NonNull BluetoothGatt gatt, int status) {
-            if (status != BluetoothGatt.GATT_SUCCESS) {
+        public void onServicesDiscovered(int status) {
+            gattMetrics.recordLatency(GattMetrics.Operation.DISCOVERY,
+                    SystemClock.elapsedRealtimeNanos() - discoveryStartedAtNanos);
+            if (status != CoolerTransport.STATUS_SUCCESS) {
                 postError("Service discovery failed: " + status);
+                onLinkFailed(STATUS_GATT_ERROR);
                 return;
             }
-            BluetoothGattService service = gatt.getService(CharacteristicIds.SERVICE_COOLER);
-            if (service == null) {
+            if (transport == null || !transport.hasCharacteristic(CharacteristicIds.INSIDE_TEMP)) {
                 postError("Cooler service not found");
+                disconnectInternal();
                 return;
             }
-            chInsideTemp = service.getCharacteristic(CharacteristicIds.INSIDE_TEMP);
-            chHotTemp = service.getCharacteristic(CharacteristicIds.HOT_TEMP);
-            chStateBits = service.getCharacteristic(CharacteristicIds.STATE_BITS);
-            chSetpoint = service.getCharacteristic(CharacteristicIds.SETPOINT);
-            chHysteresis = service.getCharacteristic(CharacteristicIds.HYSTERESIS);
-            chHotCut = service.getCharacteristic(CharacteristicIds.HOT_CUT);
-            chHotResume = service.getCharacteristic(CharacteristicIds.HOT_RESUME);
-            chFanRunOn = service.getCharacteristic(CharacteristicIds.FAN_RUNON);
-            chCommand = service.getCharacteristic(CharacteristicIds.COMMAND);
-            chDeviceInfo = service.getCharacteristic(CharacteristicIds.DEVICE_INFO);
-            chWifiCreds = service.getCharacteristic(CharacteristicIds.WIFI_CREDS);
-
-            enableNotifications(chInsideTemp);
-            enableNotifications(chHotTemp);
-            enableNotifications(chStateBits);
-
-            queueRead(chInsideTemp);
-            queueRead(chHotTemp);
-            queueRead(chStateBits);
-            queueRead(chSetpoint);
-            queueRead(chHysteresis);
-            queueRead(chHotCut);
-            queueRead(chHotResume);
-            queueRead(chFanRunOn);
-            queueRead(chDeviceInfo);
+            if (transport instanceof GattTransport) {
+                if (deviceCache.saveAddress(((GattTransport) transport).getDevice().getAddress())) {
+                    // Another controller: its telemetry must not be carried over, and writes kept
+                    // from the last connection were meant for the old one. Parameters and device
+                    // info are overwritten by the sync anyway.
+                    snapshotStore.clear();
+                    hasSnapshotTelemetry = false;
+                    if (operationQueue.size() > 0) {
+                        operationQueue.clear();
+                        postError("Connected to another cooler; unsent changes were dropped");
+                    }
+                }
+            }
+            startInitialSync(transport);
         }
 
         @Override
-        public void onDescriptorWrite(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattDescriptor descriptor, int status) {
-            descriptorQueue.poll();
-            if (status != BluetoothGatt.GATT_SUCCESS) {
-                postError("Descriptor write failed: " + status);
+        public void onNotificationsChanged(@NonNull UUID uuid, int status) {
+            operationQueue.onNotificationsChanged(uuid, status);
+        }
+
+        @Override
+        public void onCharacteristicRead(@NonNull UUID uuid, @Nullable byte[] value, int status) {
+            if (status == CoolerTransport.STATUS_SUCCESS) {
+                handleCharacteristic(uuid, value);
             }
-            writeNextDescriptor(gatt);
+            operationQueue.onCharacteristicRead(uuid, status);
+        }
+
+        @Override
+        public void onCharacteristicWrite(@NonNull UUID uuid, int status) {
+            operationQueue.onCharacteristicWrite(uuid, status);
         }
 
         @Override
-        public void onCharacteristicRead(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic, int status) {
-            readQueue.poll();
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                handleCharacteristic(characteristic);
+        public void onMtuChanged(int mtu, int status) {
+            if (status == CoolerTransport.STATUS_SUCCESS) {
+                connectionMetrics.recordMtu(mtu);
             }
-            readNext(gatt);
+            operationQueue.onMtuChanged(status);
         }
 
         @Override
-        public void onCharacteristicChanged(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic) {
-            handleCharacteristic(characteristic);
+        public void onCharacteristicChanged(@NonNull UUID uuid, @NonNull byte[] value) {
+            modeWakeups++;
+            gattMetrics.recordNotification(uuid);
+            handleCharacteristic(uuid, value);
         }
     };
 
-    private void enableNotifications(@Nullable BluetoothGattCharacteristic characteristic) {
-        if (bluetoothGatt == null || characteristic == null) {
-            return;
-        }
-        bluetoothGatt.setCharacteristicNotification(characteristic, true);
-        BluetoothGattDescriptor descriptor = characteristic.getDescriptor(CharacteristicIds.CLIENT_CONFIG_DESCRIPTOR);
-        if (descriptor != null) {
-            descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-            descriptorQueue.add(descriptor);
-            if (descriptorQueue.size() == 1) {
-                bluetoothGatt.writeDescriptor(descriptor);
-            }
+    private void startInitialSync(@NonNull CoolerTransport transport) {
+        setState(ConnectionState.SYNCING);
+        syncOutstanding = 0;
+        // Speed up the link before anything else goes out: writes kept from a dropped connection
+        // are already waiting, so jump ahead of them.
+        syncOutstanding++;
+        operationQueue.enqueueFirst(GattOperation.requestMtu(SYNC_MTU, syncCallback));
+        operationQueue.enqueueFirst(GattOperation.requestConnectionPriority(CoolerTransport.PRIORITY_HIGH, null));
+        highPriority = true;
+        operationQueue.setTransport(transport);
+        rateSampleAtMs = 0;
+        // The first sample of a connection always gets through, and trends do not span the gap.
+        telemetryFilter.reset();
+        alarmEngine.reset();
+        dutyCycleAnalytics.breakSeries();
+
+        // Written in both modes: a bonded controller remembers the CCCD across connections.
+        boolean streaming = telemetryMode == TelemetryMode.STREAMING;
+        setNotifications(CharacteristicIds.INSIDE_TEMP, streaming);
+        setNotifications(CharacteristicIds.HOT_TEMP, streaming);
+        setNotifications(CharacteristicIds.STATE_BITS, streaming);
+
+        queueRead(CharacteristicIds.INSIDE_TEMP);
+        queueRead(CharacteristicIds.HOT_TEMP);
+        queueRead(CharacteristicIds.STATE_BITS);
+        queueRead(CharacteristicIds.SETPOINT);
+        queueRead(CharacteristicIds.HYSTERESIS);
+        queueRead(CharacteristicIds.HOT_CUT);
+        queueRead(CharacteristicIds.HOT_RESUME);
+        queueRead(CharacteristicIds.FAN_RUNON);
+        queueRead(CharacteristicIds.DEVICE_INFO);
+        if (syncOutstanding == 0) {
+            onSyncComplete();
         }
     }
 
-    private void writeNextDescriptor(@NonNull BluetoothGatt gatt) {
-        BluetoothGattDescriptor next = descriptorQueue.peek();
-        if (next != null) {
-            gatt.writeDescriptor(next);
+    private boolean isAvailable(@NonNull UUID uuid) {
+        return transport != null && transport.hasCharacteristic(uuid);
+    }
+
+    private void setNotifications(@NonNull UUID uuid, boolean enabled) {
+        if (isAvailable(uuid)) {
+            syncOutstanding++;
+            operationQueue.enqueue(GattOperation.setNotifications(uuid, enabled, syncCallback));
         }
     }
 
-    private void queueRead(@Nullable BluetoothGattCharacteristic characteristic) {
-        if (bluetoothGatt == null || characteristic == null) {
-            return;
+    private void queueRead(@NonNull UUID uuid) {
+        if (isAvailable(uuid)) {
+            syncOutstanding++;
+            operationQueue.enqueue(GattOperation.read(uuid, syncCallback));
         }
-        readQueue.add(characteristic);
-        if (readQueue.size() == 1) {
-            bluetoothGatt.readCharacteristic(characteristic);
+    }
+
+    private void handleCharacteristic(@NonNull UUID uuid, @Nullable byte[] value) {
+        int changed = mirror.apply(uuid, value);
+        if ((changed & CoolerMirror.CHANGED_TELEMETRY) != 0) {
+            checkEscalation();
+            scheduleTelemetryEvaluation();
+        } else if ((changed & CoolerMirror.CHANGED_PARAMS) != 0) {
+            notifyParams();
+        } else if ((changed & CoolerMirror.CHANGED_DEVICE_INFO) != 0) {
+            String info = mirror.getDeviceInfo();
+            if (info != null) {
+                scheduleSnapshotWrite();
+                if (state != ConnectionState.SYNCING) {
+                    postDeviceInfo(info);
+                }
+            }
         }
     }
 
-    private void readNext(@NonNull BluetoothGatt gatt) {
-        BluetoothGattCharacteristic next = readQueue.peek();
-        if (next != null) {
-            gatt.readCharacteristic(next);
+    private void scheduleTelemetryEvaluation() {
+        if (!telemetryEvaluationPending) {
+            telemetryEvaluationPending = true;
+            workerHandler.postDelayed(evaluateTelemetryTask, TELEMETRY_COALESCE_MS);
         }
     }
 
-    private void handleCharacteristic(@NonNull BluetoothGattCharacteristic characteristic) {
-        UUID uuid = characteristic.getUuid();
-        if (CharacteristicIds.INSIDE_TEMP.equals(uuid)) {
-            lastInside = decodeTemperature(characteristic);
+    private void evaluateTelemetry() {
+        telemetryEvaluationPending = false;
+        long now = SystemClock.elapsedRealtime();
+        alarmEngine.onSample(now, mirror.getInsideRaw(), mirror.getHotRaw(), mirror.getStateBits());
+        dutyCycleAnalytics.update(now, mirror.getInsideRaw(), mirror.getStateBits());
+        if (telemetryFilter.accept(now, mirror.getInsideRaw(), mirror.getHotRaw(), mirror.getStateBits())) {
             notifyTelemetry();
-        } else if (CharacteristicIds.HOT_TEMP.equals(uuid)) {
-            lastHot = decodeTemperature(characteristic);
-            notifyTelemetry();
-        } else if (CharacteristicIds.STATE_BITS.equals(uuid)) {
-            Integer bits = characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT16, 0);
-            if (bits != null) {
-                lastStateBits = bits;
-                notifyTelemetry();
-            }
-        } else if (CharacteristicIds.SETPOINT.equals(uuid)) {
-            params.setSetpointC(decodeTemperature(characteristic));
-            notifyParams();
-        } else if (CharacteristicIds.HYSTERESIS.equals(uuid)) {
-            params.setHysteresisC(decodeTemperature(characteristic));
-            notifyParams();
-        } else if (CharacteristicIds.HOT_CUT.equals(uuid)) {
-            params.setHotCutC(decodeTemperature(characteristic));
-            notifyParams();
-        } else if (CharacteristicIds.HOT_RESUME.equals(uuid)) {
-            params.setHotResumeC(decodeTemperature(characteristic));
-            notifyParams();
-        } else if (CharacteristicIds.FAN_RUNON.equals(uuid)) {
-            Integer value = characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT16, 0);
-            if (value != null) {
-                params.setFanRunOnSeconds(value);
-                notifyParams();
-            }
-        } else if (CharacteristicIds.DEVICE_INFO.equals(uuid)) {
-            byte[] value = characteristic.getValue();
-            if (value != null && value.length > 0) {
-                postDeviceInfo(new String(value));
-            }
         }
     }
 
-    private float decodeTemperature(@NonNull BluetoothGattCharacteristic characteristic) {
-        Integer raw = characteristic.getIntValue(BluetoothGattCharacteristic.FORMAT_SINT16, 0);
-        if (raw == null) {
-            return Float.NaN;
+    /**
+     * Re-sends the current values to consumers. Analytics and alarms are fed from characteristic
+     * updates only, so a repeat must not reach them as a fresh sample.
+     */
+    private void onHeartbeat() {
+        if (state == ConnectionState.READY && mirror.hasTelemetry() && telemetryFilter.accept(
+                SystemClock.elapsedRealtime(), mirror.getInsideRaw(), mirror.getHotRaw(), mirror.getStateBits())) {
+            notifyTelemetry();
         }
-        return raw / 10f;
     }
 
     private void notifyTelemetry() {
-        if (lastInside == null || lastHot == null || lastStateBits == null) {
+        long heartbeatMs = telemetryFilter.getHeartbeatMs();
+        if (heartbeatMs > 0) {
+            workerHandler.removeCallbacks(heartbeatTask);
+            workerHandler.postDelayed(heartbeatTask, heartbeatMs);
+        }
+        long now = System.currentTimeMillis();
+        history.add(now, CoolerCodec.rawToCelsius(mirror.getInsideRaw()),
+                CoolerCodec.rawToCelsius(mirror.getHotRaw()), mirror.getStateBits());
+        appendToLog(now);
+        long packed = mirror.packTelemetry();
+        hasSnapshotTelemetry = true;
+        snapshotTelemetry = packed;
+        snapshotTelemetryTimeMs = now;
+        scheduleSnapshotWrite();
+        latestTelemetry.set(packed);
+        if (telemetryStream.hasSubscribers()) {
+            telemetryStream.publish(CoolerMirror.unpackTelemetry(packed));
+        }
+        // While syncing, the sample reaches the listener with the rest in onSyncComplete.
+        if (state != ConnectionState.SYNCING && telemetryDispatchPending.compareAndSet(false, true)) {
+            mainHandler.post(scheduleTelemetryFrame);
+        }
+    }
+
+    private void appendToLog(long timeMs) {
+        TelemetryLog log = telemetryLog;
+        if (log == null) {
             return;
         }
-        final Telemetry telemetry = new Telemetry(lastInside, lastHot, lastStateBits);
-        mainHandler.post(() -> listener.onTelemetryUpdated(telemetry));
+        try {
+            log.append(timeMs, mirror.getInsideRaw(), mirror.getHotRaw(), mirror.getStateBits());
+        } catch (IOException e) {
+            closeTelemetryLog();
+            postError("Telemetry logging stopped: " + e.getMessage());
+        }
+    }
+
+    private void dispatchTelemetry() {
+        telemetryDispatchPending.set(false);
+        listener.onTelemetryUpdated(CoolerMirror.unpackTelemetry(latestTelemetry.get()));
     }
 
     private void notifyParams() {
-        final CoolerParams snapshot = cloneParams();
-        mainHandler.post(() -> listener.onParametersUpdated(snapshot));
+        scheduleSnapshotWrite();
+        // Reads during the sync are batched into deliverSyncResult().
+        if (state != ConnectionState.SYNCING) {
+            publishParams(mirror.getParams(), mirror.takeChangedParamFields());
+        }
     }
 
-    private CoolerParams cloneParams() {
-        CoolerParams copy = new CoolerParams();
-        copy.setSetpointC(params.getSetpointC());
-        copy.setHysteresisC(params.getHysteresisC());
-        copy.setHotCutC(params.getHotCutC());
-        copy.setHotResumeC(params.getHotResumeC());
-        copy.setFanRunOnSeconds(params.getFanRunOnSeconds());
-        return copy;
+    private void publishParams(@NonNull CoolerParams params, int changedFields) {
+        alarmEngine.setParams(params);
+        paramsStream.publish(params);
+        mainHandler.post(() -> listener.onParametersChanged(params, changedFields));
+    }
+
+    /**
+     * Hands the listener everything the initial reads produced as one event.
+     */
+    private void deliverSyncResult() {
+        CoolerParams params = mirror.getParams();
+        mirror.takeChangedParamFields();
+        alarmEngine.setParams(params);
+        // Immutable and only replaced on change, so identity tells whether anything is new.
+        if (paramsStream.getLatest() != params) {
+            paramsStream.publish(params);
+        }
+        Telemetry telemetry = mirror.hasTelemetry() ? CoolerMirror.unpackTelemetry(mirror.packTelemetry()) : null;
+        String deviceInfo = mirror.getDeviceInfo();
+        mainHandler.post(() -> listener.onSyncComplete(telemetry, params, deviceInfo));
     }
 
     private void notifyConnectionState(boolean connected) {
@@ -393,75 +1058,416 @@ public class BleClient {
     }
 
     // ---------------------------------------------------------------------------------------------
-    // Write helpers
+    // Connection priority
     // ---------------------------------------------------------------------------------------------
-    public void sendCommand(int commandBits) {
-        if (bluetoothGatt == null || chCommand == null) {
-            postError("Not connected");
+
+    /**
+     * Connection priority used while the link only streams notifications, one of
+     * {@link CoolerTransport#PRIORITY_BALANCED} (default) or {@link CoolerTransport#PRIORITY_LOW_POWER}.
+     */
+    public void setSteadyStatePriority(int priority) {
+        workerHandler.post(() -> {
+            if (steadyStatePriority == priority) {
+                return;
+            }
+            steadyStatePriority = priority;
+            if (state == ConnectionState.READY && !highPriority && telemetryMode == TelemetryMode.STREAMING) {
+                operationQueue.enqueue(GattOperation.requestConnectionPriority(priority, null));
+            }
+        });
+    }
+
+    /**
+     * Switches to HIGH priority ahead of a parameter push.
+     */
+    private void boostPriority() {
+        workerHandler.removeCallbacks(relaxPriorityTask);
+        if (pushStartedAtMs == 0) {
+            pushStartedAtMs = SystemClock.elapsedRealtime();
+        }
+        if (!highPriority && state == ConnectionState.READY) {
+            highPriority = true;
+            operationQueue.enqueue(GattOperation.requestConnectionPriority(CoolerTransport.PRIORITY_HIGH, null));
+        }
+    }
+
+    private void onWriteComplete(@NonNull GattOperation operation, int status) {
+        if (status != CoolerTransport.STATUS_SUCCESS && status != GattOperationQueue.STATUS_CANCELLED
+                && status != GattOperationQueue.STATUS_SUPERSEDED) {
+            postError("Write failed: " + status);
+        }
+        if (status != GattOperationQueue.STATUS_SUPERSEDED && status != GattOperationQueue.STATUS_CANCELLED
+                && operationQueue.size() == 0) {
+            onQueueDrained();
+        }
+    }
+
+    private void onQueueDrained() {
+        if (pushStartedAtMs != 0) {
+            connectionMetrics.recordParameterPush(SystemClock.elapsedRealtime() - pushStartedAtMs);
+            pushStartedAtMs = 0;
+        }
+        workerHandler.removeCallbacks(relaxPriorityTask);
+        workerHandler.postDelayed(relaxPriorityTask, PRIORITY_RELAX_DELAY_MS);
+    }
+
+    private void relaxPriority() {
+        if (!highPriority || state != ConnectionState.READY || operationQueue.size() > 0) {
+            return;
+        }
+        highPriority = false;
+        operationQueue.enqueue(GattOperation.requestConnectionPriority(currentSteadyPriority(), null));
+    }
+
+    private int currentSteadyPriority() {
+        return telemetryMode == TelemetryMode.POLLING ? CoolerTransport.PRIORITY_LOW_POWER : steadyStatePriority;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Telemetry filter
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Configures which samples reach the history, the telemetry log and the listener. By default only
+     * exact repeats are dropped.
+     *
+     * @param insideDeadbandC smallest inside temperature change, in °C, that counts as a new sample
+     * @param hotDeadbandC    smallest hot-side temperature change, in °C, that counts as a new sample
+     * @param heartbeatMs     re-send the current values after this long without a new sample, so
+     *                        consumers can tell the link is alive; {@code 0} to disable
+     */
+    public void setTelemetryFilter(float insideDeadbandC, float hotDeadbandC, long heartbeatMs) {
+        workerHandler.post(() -> {
+            telemetryFilter.setInsideDeadband(insideDeadbandC);
+            telemetryFilter.setHotDeadband(hotDeadbandC);
+            telemetryFilter.setHeartbeatMs(heartbeatMs);
+            workerHandler.removeCallbacks(heartbeatTask);
+            if (heartbeatMs > 0 && state == ConnectionState.READY) {
+                workerHandler.postDelayed(heartbeatTask, heartbeatMs);
+            }
+        });
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Telemetry mode
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Tells the client whether live values are on screen. Streaming only pays off while someone is
+     * watching; otherwise the client polls (see {@link BleClient}). Clients start out visible.
+     */
+    public void setUiVisible(boolean visible) {
+        workerHandler.post(() -> {
+            uiVisible = visible;
+            if (visible) {
+                escalated = false;
+                workerHandler.removeCallbacks(endEscalationTask);
+            }
+            updateTelemetryMode();
+        });
+    }
+
+    /**
+     * Gap between reads while polling; 30 s by default.
+     */
+    public void setPollingInterval(long intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("intervalMs must be positive");
+        }
+        workerHandler.post(() -> {
+            pollIntervalMs = intervalMs;
+            if (state == ConnectionState.READY && telemetryMode == TelemetryMode.POLLING) {
+                workerHandler.removeCallbacks(pollTask);
+                workerHandler.postDelayed(pollTask, intervalMs);
+            }
+        });
+    }
+
+    /**
+     * Rate of change of either temperature, in °C per minute, that switches a polling client back to
+     * streaming; 1 °C/min by default. Raised alarm bits always do.
+     */
+    public void setEscalationRate(float celsiusPerMinute) {
+        workerHandler.post(() -> escalationRateCPerMin = celsiusPerMinute);
+    }
+
+    private void updateTelemetryMode() {
+        TelemetryMode wanted = uiVisible || escalated ? TelemetryMode.STREAMING : TelemetryMode.POLLING;
+        if (wanted == telemetryMode) {
+            return;
+        }
+        endModeInterval();
+        telemetryMode = wanted;
+        boolean streaming = wanted == TelemetryMode.STREAMING;
+        if (state == ConnectionState.SYNCING) {
+            // The sync already queued CCCD writes for the old mode; onSyncComplete() does the rest.
+            queueNotificationWrites(streaming);
+            return;
+        }
+        // Before that, the next initial sync applies the mode.
+        if (state != ConnectionState.READY) {
+            return;
+        }
+        beginModeInterval();
+        queueNotificationWrites(streaming);
+        workerHandler.removeCallbacks(pollTask);
+        if (streaming) {
+            // Catch up on anything that changed since the last poll.
+            queuePollReads();
+        } else {
+            workerHandler.postDelayed(pollTask, pollIntervalMs);
+        }
+        if (!highPriority) {
+            operationQueue.enqueue(GattOperation.requestConnectionPriority(currentSteadyPriority(), null));
+        }
+    }
+
+    private void queueNotificationWrites(boolean enabled) {
+        queueNotificationWrite(CharacteristicIds.INSIDE_TEMP, enabled);
+        queueNotificationWrite(CharacteristicIds.HOT_TEMP, enabled);
+        queueNotificationWrite(CharacteristicIds.STATE_BITS, enabled);
+    }
+
+    private void queueNotificationWrite(@NonNull UUID uuid, boolean enabled) {
+        if (isAvailable(uuid)) {
+            operationQueue.enqueue(GattOperation.setNotifications(uuid, enabled, null));
+        }
+    }
+
+    private void poll() {
+        if (state != ConnectionState.READY || telemetryMode != TelemetryMode.POLLING) {
+            return;
+        }
+        queuePollReads();
+        workerHandler.postDelayed(pollTask, pollIntervalMs);
+    }
+
+    private void queuePollReads() {
+        pollRead(CharacteristicIds.INSIDE_TEMP);
+        pollRead(CharacteristicIds.HOT_TEMP);
+        pollRead(CharacteristicIds.STATE_BITS);
+    }
+
+    private void pollRead(@NonNull UUID uuid) {
+        if (isAvailable(uuid)) {
+            modeWakeups++;
+            operationQueue.enqueue(GattOperation.read(uuid, null));
+        }
+    }
+
+    /**
+     * Switches an unwatched client to streaming while an alarm is raised or a temperature moves faster
+     * than the escalation rate, and back to polling once neither has been seen for a while.
+     */
+    private void checkEscalation() {
+        if (uiVisible) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        boolean trip = (mirror.getStateBits() & TelemetryFormatter.ALARM_MASK) != 0;
+        if (rateSampleAtMs == 0) {
+            takeRateSample(now);
+        } else if (now - rateSampleAtMs >= RATE_WINDOW_MS) {
+            float change = Math.max(
+                    Math.abs(CoolerCodec.rawToCelsius(mirror.getInsideRaw() - rateSampleInsideRaw)),
+                    Math.abs(CoolerCodec.rawToCelsius(mirror.getHotRaw() - rateSampleHotRaw)));
+            trip |= change * 60000f / (now - rateSampleAtMs) >= escalationRateCPerMin;
+            takeRateSample(now);
+        }
+        if (!trip) {
             return;
         }
-        chCommand.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
-        chCommand.setValue(new byte[]{(byte) (commandBits & 0xFF)});
-        bluetoothGatt.writeCharacteristic(chCommand);
+        workerHandler.removeCallbacks(endEscalationTask);
+        workerHandler.postDelayed(endEscalationTask, ESCALATION_HOLD_MS);
+        if (!escalated) {
+            escalated = true;
+            telemetryModeMetrics.recordEscalation();
+            updateTelemetryMode();
+        }
+    }
+
+    private void takeRateSample(long now) {
+        rateSampleAtMs = now;
+        rateSampleInsideRaw = mirror.getInsideRaw();
+        rateSampleHotRaw = mirror.getHotRaw();
+    }
+
+    private void endEscalation() {
+        escalated = false;
+        updateTelemetryMode();
+    }
+
+    private void beginModeInterval() {
+        modeEnteredAtMs = SystemClock.elapsedRealtime();
+        modeEnteredChargeMicroAh = readChargeMicroAh();
+        modeWakeups = 0;
+    }
+
+    private void endModeInterval() {
+        if (modeEnteredAtMs == 0) {
+            return;
+        }
+        long charge = readChargeMicroAh();
+        long drain = modeEnteredChargeMicroAh >= 0 && charge >= 0 && charge <= modeEnteredChargeMicroAh
+                ? modeEnteredChargeMicroAh - charge : -1L;
+        telemetryModeMetrics.recordInterval(telemetryMode, SystemClock.elapsedRealtime() - modeEnteredAtMs,
+                modeWakeups, drain);
+        modeEnteredAtMs = 0;
+    }
+
+    /**
+     * Remaining battery charge in µAh, or {@code -1} while charging or when the phone does not report it.
+     */
+    private long readChargeMicroAh() {
+        BatteryManager battery = context.getSystemService(BatteryManager.class);
+        if (battery == null || battery.isCharging()) {
+            return -1L;
+        }
+        long charge = battery.getLongProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+        return charge > 0 && charge != Long.MIN_VALUE ? charge : -1L;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Parameter push
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Brings the controller's parameters to {@code desired}. Only fields whose wire value differs from
+     * the mirrored one are written; each written field is then read back, and {@code callback} gets
+     * the outcome per field once all of them are done. Unlike the single-field {@code update*}
+     * methods, this needs a live link: while disconnected every differing field fails straight away,
+     * and if the link drops during the push, the writes not yet acknowledged are dropped rather than
+     * sent after the reconnect, and their fields fail.
+     */
+    public void applyParams(@NonNull CoolerParams desired, @NonNull ApplyParamsCallback callback) {
+        int[] wanted = new int[ParamField.values().length];
+        for (ParamField field : ParamField.values()) {
+            wanted[field.ordinal()] = field.wireValue(desired);
+        }
+        workerHandler.post(() -> startParamsTransaction(wanted, callback));
+    }
+
+    private void startParamsTransaction(@NonNull int[] wanted, @NonNull ApplyParamsCallback callback) {
+        ParamsApplyResult result = new ParamsApplyResult();
+        CoolerParams current = mirror.getParams();
+        int[] outstanding = {0};
+        Runnable finish = () -> {
+            if (--outstanding[0] == 0) {
+                mainHandler.post(() -> callback.onParamsApplied(result));
+            }
+        };
+        // Held until every field has been queued, so a fast completion cannot finish early.
+        outstanding[0]++;
+        for (ParamField field : ParamField.values()) {
+            int value = wanted[field.ordinal()];
+            if (value == field.wireValue(current)) {
+                continue;
+            }
+            if (state != ConnectionState.READY || !isAvailable(field.getUuid())) {
+                result.set(field, ParamsApplyResult.Outcome.FAILED, 0, GattOperationQueue.STATUS_CANCELLED);
+                continue;
+            }
+            outstanding[0]++;
+            boostPriority();
+            int[] writeStatus = {CoolerTransport.STATUS_SUCCESS};
+            // A single-field update still waiting would otherwise land after this write and undo it.
+            operationQueue.supersedeLatest(field.getUuid());
+            // Not kept across a reconnect: the read-back is cancelled with the link, and a write that
+            // went out later would change the controller after the push was reported as failed.
+            operationQueue.enqueue(GattOperation.writeOnce(field.getUuid(), field.encode(value),
+                    (operation, status) -> {
+                        writeStatus[0] = status;
+                        if (status != GattOperationQueue.STATUS_CANCELLED) {
+                            result.markWritten(field);
+                        }
+                    }));
+            operationQueue.enqueue(GattOperation.read(field.getUuid(), (operation, status) -> {
+                int readBack = field.wireValue(mirror.getParams());
+                if (writeStatus[0] != CoolerTransport.STATUS_SUCCESS) {
+                    result.set(field, ParamsApplyResult.Outcome.FAILED, readBack, writeStatus[0]);
+                } else if (status != CoolerTransport.STATUS_SUCCESS) {
+                    result.set(field, ParamsApplyResult.Outcome.FAILED, readBack, status);
+                } else {
+                    result.set(field, readBack == value ? ParamsApplyResult.Outcome.APPLIED
+                            : ParamsApplyResult.Outcome.MISMATCH, readBack, status);
+                }
+                if (status != GattOperationQueue.STATUS_CANCELLED && operationQueue.size() == 0) {
+                    onQueueDrained();
+                }
+                finish.run();
+            }));
+        }
+        finish.run();
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Write helpers
+    //
+    // Command and parameter writes only care about the latest value, so they are coalesced per
+    // characteristic: a write still waiting behind the radio is replaced rather than followed.
+    // ---------------------------------------------------------------------------------------------
+    public void sendCommand(int commandBits) {
+        byte[] value = new byte[CoolerCodec.COMMAND_SIZE];
+        CoolerCodec.encodeCommand(commandBits, value, 0);
+        workerHandler.post(() -> writeLatest(CharacteristicIds.COMMAND, value));
     }
 
     public void updateSetpoint(float setpointC) {
-        writeTemperatureCharacteristic(chSetpoint, setpointC);
+        writeTemperatureCharacteristic(CharacteristicIds.SETPOINT, setpointC);
     }
 
     public void updateHysteresis(float hysteresisC) {
-        writeTemperatureCharacteristic(chHysteresis, hysteresisC);
+        writeTemperatureCharacteristic(CharacteristicIds.HYSTERESIS, hysteresisC);
     }
 
     public void updateHotCut(float hotCutC) {
-        writeTemperatureCharacteristic(chHotCut, hotCutC);
+        writeTemperatureCharacteristic(CharacteristicIds.HOT_CUT, hotCutC);
     }
 
     public void updateHotResume(float hotResumeC) {
-        writeTemperatureCharacteristic(chHotResume, hotResumeC);
+        writeTemperatureCharacteristic(CharacteristicIds.HOT_RESUME, hotResumeC);
     }
 
     public void updateFanRunOn(int seconds) {
-        if (bluetoothGatt == null || chFanRunOn == null) {
-            postError("Not connected");
-            return;
-        }
-        if (seconds < 0) {
-            seconds = 0;
-        }
-        chFanRunOn.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
-        chFanRunOn.setValue(seconds, BluetoothGattCharacteristic.FORMAT_UINT16, 0);
-        bluetoothGatt.writeCharacteristic(chFanRunOn);
+        byte[] value = new byte[CoolerCodec.UINT16_SIZE];
+        CoolerCodec.encodeUint16(Math.max(seconds, 0), value, 0);
+        workerHandler.post(() -> writeLatest(CharacteristicIds.FAN_RUNON, value));
     }
 
     public void writeWifiCredentials(@NonNull String ssid, @NonNull String password) {
-        if (bluetoothGatt == null || chWifiCreds == null) {
-            postError("Not connected");
-            return;
-        }
         byte[] ssidBytes = ssid.getBytes();
         byte[] passBytes = password.getBytes();
-        if (ssidBytes.length > 32 || passBytes.length > 63) {
+        int size = CoolerCodec.wifiCredentialsSize(ssidBytes.length, passBytes.length);
+        if (size < 0) {
             postError("Credentials too long");
             return;
         }
-        byte[] payload = new byte[2 + ssidBytes.length + passBytes.length];
-        payload[0] = (byte) ssidBytes.length;
-        System.arraycopy(ssidBytes, 0, payload, 1, ssidBytes.length);
-        payload[1 + ssidBytes.length] = (byte) passBytes.length;
-        System.arraycopy(passBytes, 0, payload, 2 + ssidBytes.length, passBytes.length);
-        chWifiCreds.setValue(payload);
-        bluetoothGatt.writeCharacteristic(chWifiCreds);
+        byte[] payload = new byte[size];
+        CoolerCodec.encodeWifiCredentials(ssidBytes, passBytes, payload, 0);
+        workerHandler.post(() -> {
+            if (!isAvailable(CharacteristicIds.WIFI_CREDS)) {
+                postError("Not connected");
+                return;
+            }
+            boostPriority();
+            operationQueue.enqueue(GattOperation.write(CharacteristicIds.WIFI_CREDS, payload, writeCallback));
+        });
+    }
+
+    private void writeTemperatureCharacteristic(@NonNull UUID uuid, float valueC) {
+        byte[] value = new byte[CoolerCodec.TEMPERATURE_SIZE];
+        CoolerCodec.encodeTemperature(valueC, value, 0);
+        workerHandler.post(() -> writeLatest(uuid, value));
     }
 
-    private void writeTemperatureCharacteristic(@Nullable BluetoothGattCharacteristic characteristic, float valueC) {
-        if (bluetoothGatt == null || characteristic == null) {
+    private void writeLatest(@NonNull UUID uuid, @NonNull byte[] value) {
+        // Until the link is ready again the queue holds writes, whether the client is scanning,
+        // connecting, syncing or backing off.
+        if (!isAvailable(uuid) && !(keepConnected && state != ConnectionState.READY)) {
             postError("Not connected");
             return;
         }
-        int raw = Math.round(valueC * 10f);
-        characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
-        characteristic.setValue(raw, BluetoothGattCharacteristic.FORMAT_SINT16, 0);
-        bluetoothGatt.writeCharacteristic(characteristic);
+        boostPriority();
+        operationQueue.enqueueLatest(GattOperation.write(uuid, value, writeCallback));
     }
 }
@@ -0,0 +1,257 @@
+package com.example.xtrailcooler;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs one {@link BleClient} per controller so several coolers can be monitored at once.
+ * <p>
+ * A single scan discovers controllers; each one found gets its own client bound to its address, with
+ * its own worker thread, operation queue, mirror, cache and telemetry log, so a slow or reconnecting
+ * link never holds up the others. Listener events carry the device address they belong to. A client
+ * that gives up, i.e. goes {@link ConnectionState#IDLE} after a failure it does not retry, is closed
+ * and frees its slot for the next controller found.
+ * <p>
+ * The app itself monitors one cooler through {@link CoolerService}; this class is for hosts that
+ * watch several.
+ * <p>
+ * Not thread safe: use it from the main thread, where its listener is also called.
+ */
+public class CoolerManager {
+    public interface Listener {
+        /**
+         * A controller was found and a client is connecting to it.
+         */
+        default void onDeviceAdded(@NonNull String address) {
+        }
+
+        /**
+         * The client for a controller gave up connecting and was closed; a scan or
+         * {@link #connect(String)} may add it again.
+         */
+        default void onDeviceRemoved(@NonNull String address) {
+        }
+
+        void onConnectionStateChanged(@NonNull String address, @NonNull ConnectionState state);
+
+        void onTelemetryUpdated(@NonNull String address, @NonNull Telemetry telemetry);
+
+        /**
+         * See {@link BleClient.Listener#onSyncComplete}.
+         */
+        void onSyncComplete(@NonNull String address, @Nullable Telemetry telemetry, @NonNull CoolerParams params,
+                            @Nullable String deviceInfo);
+
+        /**
+         * See {@link BleClient.Listener#onParametersChanged}.
+         */
+        void onParametersChanged(@NonNull String address, @NonNull CoolerParams params, int changedFields);
+
+        void onDeviceInfo(@NonNull String address, @NonNull String info);
+
+        /**
+         * @param address the device the error concerns, or {@code null} for scan errors
+         */
+        void onError(@Nullable String address, @NonNull String message);
+    }
+
+    /** Concurrent links Android supports reliably across chipsets. */
+    public static final int DEFAULT_MAX_DEVICES = 7;
+
+    private static final long SCAN_TIMEOUT_MS = 15000L;
+
+    private final Context context;
+    private final Listener listener;
+    private final int maxDevices;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CoolerScanner scanner;
+    private final Map<String, BleClient> clients = new LinkedHashMap<>();
+    private final Runnable scanTimeout = this::stopScan;
+
+    public CoolerManager(@NonNull Context context, @NonNull Listener listener) {
+        this(context, listener, DEFAULT_MAX_DEVICES);
+    }
+
+    public CoolerManager(@NonNull Context context, @NonNull Listener listener, int maxDevices) {
+        if (maxDevices <= 0) {
+            throw new IllegalArgumentException("maxDevices must be positive");
+        }
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+        this.maxDevices = maxDevices;
+        scanner = new CoolerScanner(context, mainHandler, scanCallback);
+    }
+
+    /**
+     * Scans for controllers and connects to each new one found, up to the device limit. The scan stops
+     * by itself after a while or once the limit is reached.
+     */
+    public void startScan() {
+        if (clients.size() >= maxDevices || !scanner.start()) {
+            return;
+        }
+        mainHandler.removeCallbacks(scanTimeout);
+        mainHandler.postDelayed(scanTimeout, SCAN_TIMEOUT_MS);
+    }
+
+    public void stopScan() {
+        mainHandler.removeCallbacks(scanTimeout);
+        scanner.stop();
+    }
+
+    public boolean isScanning() {
+        return scanner.isScanning();
+    }
+
+    /**
+     * Connects to a controller by address, e.g. one remembered from an earlier session.
+     *
+     * @return the client for the device, or {@code null} when the device limit has been reached or
+     *         Bluetooth cannot be used; the reason has been reported
+     */
+    @Nullable
+    public BleClient connect(@NonNull String address) {
+        BleClient client = clients.get(address);
+        if (client != null) {
+            return client;
+        }
+        if (clients.size() >= maxDevices) {
+            listener.onError(address, "Too many coolers connected");
+            return null;
+        }
+        // A client that fails before its first attempt never leaves IDLE, so it would never be released.
+        String problem = BluetoothAdapter.checkBluetoothAddress(address)
+                ? CoolerScanner.checkBluetooth(context) : "Invalid device address";
+        if (problem != null) {
+            listener.onError(address, problem);
+            return null;
+        }
+        ClientListener clientListener = new ClientListener(address);
+        client = new BleClient(context, clientListener, address);
+        clientListener.client = client;
+        clients.put(address, client);
+        listener.onDeviceAdded(address);
+        client.connect();
+        if (clients.size() >= maxDevices) {
+            stopScan();
+        }
+        return client;
+    }
+
+    /**
+     * Disconnects from a controller and releases its client.
+     */
+    public void disconnect(@NonNull String address) {
+        BleClient client = clients.remove(address);
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Nullable
+    public BleClient getClient(@NonNull String address) {
+        return clients.get(address);
+    }
+
+    /**
+     * Addresses of all managed controllers, in the order they were added.
+     */
+    @NonNull
+    public List<String> getAddresses() {
+        return Collections.unmodifiableList(new ArrayList<>(clients.keySet()));
+    }
+
+    /**
+     * Stops scanning and closes every client. The manager can be reused afterwards.
+     */
+    public void close() {
+        stopScan();
+        for (BleClient client : clients.values()) {
+            client.close();
+        }
+        clients.clear();
+    }
+
+    private final CoolerScanner.Callback scanCallback = new CoolerScanner.Callback() {
+        @Override
+        public void onDeviceFound(@NonNull BluetoothDevice device) {
+            if (!clients.containsKey(device.getAddress())) {
+                connect(device.getAddress());
+            }
+        }
+
+        @Override
+        public void onScanFailed(@NonNull String message) {
+            mainHandler.removeCallbacks(scanTimeout);
+            listener.onError(null, message);
+        }
+    };
+
+    /**
+     * Tags one client's events with its address. BleClient already calls it on the main thread.
+     */
+    private final class ClientListener implements BleClient.Listener {
+        private final String address;
+        @Nullable
+        BleClient client;
+
+        ClientListener(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public void onConnectionStateChanged(boolean connected) {
+            // Covered by the ConnectionState overload.
+        }
+
+        @Override
+        public void onConnectionStateChanged(@NonNull ConnectionState state) {
+            listener.onConnectionStateChanged(address, state);
+            // IDLE only follows a failure that is not retried, or a disconnect; either way the slot is
+            // free. A client already replaced under the same address is left alone.
+            if (state == ConnectionState.IDLE && client != null && clients.get(address) == client) {
+                clients.remove(address);
+                client.close();
+                listener.onDeviceRemoved(address);
+            }
+        }
+
+        @Override
+        public void onTelemetryUpdated(@NonNull Telemetry telemetry) {
+            listener.onTelemetryUpdated(address, telemetry);
+        }
+
+        @Override
+        public void onSyncComplete(@Nullable Telemetry telemetry, @NonNull CoolerParams params,
+                                   @Nullable String deviceInfo) {
+            listener.onSyncComplete(address, telemetry, params, deviceInfo);
+        }
+
+        @Override
+        public void onParametersChanged(@NonNull CoolerParams params, int changedFields) {
+            listener.onParametersChanged(address, params, changedFields);
+        }
+
+        @Override
+        public void onDeviceInfo(@NonNull String info) {
+            listener.onDeviceInfo(address, info);
+        }
+
+        @Override
+        public void onError(@NonNull String message) {
+            listener.onError(address, message);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.xtrailcooler;
+
+import android.Manifest;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.ActivityCompat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scans for controllers advertising the {@link #TARGET_NAME} name and reports each one once per scan.
+ * <p>
+ * Not thread safe: call it and receive its callbacks on the thread of the handler passed to the
+ * constructor.
+ */
+public class CoolerScanner {
+    public interface Callback {
+        void onDeviceFound(@NonNull BluetoothDevice device);
+
+        /**
+         * The scan could not be started or was aborted by the stack.
+         */
+        void onScanFailed(@NonNull String message);
+    }
+
+    public static final String TARGET_NAME = "XTrailCooler";
+
+    private final Context context;
+    private final Handler handler;
+    private final Callback callback;
+    private final Set<String> reported = new HashSet<>();
+
+    @Nullable
+    private BluetoothLeScanner scanner;
+    private boolean scanning;
+
+    public CoolerScanner(@NonNull Context context, @NonNull Handler handler, @NonNull Callback callback) {
+        this.context = context.getApplicationContext();
+        this.handler = handler;
+        this.callback = callback;
+    }
+
+    /**
+     * @return {@code false} when the scan could not be started; the reason has been reported through
+     * {@link Callback#onScanFailed}
+     */
+    public boolean start() {
+        if (scanning) {
+            return true;
+        }
+        String problem = checkBluetooth(context);
+        if (problem != null) {
+            callback.onScanFailed(problem);
+            return false;
+        }
+        BluetoothAdapter adapter = getAdapter(context);
+        scanner = adapter != null ? adapter.getBluetoothLeScanner() : null;
+        if (scanner == null) {
+            callback.onScanFailed("Unable to access BLE scanner");
+            return false;
+        }
+        reported.clear();
+        List<ScanFilter> filters = new ArrayList<>();
+        filters.add(new ScanFilter.Builder().setDeviceName(TARGET_NAME).build());
+        ScanSettings settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
+                .build();
+        scanner.startScan(filters, settings, scanCallback);
+        scanning = true;
+        return true;
+    }
+
+    public void stop() {
+        if (!scanning) {
+            return;
+        }
+        if (scanner != null && hasPermissions(context)) {
+            scanner.stopScan(scanCallback);
+        }
+        scanning = false;
+    }
+
+    public boolean isScanning() {
+        return scanning;
+    }
+
+    /**
+     * Why Bluetooth cannot be used right now, or {@code null} when it can.
+     */
+    @Nullable
+    public static String checkBluetooth(@NonNull Context context) {
+        BluetoothManager manager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
+        if (manager == null) {
+            return "Bluetooth not available on this device";
+        }
+        BluetoothAdapter adapter = manager.getAdapter();
+        if (adapter == null || !adapter.isEnabled()) {
+            return "Bluetooth adapter disabled";
+        }
+        if (!hasPermissions(context)) {
+            return "Missing Bluetooth permissions";
+        }
+        return null;
+    }
+
+    /**
+     * The adapter if it is enabled and the app may use it, otherwise {@code null}.
+     */
+    @Nullable
+    public static BluetoothAdapter getAdapter(@NonNull Context context) {
+        if (checkBluetooth(context) != null) {
+            return null;
+        }
+        return ((BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE)).getAdapter();
+    }
+
+    public static boolean hasPermissions(@NonNull Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S) {
+            return ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH) == PackageManager.PERMISSION_GRANTED
+                    && ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+        }
+        return ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED
+                && ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    // Scan results arrive on the main thread; hand them to the scanner's handler.
+    private final ScanCallback scanCallback = new ScanCallback() {
+        @Override
+        public void onScanFailed(int errorCode) {
+            handler.post(() -> {
+                stop();
+                callback.onScanFailed("Scan failed: " + errorCode);
+            });
+        }
+
+        @Override
+        public void onScanResult(int callbackType, @NonNull ScanResult result) {
+            BluetoothDevice device = result.getDevice();
+            String name = result.getScanRecord() != null ? result.getScanRecord().getDeviceName() : device.getName();
+            if (name != null && name.equalsIgnoreCase(TARGET_NAME)) {
+                handler.post(() -> {
+                    if (scanning && reported.add(device.getAddress())) {
+                        callback.onDeviceFound(device);
+                    }
+                });
+            }
+        }
+    };
+}
@@ -0,0 +1,405 @@
+package com.example.xtrailcooler;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Hosts the {@link BleClient} so the link, history and telemetry log outlive the activity.
+ * <p>
+ * The activity binds to the service while it is visible and attaches itself as listener; on attach
+ * the last known state is replayed so a recreated activity renders immediately without a resync.
+ * Every screen that shows live values, listener or not, counts itself in with {@link #addVisibleUi()},
+ * and the client streams while any of them is visible.
+ * While a connection is wanted the service is also started and runs in the foreground with an ongoing
+ * notification, so monitoring, logging and alarm notifications continue with no UI at all. It drops
+ * back to a plain bound service, and stops once unbound, when the client goes idle.
+ */
+public class CoolerService extends Service implements BleClient.Listener {
+    public final class LocalBinder extends Binder {
+        @NonNull
+        public CoolerService getService() {
+            return CoolerService.this;
+        }
+    }
+
+    private static final String CHANNEL_STATUS = "status";
+    private static final String CHANNEL_ALARMS = "alarms";
+    private static final int NOTIFICATION_STATUS = 1;
+    private static final int NOTIFICATION_ALARM = 2;
+    private static final int NOTIFICATION_PREDICTIVE = 3;
+    /** The ongoing notification is informational; refreshing it every frame would only cost battery. */
+    private static final long STATUS_UPDATE_INTERVAL_MS = 10000L;
+    /** Alarm evaluation sees every sample, so a short-lived alarm is not lost to frame conflation. */
+    private static final int ALARM_BUFFER_CAPACITY = 64;
+    /**
+     * Moving between two screens briefly leaves neither counted in, as the next one binds
+     * asynchronously; going hidden only after this long keeps that from switching to polling.
+     */
+    private static final long UI_HIDDEN_DELAY_MS = 1000L;
+
+    private final LocalBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable uiHiddenTask = this::onUiHidden;
+    private BleClient client;
+    private EventStream.Subscription alarmSubscription;
+    private EventStream.Subscription predictiveSubscription;
+    private NotificationManager notificationManager;
+    private boolean foreground;
+    // Set from connect() until the client goes idle.
+    private boolean monitoring;
+
+    @Nullable
+    private BleClient.Listener uiListener;
+    // Screens currently showing live values; main thread only.
+    private int visibleUis;
+
+    // Last values seen, replayed to a listener that attaches later; main thread only.
+    private ConnectionState state = ConnectionState.IDLE;
+    private boolean connected;
+    // Whether the current connection has completed its sync; parameters restored from the snapshot
+    // alone do not count.
+    private boolean synced;
+    @Nullable
+    private Telemetry lastTelemetry;
+    @Nullable
+    private CoolerParams lastParams;
+    @Nullable
+    private String lastDeviceInfo;
+    private int lastAlarmBits;
+    private final Set<String> raisedPredictive = new HashSet<>();
+    private long statusUpdatedAtMs;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        notificationManager = getSystemService(NotificationManager.class);
+        createChannels();
+        client = new BleClient(this, this);
+        // Nothing is on screen until a screen says so.
+        client.setUiVisible(false);
+        alarmSubscription = client.getTelemetryStream().subscribe(mainHandler::post,
+                EventStream.Backpressure.BUFFER, ALARM_BUFFER_CAPACITY, this::checkAlarms);
+        predictiveSubscription = client.getAlarmStream().subscribe(mainHandler::post, this::checkPredictiveAlarms);
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // A started foreground service must call startForeground() even if monitoring already ended.
+        startForegroundIfNeeded();
+        if (!monitoring) {
+            stopForegroundAndSelf();
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        mainHandler.removeCallbacks(uiHiddenTask);
+        alarmSubscription.cancel();
+        predictiveSubscription.cancel();
+        client.close();
+        super.onDestroy();
+    }
+
+    @NonNull
+    public BleClient getClient() {
+        return client;
+    }
+
+    /**
+     * Starts monitoring through the hosted client and keeps the service running until
+     * {@link #disconnect()}.
+     */
+    public void connect() {
+        monitoring = true;
+        ContextCompat.startForegroundService(this, new Intent(this, CoolerService.class));
+        client.connect();
+    }
+
+    public void disconnect() {
+        client.disconnect();
+    }
+
+    /**
+     * Counts a screen showing live values in, until the matching {@link #removeVisibleUi()}; call it
+     * once bound, from {@code onStart()} on.
+     */
+    public void addVisibleUi() {
+        mainHandler.removeCallbacks(uiHiddenTask);
+        if (visibleUis++ == 0) {
+            client.setUiVisible(true);
+        }
+    }
+
+    public void removeVisibleUi() {
+        if (visibleUis == 0) {
+            throw new IllegalStateException("No visible UI to remove");
+        }
+        if (--visibleUis == 0) {
+            mainHandler.postDelayed(uiHiddenTask, UI_HIDDEN_DELAY_MS);
+        }
+    }
+
+    private void onUiHidden() {
+        client.setUiVisible(false);
+    }
+
+    /**
+     * Attaches the UI, replaying the current state to it, or detaches it when {@code listener} is
+     * {@code null}. While the link is synced the state is replayed as one
+     * {@link BleClient.Listener#onSyncComplete} event; otherwise what is known is replayed piecemeal.
+     */
+    public void setListener(@Nullable BleClient.Listener listener) {
+        uiListener = listener;
+        if (listener == null) {
+            return;
+        }
+        listener.onConnectionStateChanged(state);
+        listener.onConnectionStateChanged(connected);
+        if (synced && lastParams != null) {
+            listener.onSyncComplete(lastTelemetry, lastParams, lastDeviceInfo);
+            return;
+        }
+        if (lastDeviceInfo != null) {
+            listener.onDeviceInfo(lastDeviceInfo);
+        }
+        if (lastParams != null) {
+            listener.onParametersChanged(lastParams, ParamField.ALL_MASK);
+        }
+        if (lastTelemetry != null) {
+            listener.onTelemetryUpdated(lastTelemetry);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // BleClient.Listener
+    // ---------------------------------------------------------------------------------------------
+
+    @Override
+    public void onConnectionStateChanged(boolean connected) {
+        this.connected = connected;
+        if (uiListener != null) {
+            uiListener.onConnectionStateChanged(connected);
+        }
+    }
+
+    @Override
+    public void onConnectionStateChanged(@NonNull ConnectionState state) {
+        this.state = state;
+        if (state != ConnectionState.READY) {
+            // Idle, backing off or on the way to a new sync; onSyncComplete comes just before READY.
+            synced = false;
+        }
+        if (state == ConnectionState.IDLE) {
+            monitoring = false;
+            stopForegroundAndSelf();
+        } else if (foreground) {
+            updateStatusNotification();
+        }
+        if (uiListener != null) {
+            uiListener.onConnectionStateChanged(state);
+        }
+    }
+
+    @Override
+    public void onTelemetryUpdated(@NonNull Telemetry telemetry) {
+        lastTelemetry = telemetry;
+        long now = SystemClock.elapsedRealtime();
+        if (foreground && now - statusUpdatedAtMs >= STATUS_UPDATE_INTERVAL_MS) {
+            updateStatusNotification();
+        }
+        if (uiListener != null) {
+            uiListener.onTelemetryUpdated(telemetry);
+        }
+    }
+
+    @Override
+    public void onSyncComplete(@Nullable Telemetry telemetry, @NonNull CoolerParams params,
+                               @Nullable String deviceInfo) {
+        if (telemetry != null) {
+            lastTelemetry = telemetry;
+        }
+        lastParams = params;
+        if (deviceInfo != null) {
+            lastDeviceInfo = deviceInfo;
+        }
+        synced = true;
+        if (foreground) {
+            updateStatusNotification();
+        }
+        if (uiListener != null) {
+            uiListener.onSyncComplete(telemetry, params, deviceInfo);
+        }
+    }
+
+    @Override
+    public void onParametersChanged(@NonNull CoolerParams params, int changedFields) {
+        lastParams = params;
+        if (uiListener != null) {
+            uiListener.onParametersChanged(params, changedFields);
+        }
+    }
+
+    @Override
+    public void onDeviceInfo(@NonNull String info) {
+        lastDeviceInfo = info;
+        if (uiListener != null) {
+            uiListener.onDeviceInfo(info);
+        }
+    }
+
+    @Override
+    public void onError(@NonNull String message) {
+        if (uiListener != null) {
+            uiListener.onError(message);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Notifications
+    // ---------------------------------------------------------------------------------------------
+
+    private void checkAlarms(@NonNull Telemetry telemetry) {
+        int alarmBits = telemetry.getStateBits() & TelemetryFormatter.ALARM_MASK;
+        if (alarmBits != lastAlarmBits) {
+            // Only newly raised alarms are worth interrupting the user for.
+            if ((alarmBits & ~lastAlarmBits) != 0) {
+                postAlarmNotification(alarmBits);
+            }
+            lastAlarmBits = alarmBits;
+        }
+    }
+
+    private void checkPredictiveAlarms(@NonNull List<PredictiveAlarm> active) {
+        PredictiveAlarm newest = null;
+        Set<String> ids = new HashSet<>();
+        for (PredictiveAlarm alarm : active) {
+            ids.add(alarm.getRuleId());
+            if (!raisedPredictive.contains(alarm.getRuleId())) {
+                newest = alarm;
+            }
+        }
+        raisedPredictive.clear();
+        raisedPredictive.addAll(ids);
+        if (newest != null) {
+            postPredictiveNotification(newest, active.size());
+        } else if (active.isEmpty()) {
+            notificationManager.cancel(NOTIFICATION_PREDICTIVE);
+        }
+    }
+
+    private void createChannels() {
+        notificationManager.createNotificationChannel(
+                new NotificationChannel(CHANNEL_STATUS, "Cooler status", NotificationManager.IMPORTANCE_LOW));
+        notificationManager.createNotificationChannel(
+                new NotificationChannel(CHANNEL_ALARMS, "Cooler alarms", NotificationManager.IMPORTANCE_HIGH));
+    }
+
+    private void startForegroundIfNeeded() {
+        if (foreground) {
+            return;
+        }
+        foreground = true;
+        Notification notification = buildStatusNotification();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_STATUS, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE);
+        } else {
+            startForeground(NOTIFICATION_STATUS, notification);
+        }
+    }
+
+    private void stopForegroundAndSelf() {
+        if (!foreground) {
+            return;
+        }
+        foreground = false;
+        stopForeground(STOP_FOREGROUND_REMOVE);
+        // Stays alive while the activity is bound.
+        stopSelf();
+    }
+
+    private void updateStatusNotification() {
+        notificationManager.notify(NOTIFICATION_STATUS, buildStatusNotification());
+    }
+
+    @NonNull
+    private Notification buildStatusNotification() {
+        statusUpdatedAtMs = SystemClock.elapsedRealtime();
+        String text;
+        if (state == ConnectionState.READY && lastTelemetry != null) {
+            text = String.format(Locale.US, "Inside %.1f °C · Hot side %.1f °C",
+                    lastTelemetry.getInsideCelsius(), lastTelemetry.getHotCelsius());
+        } else if (state == ConnectionState.BACKOFF) {
+            text = "Reconnecting...";
+        } else {
+            text = "Connecting...";
+        }
+        return new NotificationCompat.Builder(this, CHANNEL_STATUS)
+                .setSmallIcon(android.R.drawable.stat_sys_data_bluetooth)
+                .setContentTitle("Monitoring cooler")
+                .setContentText(text)
+                .setContentIntent(openAppIntent())
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .build();
+    }
+
+    private void postAlarmNotification(int alarmBits) {
+        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ALARMS)
+                .setSmallIcon(android.R.drawable.stat_notify_error)
+                .setContentTitle("Cooler alarm")
+                .setContentText(TelemetryFormatter.alarmsText(alarmBits))
+                .setContentIntent(openAppIntent())
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true)
+                .build();
+        notificationManager.notify(NOTIFICATION_ALARM, notification);
+    }
+
+    private void postPredictiveNotification(@NonNull PredictiveAlarm alarm, int activeCount) {
+        String title = activeCount > 1 ? "Cooler warnings (" + activeCount + ")" : "Cooler warning";
+        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ALARMS)
+                .setSmallIcon(android.R.drawable.stat_sys_warning)
+                .setContentTitle(title)
+                .setContentText(alarm.getMessage())
+                .setContentIntent(openAppIntent())
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true)
+                .build();
+        notificationManager.notify(NOTIFICATION_PREDICTIVE, notification);
+    }
+
+    @NonNull
+    private PendingIntent openAppIntent() {
+        Intent intent = new Intent(this, MainActivity.class)
+                .setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        return PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+}
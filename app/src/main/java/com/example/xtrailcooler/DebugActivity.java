@@ -0,0 +1,141 @@
+package com.example.xtrailcooler;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Shows the link metrics of the client hosted by {@link CoolerService}, refreshed every second, and
+ * dumps them to a text file tagged with the phone model so runs on different phones can be compared.
+ */
+public class DebugActivity extends AppCompatActivity {
+    private static final long REFRESH_INTERVAL_MS = 1000L;
+    private static final String DUMP_DIR = "metrics";
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshTask = this::refresh;
+    private final StringBuilder report = new StringBuilder();
+
+    @Nullable
+    private CoolerService service;
+    @Nullable
+    private BleClient bleClient;
+    private TextView metricsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_debug);
+        metricsText = findViewById(R.id.metricsText);
+        Button dumpButton = findViewById(R.id.dumpMetricsButton);
+        Button resetButton = findViewById(R.id.resetMetricsButton);
+        dumpButton.setOnClickListener(v -> dumpToFile());
+        resetButton.setOnClickListener(v -> {
+            if (bleClient != null) {
+                bleClient.getGattMetrics().reset();
+                refresh();
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, CoolerService.class), serviceConnection, Context.BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        handler.removeCallbacks(refreshTask);
+        if (service != null) {
+            service.removeVisibleUi();
+            service = null;
+        }
+        bleClient = null;
+        unbindService(serviceConnection);
+    }
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((CoolerService.LocalBinder) binder).getService();
+            // The metrics are live values too; without this the link would drop to polling.
+            service.addVisibleUi();
+            bleClient = service.getClient();
+            refresh();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+            bleClient = null;
+            handler.removeCallbacks(refreshTask);
+        }
+    };
+
+    private void refresh() {
+        handler.removeCallbacks(refreshTask);
+        if (bleClient == null) {
+            return;
+        }
+        report.setLength(0);
+        try {
+            writeReport(bleClient, report);
+        } catch (IOException e) {
+            // StringBuilder does not throw.
+        }
+        metricsText.setText(report);
+        handler.postDelayed(refreshTask, REFRESH_INTERVAL_MS);
+    }
+
+    private void dumpToFile() {
+        if (bleClient == null) {
+            Toast.makeText(this, "Not connected to the monitoring service", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        File dir = getExternalFilesDir(DUMP_DIR);
+        if (dir == null) {
+            Toast.makeText(this, "Storage unavailable", Toast.LENGTH_LONG).show();
+            return;
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        String model = (Build.MANUFACTURER + "-" + Build.MODEL).replaceAll("[^A-Za-z0-9._-]", "_");
+        File file = new File(dir, "link-" + model + "-" + stamp + ".txt");
+        try (Writer out = new FileWriter(file)) {
+            writeReport(bleClient, out);
+        } catch (IOException e) {
+            Toast.makeText(this, "Dump failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
+        Toast.makeText(this, "Saved " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+    }
+
+    private static void writeReport(@NonNull BleClient client, @NonNull Appendable out) throws IOException {
+        out.append("device ").append(Build.MANUFACTURER).append(' ').append(Build.MODEL).append('\n');
+        out.append("android ").append(Build.VERSION.RELEASE)
+                .append(" (API ").append(Integer.toString(Build.VERSION.SDK_INT)).append(")\n");
+        client.writeMetricsReport(out);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.xtrailcooler;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Remembers the last controller the app talked to, so a later session can connect without scanning.
+ * Its last known values are kept by {@link SnapshotStore}.
+ */
+public class DeviceCache {
+    private static final String KEY_ADDRESS = "address";
+
+    private final SharedPreferences prefs;
+
+    /**
+     * @param name preferences file backing this cache; one per client
+     */
+    public DeviceCache(@NonNull Context context, @NonNull String name) {
+        prefs = context.getApplicationContext().getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    @Nullable
+    public String getAddress() {
+        return prefs.getString(KEY_ADDRESS, null);
+    }
+
+    /**
+     * @return whether this is a different controller from the one remembered so far
+     */
+    public boolean saveAddress(@NonNull String address) {
+        if (address.equals(getAddress())) {
+            return false;
+        }
+        prefs.edit()
+                .clear()
+                .putString(KEY_ADDRESS, address)
+                .apply();
+        return true;
+    }
+}
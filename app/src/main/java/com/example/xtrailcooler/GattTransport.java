@@ -0,0 +1,219 @@
+package com.example.xtrailcooler;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@link CoolerTransport} backed by the Android GATT client.
+ */
+public class GattTransport implements CoolerTransport {
+    private static final UUID[] CHARACTERISTICS = {
+            CharacteristicIds.INSIDE_TEMP,
+            CharacteristicIds.HOT_TEMP,
+            CharacteristicIds.STATE_BITS,
+            CharacteristicIds.SETPOINT,
+            CharacteristicIds.HYSTERESIS,
+            CharacteristicIds.HOT_CUT,
+            CharacteristicIds.HOT_RESUME,
+            CharacteristicIds.FAN_RUNON,
+            CharacteristicIds.COMMAND,
+            CharacteristicIds.DEVICE_INFO,
+            CharacteristicIds.WIFI_CREDS,
+    };
+
+    private final Context context;
+    private final BluetoothDevice device;
+    private final Handler callbackHandler;
+    private final Map<UUID, BluetoothGattCharacteristic> characteristics = new HashMap<>();
+
+    @Nullable
+    private BluetoothGatt gatt;
+    @Nullable
+    private Callback callback;
+
+    /**
+     * @param callbackHandler handler whose thread receives every GATT callback
+     */
+    public GattTransport(@NonNull Context context, @NonNull BluetoothDevice device, @NonNull Handler callbackHandler) {
+        this.context = context.getApplicationContext();
+        this.device = device;
+        this.callbackHandler = callbackHandler;
+    }
+
+    @NonNull
+    public BluetoothDevice getDevice() {
+        return device;
+    }
+
+    @Override
+    public void connect(@NonNull Callback callback) {
+        this.callback = callback;
+        // Passing the handler makes the stack deliver GATT callbacks on its thread directly.
+        gatt = device.connectGatt(context, false, gattCallback, BluetoothDevice.TRANSPORT_LE,
+                BluetoothDevice.PHY_LE_1M_MASK, callbackHandler);
+    }
+
+    @Override
+    public boolean discoverServices() {
+        return gatt != null && gatt.discoverServices();
+    }
+
+    @Override
+    public boolean hasCharacteristic(@NonNull UUID uuid) {
+        return characteristics.containsKey(uuid);
+    }
+
+    @Override
+    public boolean readCharacteristic(@NonNull UUID uuid) {
+        BluetoothGattCharacteristic characteristic = characteristics.get(uuid);
+        return gatt != null && characteristic != null && gatt.readCharacteristic(characteristic);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean writeCharacteristic(@NonNull UUID uuid, @NonNull byte[] value) {
+        BluetoothGattCharacteristic characteristic = characteristics.get(uuid);
+        if (gatt == null || characteristic == null) {
+            return false;
+        }
+        characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+        characteristic.setValue(value);
+        return gatt.writeCharacteristic(characteristic);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean setNotificationsEnabled(@NonNull UUID uuid, boolean enabled) {
+        BluetoothGattCharacteristic characteristic = characteristics.get(uuid);
+        if (gatt == null || characteristic == null) {
+            return false;
+        }
+        BluetoothGattDescriptor descriptor = characteristic.getDescriptor(CharacteristicIds.CLIENT_CONFIG_DESCRIPTOR);
+        if (descriptor == null || !gatt.setCharacteristicNotification(characteristic, enabled)) {
+            return false;
+        }
+        descriptor.setValue(enabled
+                ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE
+                : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
+        return gatt.writeDescriptor(descriptor);
+    }
+
+    @Override
+    public boolean requestMtu(int mtu) {
+        return gatt != null && gatt.requestMtu(mtu);
+    }
+
+    @Override
+    public boolean requestConnectionPriority(int priority) {
+        return gatt != null && gatt.requestConnectionPriority(priority);
+    }
+
+    @Override
+    public void close() {
+        callback = null;
+        characteristics.clear();
+        if (gatt != null) {
+            gatt.disconnect();
+            gatt.close();
+            gatt = null;
+        }
+    }
+
+    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+        @Override
+        public void onConnectionStateChange(@NonNull BluetoothGatt gatt, int status, int newState) {
+            if (status != BluetoothGatt.GATT_SUCCESS || newState == BluetoothProfile.STATE_DISCONNECTED) {
+                // The stack requires close() after every failed or dropped connection.
+                Callback cb = callback;
+                close();
+                if (cb != null) {
+                    cb.onConnectionStateChanged(status, false);
+                }
+            } else if (newState == BluetoothProfile.STATE_CONNECTED && callback != null) {
+                callback.onConnectionStateChanged(status, true);
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(@NonNull BluetoothGatt gatt, int status) {
+            characteristics.clear();
+            BluetoothGattService service = gatt.getService(CharacteristicIds.SERVICE_COOLER);
+            if (status == BluetoothGatt.GATT_SUCCESS && service != null) {
+                for (UUID uuid : CHARACTERISTICS) {
+                    BluetoothGattCharacteristic characteristic = service.getCharacteristic(uuid);
+                    if (characteristic != null) {
+                        characteristics.put(uuid, characteristic);
+                    }
+                }
+            }
+            if (callback != null) {
+                callback.onServicesDiscovered(status);
+            }
+        }
+
+        @Override
+        public void onDescriptorWrite(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattDescriptor descriptor, int status) {
+            if (callback != null) {
+                callback.onNotificationsChanged(descriptor.getCharacteristic().getUuid(), status);
+            }
+        }
+
+        // Before API 33 the value is only available from the shared characteristic object; from
+        // API 33 the stack passes a private copy and calls the overloads below instead.
+        @Override
+        @SuppressWarnings("deprecation")
+        public void onCharacteristicRead(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic, int status) {
+            onCharacteristicRead(gatt, characteristic, characteristic.getValue(), status);
+        }
+
+        @Override
+        public void onCharacteristicRead(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic,
+                                         @NonNull byte[] value, int status) {
+            if (callback != null) {
+                callback.onCharacteristicRead(characteristic.getUuid(), value, status);
+            }
+        }
+
+        @Override
+        public void onCharacteristicWrite(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic, int status) {
+            if (callback != null) {
+                callback.onCharacteristicWrite(characteristic.getUuid(), status);
+            }
+        }
+
+        @Override
+        public void onMtuChanged(@NonNull BluetoothGatt gatt, int mtu, int status) {
+            if (callback != null) {
+                callback.onMtuChanged(mtu, status);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void onCharacteristicChanged(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic) {
+            onCharacteristicChanged(gatt, characteristic, characteristic.getValue());
+        }
+
+        @Override
+        public void onCharacteristicChanged(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic,
+                                            @NonNull byte[] value) {
+            if (callback != null && value != null) {
+                callback.onCharacteristicChanged(characteristic.getUuid(), value);
+            }
+        }
+    };
+}
@@ -1,10 +1,16 @@
 package com.example.xtrailcooler;
 
 import android.Manifest;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.text.TextUtils;
+import android.os.IBinder;
+import android.os.SystemClock;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
@@ -18,15 +24,38 @@ import androidx.core.content.ContextCompat;
 
 import com.google.android.material.switchmaterial.SwitchMaterial;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity implements BleClient.Listener {
 
     private static final int REQ_PERMISSIONS = 42;
-
+    private static final int REQ_EXPORT = 43;
+    /** Duty cycles move slowly; re-rendering them every frame would only churn strings. */
+    private static final long ANALYTICS_REFRESH_MS = 10000L;
+    /** Index of the one-hour window in {@link BleClient#getDutyCycleAnalytics()}. */
+    private static final int ANALYTICS_WINDOW = 1;
+    /** Values restored from the last session are dimmed until live ones replace them. */
+    private static final float STALE_ALPHA = 0.5f;
+
+    private static final Executor SNAPSHOT_LOADER = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "SnapshotLoad"));
+
+    // Bound while the activity is started; the connection itself lives in the service.
+    @Nullable
+    private CoolerService service;
+    @Nullable
     private BleClient bleClient;
+    // Picked while the activity was stopped; exported once the service is bound again.
+    @Nullable
+    private Uri pendingExportUri;
+    @Nullable
+    private StreamLiveData<List<PredictiveAlarm>> predictiveAlarms;
 
     private TextView statusText;
     private TextView deviceInfoText;
@@ -34,6 +63,8 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
     private TextView hotTempText;
     private TextView outputStateText;
     private TextView alarmText;
+    private TextView predictiveAlarmText;
+    private TextView analyticsText;
     private EditText setpointInput;
     private EditText hysteresisInput;
     private EditText hotCutInput;
@@ -46,16 +77,34 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
     private SwitchMaterial forceFansSwitch;
     private Button connectButton;
 
+    private static final String INSIDE_PREFIX = "Inside temp: ";
+    private static final String HOT_PREFIX = "Hot side temp: ";
+    private static final String CELSIUS_SUFFIX = " °C";
+
+    // Telemetry rendering reuses these buffers and skips setText when the displayed value is unchanged.
+    private final char[] insideTempChars = new char[TelemetryFormatter.bufferSize(INSIDE_PREFIX, CELSIUS_SUFFIX)];
+    private final char[] hotTempChars = new char[TelemetryFormatter.bufferSize(HOT_PREFIX, CELSIUS_SUFFIX)];
+    private int renderedInsideTenths = Integer.MAX_VALUE;
+    private int renderedHotTenths = Integer.MAX_VALUE;
+    private int renderedOutputBits = -1;
+    private int renderedAlarmBits = -1;
+    private long analyticsRenderedAtMs;
+    // True while the telemetry on screen comes from the last session's snapshot, received at staleSeenAt.
+    private boolean showingStale;
+    // Set once the service has delivered live values, which a snapshot loaded later must not replace.
+    private boolean liveDataSeen;
+    private String staleSeenAt;
+
     private boolean connected;
+    // Last parameters reported by the controller; the base that edits are applied on top of.
+    @Nullable
+    private CoolerParams params;
+    // True from connect() until the client is idle again, including while it reconnects.
+    private boolean connectionActive;
     private boolean forcePel1;
     private boolean forcePel2;
     private boolean forceFans;
 
-    private static final int CMD_FORCE_PEL1 = 1 << 0;
-    private static final int CMD_FORCE_PEL2 = 1 << 1;
-    private static final int CMD_FORCE_FANS = 1 << 2;
-    private static final int CMD_CLEAR_ALARMS = 1 << 7;
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -67,6 +116,8 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
         hotTempText = findViewById(R.id.hotTempText);
         outputStateText = findViewById(R.id.outputStateText);
         alarmText = findViewById(R.id.alarmText);
+        predictiveAlarmText = findViewById(R.id.predictiveAlarmText);
+        analyticsText = findViewById(R.id.analyticsText);
         setpointInput = findViewById(R.id.setpointInput);
         hysteresisInput = findViewById(R.id.hysteresisInput);
         hotCutInput = findViewById(R.id.hotCutInput);
@@ -81,25 +132,29 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
         Button applyParamsButton = findViewById(R.id.applyParamsButton);
         Button sendWifiButton = findViewById(R.id.sendWifiButton);
         Button clearAlarmsButton = findViewById(R.id.clearAlarmsButton);
-
-        bleClient = new BleClient(this, this);
+        Button exportButton = findViewById(R.id.exportButton);
+        Button debugButton = findViewById(R.id.debugButton);
 
         connectButton.setOnClickListener(v -> {
-            if (!connected) {
+            if (service == null) {
+                return;
+            }
+            if (!connectionActive) {
                 if (ensurePermissions()) {
-                    statusText.setText("Status: Scanning...");
-                    bleClient.connect();
+                    service.connect();
                 }
             } else {
-                bleClient.disconnect();
+                service.disconnect();
             }
         });
 
         applyParamsButton.setOnClickListener(v -> applyParams());
         sendWifiButton.setOnClickListener(v -> sendWifiCredentials());
+        exportButton.setOnClickListener(v -> chooseExportDestination());
+        debugButton.setOnClickListener(v -> startActivity(new Intent(this, DebugActivity.class)));
         clearAlarmsButton.setOnClickListener(v -> {
-            if (connected) {
-                bleClient.sendCommand(CMD_CLEAR_ALARMS);
+            if (connected && bleClient != null) {
+                bleClient.sendCommand(CoolerCodec.CMD_CLEAR_ALARMS);
             } else {
                 Toast.makeText(this, "Connect first", Toast.LENGTH_SHORT).show();
             }
@@ -118,15 +173,104 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
             pushForceCommand();
         });
 
+        showSnapshot();
         ensurePermissions();
     }
 
+    /**
+     * Renders the last known values from the snapshot file, so the screen is not blank while the
+     * service starts and the link comes up. The file is read off the main thread; the telemetry is
+     * dimmed and dated until a live sample arrives.
+     */
+    private void showSnapshot() {
+        Context appContext = getApplicationContext();
+        SNAPSHOT_LOADER.execute(() -> {
+            DeviceSnapshot snapshot = SnapshotStore.forClient(appContext, null).load();
+            if (snapshot != null) {
+                runOnUiThread(() -> applySnapshot(snapshot));
+            }
+        });
+    }
+
+    private void applySnapshot(@NonNull DeviceSnapshot snapshot) {
+        if (isDestroyed() || liveDataSeen) {
+            return;
+        }
+        if (snapshot.getDeviceInfo() != null) {
+            onDeviceInfo(snapshot.getDeviceInfo());
+        }
+        if (snapshot.getParams() != null) {
+            onParametersChanged(snapshot.getParams(), ParamField.ALL_MASK);
+        }
+        Telemetry telemetry = snapshot.getTelemetry();
+        if (telemetry != null) {
+            renderTelemetry(telemetry);
+            setTelemetryAlpha(STALE_ALPHA);
+            showingStale = true;
+            staleSeenAt = new SimpleDateFormat("d MMM HH:mm", Locale.getDefault())
+                    .format(new Date(snapshot.getTelemetryTimeMs()));
+            if (!connectionActive) {
+                // Otherwise the status already shows the live connection state.
+                statusText.setText("Status: Last seen " + staleSeenAt);
+            }
+        }
+    }
+
+    private void setTelemetryAlpha(float alpha) {
+        insideTempText.setAlpha(alpha);
+        hotTempText.setAlpha(alpha);
+        outputStateText.setAlpha(alpha);
+        alarmText.setAlpha(alpha);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, CoolerService.class), serviceConnection, Context.BIND_AUTO_CREATE);
+    }
+
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        bleClient.disconnect();
+    protected void onStop() {
+        super.onStop();
+        detachService();
+        unbindService(serviceConnection);
     }
 
+    private void detachService() {
+        if (service != null) {
+            service.setListener(null);
+            service.removeVisibleUi();
+        }
+        if (predictiveAlarms != null) {
+            predictiveAlarms.removeObservers(this);
+            predictiveAlarms = null;
+        }
+        service = null;
+        bleClient = null;
+        connected = false;
+    }
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((CoolerService.LocalBinder) binder).getService();
+            bleClient = service.getClient();
+            service.addVisibleUi();
+            service.setListener(MainActivity.this);
+            predictiveAlarms = new StreamLiveData<>(bleClient.getAlarmStream());
+            predictiveAlarms.observe(MainActivity.this, MainActivity.this::showPredictiveAlarms);
+            if (pendingExportUri != null) {
+                exportHistory(pendingExportUri);
+                pendingExportUri = null;
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            detachService();
+        }
+    };
+
     private boolean ensurePermissions() {
         List<String> missing = new ArrayList<>();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
@@ -137,11 +281,15 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
             addIfMissing(missing, Manifest.permission.BLUETOOTH_ADMIN);
             addIfMissing(missing, Manifest.permission.ACCESS_FINE_LOCATION);
         }
-        if (missing.isEmpty()) {
-            return true;
+        boolean bluetoothGranted = missing.isEmpty();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            // Monitoring status and alarms while the app is in the background; optional.
+            addIfMissing(missing, Manifest.permission.POST_NOTIFICATIONS);
+        }
+        if (!missing.isEmpty()) {
+            ActivityCompat.requestPermissions(this, missing.toArray(new String[0]), REQ_PERMISSIONS);
         }
-        ActivityCompat.requestPermissions(this, missing.toArray(new String[0]), REQ_PERMISSIONS);
-        return false;
+        return bluetoothGranted;
     }
 
     private void addIfMissing(List<String> missing, String permission) {
@@ -154,8 +302,9 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == REQ_PERMISSIONS) {
-            for (int result : grantResults) {
-                if (result != PackageManager.PERMISSION_GRANTED) {
+            for (int i = 0; i < grantResults.length; i++) {
+                if (grantResults[i] != PackageManager.PERMISSION_GRANTED
+                        && !Manifest.permission.POST_NOTIFICATIONS.equals(permissions[i])) {
                     Toast.makeText(this, "Bluetooth permissions are required", Toast.LENGTH_LONG).show();
                     return;
                 }
@@ -164,6 +313,18 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
         }
     }
 
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQ_EXPORT && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            if (bleClient != null) {
+                exportHistory(data.getData());
+            } else {
+                pendingExportUri = data.getData();
+            }
+        }
+    }
+
     // -----------------------------------------------------------------------------------------
     // BleClient.Listener
     // -----------------------------------------------------------------------------------------
@@ -171,44 +332,129 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
     @Override
     public void onConnectionStateChanged(boolean connected) {
         this.connected = connected;
-        if (connected) {
-            statusText.setText("Status: Connected");
-            connectButton.setText("Disconnect");
-        } else {
-            statusText.setText("Status: Disconnected");
-            connectButton.setText("Connect");
+    }
+
+    @Override
+    public void onConnectionStateChanged(@NonNull ConnectionState state) {
+        connectionActive = state != ConnectionState.IDLE;
+        connectButton.setText(connectionActive ? "Disconnect" : "Connect");
+        switch (state) {
+            case SCANNING:
+                statusText.setText("Status: Scanning...");
+                break;
+            case CONNECTING:
+                statusText.setText("Status: Connecting...");
+                break;
+            case DISCOVERING:
+            case SYNCING:
+                statusText.setText("Status: Syncing...");
+                break;
+            case READY:
+                statusText.setText("Status: Connected");
+                break;
+            case BACKOFF:
+                statusText.setText("Status: Reconnecting...");
+                break;
+            default:
+                statusText.setText(showingStale
+                        ? "Status: Disconnected, last seen " + staleSeenAt : "Status: Disconnected");
+                break;
         }
     }
 
     @Override
     public void onTelemetryUpdated(@NonNull Telemetry telemetry) {
-        insideTempText.setText(String.format(Locale.US, "Inside temp: %.1f °C", telemetry.getInsideCelsius()));
-        hotTempText.setText(String.format(Locale.US, "Hot side temp: %.1f °C", telemetry.getHotCelsius()));
-        outputStateText.setText(String.format(Locale.US,
-                "Outputs: P1 %s | P2 %s | Fan %s",
-                telemetry.isPel1Active() ? "ON" : "OFF",
-                telemetry.isPel2Active() ? "ON" : "OFF",
-                telemetry.isHotFanActive() ? "ON" : "OFF"));
-        List<String> alarms = new ArrayList<>();
-        if (telemetry.hasSensorAlarm()) {
-            alarms.add("Sensor fault");
-        }
-        if (telemetry.hasOverheatAlarm()) {
-            alarms.add("Overheat");
-        }
-        if (telemetry.hasSupplyAlarm()) {
-            alarms.add("Supply");
-        }
-        alarmText.setText(alarms.isEmpty() ? "Alarms: none" : "Alarms: " + TextUtils.join(", ", alarms));
+        liveDataSeen = true;
+        if (showingStale) {
+            showingStale = false;
+            setTelemetryAlpha(1f);
+        }
+        renderTelemetry(telemetry);
+        long now = SystemClock.elapsedRealtime();
+        if (bleClient != null && now - analyticsRenderedAtMs >= ANALYTICS_REFRESH_MS) {
+            analyticsRenderedAtMs = now;
+            showAnalytics(bleClient.getDutyCycleAnalytics());
+        }
+    }
+
+    private void renderTelemetry(@NonNull Telemetry telemetry) {
+        int insideTenths = TelemetryFormatter.toTenths(telemetry.getInsideCelsius());
+        if (insideTenths != renderedInsideTenths) {
+            renderedInsideTenths = insideTenths;
+            int length = TelemetryFormatter.formatTenths(insideTempChars, INSIDE_PREFIX, insideTenths, CELSIUS_SUFFIX);
+            insideTempText.setText(insideTempChars, 0, length);
+        }
+        int hotTenths = TelemetryFormatter.toTenths(telemetry.getHotCelsius());
+        if (hotTenths != renderedHotTenths) {
+            renderedHotTenths = hotTenths;
+            int length = TelemetryFormatter.formatTenths(hotTempChars, HOT_PREFIX, hotTenths, CELSIUS_SUFFIX);
+            hotTempText.setText(hotTempChars, 0, length);
+        }
+        int outputBits = telemetry.getStateBits() & TelemetryFormatter.OUTPUT_MASK;
+        if (outputBits != renderedOutputBits) {
+            renderedOutputBits = outputBits;
+            outputStateText.setText(TelemetryFormatter.outputsText(outputBits));
+        }
+        int alarmBits = telemetry.getStateBits() & TelemetryFormatter.ALARM_MASK;
+        if (alarmBits != renderedAlarmBits) {
+            renderedAlarmBits = alarmBits;
+            alarmText.setText(TelemetryFormatter.alarmsText(alarmBits));
+        }
+    }
+
+    private void showAnalytics(@NonNull DutyCycleAnalytics analytics) {
+        analyticsText.setText(String.format(Locale.US,
+                "Duty (1 h): P1 %.0f%% | P2 %.0f%% | Fan %.0f%%\nEnergy: %.1f Wh | Inside %.1f ± %.1f °C",
+                100 * analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1, ANALYTICS_WINDOW),
+                100 * analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL2, ANALYTICS_WINDOW),
+                100 * analytics.getDutyCycle(DutyCycleAnalytics.Output.HOT_FAN, ANALYTICS_WINDOW),
+                analytics.getTotalEnergyWh(), analytics.getInsideMeanC(), analytics.getInsideStdDevC()));
+    }
+
+    private void showPredictiveAlarms(@NonNull List<PredictiveAlarm> active) {
+        if (active.isEmpty()) {
+            predictiveAlarmText.setText("Warnings: none");
+            return;
+        }
+        StringBuilder text = new StringBuilder("Warnings:");
+        for (PredictiveAlarm alarm : active) {
+            text.append("\n• ").append(alarm.getMessage());
+        }
+        predictiveAlarmText.setText(text);
+    }
+
+    @Override
+    public void onSyncComplete(@Nullable Telemetry telemetry, @NonNull CoolerParams params,
+                               @Nullable String deviceInfo) {
+        liveDataSeen = true;
+        if (deviceInfo != null) {
+            onDeviceInfo(deviceInfo);
+        }
+        // Rewrite only inputs whose value differs from what is shown, e.g. the restored snapshot.
+        onParametersChanged(params, this.params != null ? params.diff(this.params) : ParamField.ALL_MASK);
+        if (telemetry != null) {
+            onTelemetryUpdated(telemetry);
+        }
     }
 
     @Override
-    public void onParametersUpdated(@NonNull CoolerParams params) {
-        setpointInput.setText(String.format(Locale.US, "%.1f", params.getSetpointC()));
-        hysteresisInput.setText(String.format(Locale.US, "%.1f", params.getHysteresisC()));
-        hotCutInput.setText(String.format(Locale.US, "%.1f", params.getHotCutC()));
-        hotResumeInput.setText(String.format(Locale.US, "%.1f", params.getHotResumeC()));
-        fanRunOnInput.setText(String.valueOf(params.getFanRunOnSeconds()));
+    public void onParametersChanged(@NonNull CoolerParams params, int changedFields) {
+        this.params = params;
+        if (ParamField.SETPOINT.isIn(changedFields)) {
+            setpointInput.setText(String.format(Locale.US, "%.1f", params.getSetpointC()));
+        }
+        if (ParamField.HYSTERESIS.isIn(changedFields)) {
+            hysteresisInput.setText(String.format(Locale.US, "%.1f", params.getHysteresisC()));
+        }
+        if (ParamField.HOT_CUT.isIn(changedFields)) {
+            hotCutInput.setText(String.format(Locale.US, "%.1f", params.getHotCutC()));
+        }
+        if (ParamField.HOT_RESUME.isIn(changedFields)) {
+            hotResumeInput.setText(String.format(Locale.US, "%.1f", params.getHotResumeC()));
+        }
+        if (ParamField.FAN_RUNON.isIn(changedFields)) {
+            fanRunOnInput.setText(String.valueOf(params.getFanRunOnSeconds()));
+        }
     }
 
     @Override
@@ -229,15 +475,15 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
     private void pushForceCommand() {
         int mask = 0;
         if (forcePel1) {
-            mask |= CMD_FORCE_PEL1;
+            mask |= CoolerCodec.CMD_FORCE_PEL1;
         }
         if (forcePel2) {
-            mask |= CMD_FORCE_PEL2;
+            mask |= CoolerCodec.CMD_FORCE_PEL2;
         }
         if (forceFans) {
-            mask |= CMD_FORCE_FANS;
+            mask |= CoolerCodec.CMD_FORCE_FANS;
         }
-        if (!connected) {
+        if (!connected || bleClient == null) {
             Toast.makeText(this, "Connect first", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -245,7 +491,7 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
     }
 
     private void applyParams() {
-        if (!connected) {
+        if (!connected || bleClient == null || params == null) {
             Toast.makeText(this, "Connect first", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -254,26 +500,81 @@ public class MainActivity extends AppCompatActivity implements BleClient.Listene
         Float hotCut = parseFloat(hotCutInput.getText().toString());
         Float hotResume = parseFloat(hotResumeInput.getText().toString());
         Integer fanRunOn = parseInt(fanRunOnInput.getText().toString());
+        // Empty fields keep the controller's current value.
+        CoolerParams desired = params;
         if (setpoint != null) {
-            bleClient.updateSetpoint(setpoint);
+            desired = desired.withSetpointC(setpoint);
         }
         if (hyst != null) {
-            bleClient.updateHysteresis(hyst);
+            desired = desired.withHysteresisC(hyst);
         }
         if (hotCut != null) {
-            bleClient.updateHotCut(hotCut);
+            desired = desired.withHotCutC(hotCut);
         }
         if (hotResume != null) {
-            bleClient.updateHotResume(hotResume);
+            desired = desired.withHotResumeC(hotResume);
         }
         if (fanRunOn != null) {
-            bleClient.updateFanRunOn(fanRunOn);
+            desired = desired.withFanRunOnSeconds(fanRunOn);
+        }
+        bleClient.applyParams(desired, this::onParamsApplied);
+    }
+
+    private void onParamsApplied(@NonNull ParamsApplyResult result) {
+        if (result.isSuccess()) {
+            Toast.makeText(this, result.getWrittenCount() == 0 ? "No changes" : "Parameters applied",
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+        StringBuilder message = new StringBuilder("Not applied:");
+        for (ParamField field : ParamField.values()) {
+            ParamsApplyResult.Outcome outcome = result.getOutcome(field);
+            if (outcome == ParamsApplyResult.Outcome.MISMATCH) {
+                message.append(' ').append(field.name().toLowerCase(Locale.US)).append(" (controller kept ")
+                        .append(field == ParamField.FAN_RUNON ? String.valueOf(result.getReadBack(field))
+                                : String.format(Locale.US, "%.1f", CoolerCodec.rawToCelsius(result.getReadBack(field))))
+                        .append(')');
+            } else if (outcome == ParamsApplyResult.Outcome.FAILED) {
+                message.append(' ').append(field.name().toLowerCase(Locale.US)).append(" (error ")
+                        .append(result.getStatus(field)).append(')');
+            }
         }
-        Toast.makeText(this, "Parameters sent", Toast.LENGTH_SHORT).show();
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+    }
+
+    private void chooseExportDestination() {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmm", Locale.US).format(new Date());
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                .addCategory(Intent.CATEGORY_OPENABLE)
+                .setType("application/gzip")
+                .putExtra(Intent.EXTRA_TITLE, "telemetry-" + stamp + ".csv.gz");
+        startActivityForResult(intent, REQ_EXPORT);
+    }
+
+    private void exportHistory(@NonNull Uri uri) {
+        TelemetryLog log = bleClient != null ? bleClient.getTelemetryLog() : null;
+        if (log == null) {
+            Toast.makeText(this, "No telemetry log available", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        TelemetryExporter.Options options = new TelemetryExporter.Options();
+        options.setGzip(true);
+        Context context = getApplicationContext();
+        TelemetryExportTask.exportToUri(this, log, uri, options, new TelemetryExportTask.Callback() {
+            @Override
+            public void onExportFinished(long rows) {
+                Toast.makeText(context, "Exported " + rows + " samples", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onExportFailed(@NonNull String message) {
+                Toast.makeText(context, message, Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     private void sendWifiCredentials() {
-        if (!connected) {
+        if (!connected || bleClient == null) {
             Toast.makeText(this, "Connect first", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -0,0 +1,87 @@
+package com.example.xtrailcooler;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Keeps the {@link DeviceSnapshot} of one client in a small file. {@link #save} writes a temporary
+ * file, syncs it and renames it over the old one, so a crash or power loss leaves either the old or
+ * the new snapshot and never a torn one.
+ * <p>
+ * The file is a few dozen bytes, so {@link #load()} is cheap enough for the main thread at startup;
+ * saves belong on a background thread.
+ */
+public class SnapshotStore {
+    private static final String FILE_PREFIX = "snapshot";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** Far larger than any snapshot; a bigger file is not one of ours. */
+    private static final int MAX_SIZE = 64 * 1024;
+
+    private final File file;
+    private final File tempFile;
+
+    public SnapshotStore(@NonNull File file) {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + TEMP_SUFFIX);
+    }
+
+    /**
+     * The store used by the {@link BleClient} for {@code deviceAddress}, or by the unbound client when
+     * it is {@code null}.
+     */
+    @NonNull
+    public static SnapshotStore forClient(@NonNull Context context, @Nullable String deviceAddress) {
+        String suffix = deviceAddress != null ? "-" + deviceAddress.replace(":", "") : "";
+        return new SnapshotStore(new File(context.getFilesDir(), FILE_PREFIX + suffix + FILE_SUFFIX));
+    }
+
+    /**
+     * @return the saved snapshot, or {@code null} if there is none or it cannot be read
+     */
+    @Nullable
+    public DeviceSnapshot load() {
+        long length = file.length();
+        if (length <= 0 || length > MAX_SIZE) {
+            return null;
+        }
+        byte[] data = new byte[(int) length];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            return DeviceSnapshot.decode(data, read);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void save(@NonNull DeviceSnapshot snapshot) throws IOException {
+        byte[] data = snapshot.encode();
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Cannot replace " + file.getName());
+        }
+    }
+
+    public void clear() {
+        file.delete();
+        tempFile.delete();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.xtrailcooler;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link LiveData} view of an {@link EventStream}. It subscribes with
+ * {@link EventStream.Backpressure#LATEST} on the main thread only while it has active observers, so
+ * a stopped activity costs the stream nothing and a resumed one gets the latest value.
+ */
+public class StreamLiveData<T> extends LiveData<T> {
+    private static final Executor MAIN_EXECUTOR = new Handler(Looper.getMainLooper())::post;
+
+    private final EventStream<T> stream;
+    @Nullable
+    private EventStream.Subscription subscription;
+
+    public StreamLiveData(@NonNull EventStream<T> stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    protected void onActive() {
+        subscription = stream.subscribe(MAIN_EXECUTOR, this::setValue);
+    }
+
+    @Override
+    protected void onInactive() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+}
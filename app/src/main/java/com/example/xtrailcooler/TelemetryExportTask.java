@@ -0,0 +1,73 @@
+package com.example.xtrailcooler;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs {@link TelemetryExporter} off the main thread, into a file or a {@link Uri} such as one picked
+ * through the system's create-document or share flow. Exports run one at a time.
+ */
+public final class TelemetryExportTask {
+    public interface Callback {
+        void onExportFinished(long rows);
+
+        void onExportFailed(@NonNull String message);
+    }
+
+    private static final Executor EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "TelemetryExport"));
+
+    private TelemetryExportTask() {
+    }
+
+    /**
+     * @param callback called on the main thread
+     */
+    public static void exportToUri(@NonNull Context context, @NonNull TelemetryLog log, @NonNull Uri uri,
+                                   @NonNull TelemetryExporter.Options options, @NonNull Callback callback) {
+        Context appContext = context.getApplicationContext();
+        run(() -> appContext.getContentResolver().openOutputStream(uri, "wt"), log, options, callback);
+    }
+
+    /**
+     * @param callback called on the main thread
+     */
+    public static void exportToFile(@NonNull TelemetryLog log, @NonNull File file,
+                                    @NonNull TelemetryExporter.Options options, @NonNull Callback callback) {
+        run(() -> new FileOutputStream(file), log, options, callback);
+    }
+
+    private interface StreamOpener {
+        OutputStream open() throws IOException;
+    }
+
+    private static void run(@NonNull StreamOpener opener, @NonNull TelemetryLog log,
+                            @NonNull TelemetryExporter.Options options, @NonNull Callback callback) {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        EXECUTOR.execute(() -> {
+            long rows;
+            try (OutputStream out = opener.open()) {
+                if (out == null) {
+                    throw new IOException("Cannot open export destination");
+                }
+                rows = TelemetryExporter.export(log, out, options);
+            } catch (IOException e) {
+                mainHandler.post(() -> callback.onExportFailed("Export failed: " + e.getMessage()));
+                return;
+            }
+            // Only reported once the destination is closed and complete.
+            mainHandler.post(() -> callback.onExportFinished(rows));
+        });
+    }
+}
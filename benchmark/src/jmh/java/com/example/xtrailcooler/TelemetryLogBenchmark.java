@@ -0,0 +1,61 @@
+package com.example.xtrailcooler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Cost of persisting one sample and of scanning the log back. Appends include the occasional
+ * segment rotation, so the average reflects what the worker thread actually pays.
+ */
+@State(Scope.Thread)
+public class TelemetryLogBenchmark {
+    private File directory;
+    private TelemetryLog log;
+    private long timeMs;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("telemetry-log").toFile();
+        log = TelemetryLog.open(directory);
+        for (int i = 0; i < 100_000; i++) {
+            log.append(++timeMs, i & 0x3FF, 0x200, CoolerCodec.STATE_PEL1);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        log.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void append() throws IOException {
+        timeMs++;
+        log.append(timeMs, (int) timeMs & 0x3FF, 0x200, CoolerCodec.STATE_PEL1);
+    }
+
+    /** Reads back the most recent 10 000 samples. */
+    @Benchmark
+    public long scanRecent() throws IOException {
+        TelemetryLog.Cursor cursor = log.query(timeMs - 10_000, Long.MAX_VALUE);
+        long sum = 0;
+        while (cursor.next()) {
+            sum += cursor.insideRaw();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.xtrailcooler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+
+/**
+ * Throughput and allocation of each step a telemetry notification goes through, from the raw
+ * characteristic value to the text the activity renders. Run with {@code ./gradlew :benchmark:jmh};
+ * the gc profiler adds {@code gc.alloc.rate.norm}, which should stay at 0 B/op for everything except
+ * {@link #newTelemetry} and {@link #paramChange}, which return a new snapshot and new parameters.
+ */
+@State(Scope.Thread)
+public class TelemetryPathBenchmark {
+    // The stack hands out fresh UUID instances, so dispatch must not rely on identity comparisons.
+    private final UUID insideTemp = copyOf(CharacteristicIds.INSIDE_TEMP);
+    private final UUID stateBits = copyOf(CharacteristicIds.STATE_BITS);
+    private final UUID fanRunOn = copyOf(CharacteristicIds.FAN_RUNON);
+    private final UUID setpoint = copyOf(CharacteristicIds.SETPOINT);
+
+    private final byte[] temperatureValue = new byte[CoolerCodec.TEMPERATURE_SIZE];
+    private final byte[] stateValue = new byte[CoolerCodec.UINT16_SIZE];
+    private final byte[] fanRunOnValue = new byte[CoolerCodec.UINT16_SIZE];
+    private final byte[][] setpointValues = new byte[2][CoolerCodec.TEMPERATURE_SIZE];
+
+    private final char[] insideChars = new char[TelemetryFormatter.bufferSize("Inside temp: ", " °C")];
+    private final char[] hotChars = new char[TelemetryFormatter.bufferSize("Hot side temp: ", " °C")];
+
+    private CoolerMirror mirror;
+    private Telemetry telemetry;
+    private int rawInside;
+    private int setpointIndex;
+
+    @Setup
+    public void setUp() {
+        CoolerCodec.encodeTemperature(4.3f, temperatureValue, 0);
+        CoolerCodec.encodeUint16(CoolerCodec.STATE_PEL1 | CoolerCodec.STATE_HOT_FAN, stateValue, 0);
+        CoolerCodec.encodeUint16(30, fanRunOnValue, 0);
+        CoolerCodec.encodeTemperature(4f, setpointValues[0], 0);
+        CoolerCodec.encodeTemperature(5f, setpointValues[1], 0);
+
+        mirror = new CoolerMirror();
+        mirror.apply(CharacteristicIds.INSIDE_TEMP, temperatureValue);
+        mirror.apply(CharacteristicIds.HOT_TEMP, temperatureValue);
+        mirror.apply(CharacteristicIds.STATE_BITS, stateValue);
+        telemetry = CoolerMirror.unpackTelemetry(mirror.packTelemetry());
+    }
+
+    private static UUID copyOf(UUID uuid) {
+        return new UUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /** Dispatch and decode of a temperature notification. */
+    @Benchmark
+    public int dispatchInsideTemp() {
+        return mirror.apply(insideTemp, temperatureValue);
+    }
+
+    /** Dispatch and decode of a state bits notification. */
+    @Benchmark
+    public int dispatchStateBits() {
+        return mirror.apply(stateBits, stateValue);
+    }
+
+    /** Dispatch and decode of a parameter read; should cost the same as the telemetry ones. */
+    @Benchmark
+    public int dispatchFanRunOn() {
+        return mirror.apply(fanRunOn, fanRunOnValue);
+    }
+
+    @Benchmark
+    public float decodeTemperature() {
+        return CoolerCodec.decodeTemperature(temperatureValue, 0);
+    }
+
+    @Benchmark
+    public Telemetry newTelemetry() {
+        return CoolerMirror.unpackTelemetry(mirror.packTelemetry());
+    }
+
+    /**
+     * A setpoint change and the parameters handed to the listener for it. Alternates between two
+     * values so every call really changes the setpoint and allocates its one new instance.
+     */
+    @Benchmark
+    public CoolerParams paramChange() {
+        setpointIndex ^= 1;
+        mirror.apply(setpoint, setpointValues[setpointIndex]);
+        return mirror.getParams();
+    }
+
+    /** What {@code MainActivity.onTelemetryUpdated} does when every field has changed. */
+    @Benchmark
+    public void formatTelemetry(Blackhole blackhole) {
+        rawInside = (rawInside + 1) & 0x3FF;
+        blackhole.consume(TelemetryFormatter.formatTenths(insideChars, "Inside temp: ", rawInside, " °C"));
+        blackhole.consume(TelemetryFormatter.formatTenths(hotChars, "Hot side temp: ",
+                TelemetryFormatter.toTenths(telemetry.getHotCelsius()), " °C"));
+        blackhole.consume(TelemetryFormatter.outputsText(telemetry.getStateBits() & TelemetryFormatter.OUTPUT_MASK));
+        blackhole.consume(TelemetryFormatter.alarmsText(telemetry.getStateBits() & TelemetryFormatter.ALARM_MASK));
+    }
+
+    /** One inside-temperature notification end to end: dispatch, publish, snapshot and render. */
+    @Benchmark
+    public void notificationPath(Blackhole blackhole) {
+        if ((mirror.apply(insideTemp, temperatureValue) & CoolerMirror.CHANGED_TELEMETRY) == 0) {
+            return;
+        }
+        Telemetry snapshot = CoolerMirror.unpackTelemetry(mirror.packTelemetry());
+        blackhole.consume(TelemetryFormatter.formatTenths(insideChars, "Inside temp: ",
+                TelemetryFormatter.toTenths(snapshot.getInsideCelsius()), " °C"));
+        blackhole.consume(TelemetryFormatter.formatTenths(hotChars, "Hot side temp: ",
+                TelemetryFormatter.toTenths(snapshot.getHotCelsius()), " °C"));
+        blackhole.consume(TelemetryFormatter.outputsText(snapshot.getStateBits() & TelemetryFormatter.OUTPUT_MASK));
+        blackhole.consume(TelemetryFormatter.alarmsText(snapshot.getStateBits() & TelemetryFormatter.ALARM_MASK));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates warning rules against the telemetry stream. Each rule keeps its own running state and
+ * looks at one sample at a time, so a sample costs O(1) per rule however long the engine has been
+ * running, and nothing is allocated unless the set of raised alarms changes.
+ * <p>
+ * Not thread safe; the app confines it to the BLE worker thread.
+ */
+public class AlarmEngine {
+    /**
+     * A condition evaluated incrementally, one sample at a time.
+     */
+    public interface Rule {
+        /**
+         * Stable identifier, e.g. for notification ids.
+         */
+        @NonNull
+        String getId();
+
+        /**
+         * Folds one sample into the rule's state.
+         *
+         * @param timeMs monotonic time of the sample
+         * @param params the controller's parameters, or {@code null} while unknown
+         * @return whether the condition currently holds
+         */
+        boolean update(long timeMs, int insideRaw, int hotRaw, int stateBits, @Nullable CoolerParams params);
+
+        /**
+         * Describes the condition for the user; called right after {@link #update} returned
+         * {@code true} for the first time.
+         */
+        @NonNull
+        String describe();
+
+        /**
+         * Forgets the running state, e.g. after a gap in the telemetry.
+         */
+        void reset();
+    }
+
+    public interface Listener {
+        /**
+         * @param active every alarm currently raised, oldest first; unmodifiable
+         */
+        void onAlarmsChanged(@NonNull List<PredictiveAlarm> active);
+    }
+
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    private final Listener listener;
+    private Rule[] rules = NO_RULES;
+    private PredictiveAlarm[] raised = new PredictiveAlarm[0];
+    @Nullable
+    private CoolerParams params;
+
+    public AlarmEngine(@NonNull Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a rule with the same id is already registered
+     */
+    public void addRule(@NonNull Rule rule) {
+        for (Rule existing : rules) {
+            if (existing.getId().equals(rule.getId())) {
+                throw new IllegalArgumentException("Rule already registered: " + rule.getId());
+            }
+        }
+        rules = Arrays.copyOf(rules, rules.length + 1);
+        rules[rules.length - 1] = rule;
+        raised = Arrays.copyOf(raised, rules.length);
+    }
+
+    public void setParams(@Nullable CoolerParams params) {
+        this.params = params;
+    }
+
+    public void onSample(long timeMs, int insideRaw, int hotRaw, int stateBits) {
+        boolean changed = false;
+        for (int i = 0; i < rules.length; i++) {
+            boolean holds = rules[i].update(timeMs, insideRaw, hotRaw, stateBits, params);
+            if (holds && raised[i] == null) {
+                raised[i] = new PredictiveAlarm(rules[i].getId(), rules[i].describe(), timeMs);
+                changed = true;
+            } else if (!holds && raised[i] != null) {
+                raised[i] = null;
+                changed = true;
+            }
+        }
+        if (changed) {
+            listener.onAlarmsChanged(snapshot());
+        }
+    }
+
+    /**
+     * Resets every rule and clears all raised alarms, e.g. when the link drops and the telemetry
+     * stops making sense as one series.
+     */
+    public void reset() {
+        boolean hadRaised = false;
+        for (int i = 0; i < rules.length; i++) {
+            rules[i].reset();
+            hadRaised |= raised[i] != null;
+            raised[i] = null;
+        }
+        if (hadRaised) {
+            listener.onAlarmsChanged(Collections.emptyList());
+        }
+    }
+
+    @NonNull
+    private List<PredictiveAlarm> snapshot() {
+        List<PredictiveAlarm> active = new ArrayList<>();
+        for (PredictiveAlarm alarm : raised) {
+            if (alarm != null) {
+                active.add(alarm);
+            }
+        }
+        active.sort((a, b) -> Long.compare(a.getRaisedAtMs(), b.getRaisedAtMs()));
+        return Collections.unmodifiableList(active);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * The built-in {@link AlarmEngine} rules. Each keeps a handful of running values and never looks back
+ * at older samples.
+ */
+public final class AlarmRules {
+    private AlarmRules() {
+    }
+
+    public enum Sensor {
+        INSIDE,
+        HOT
+    }
+
+    /**
+     * Warns when the hot side, at its current rate of rise, would reach the controller's hot cut-out
+     * within a horizon, i.e. before the firmware has to cut the Peltiers. Level and rate are tracked
+     * with time-aware double exponential smoothing (Holt's method), which irons out the 0.1 °C sensor
+     * steps and copes with irregular sample spacing. The warning clears once the projection moves
+     * comfortably beyond the horizon or the hot side starts cooling.
+     */
+    public static class HotRiseRule implements AlarmEngine.Rule {
+        private static final float CLEAR_FACTOR = 1.5f;
+
+        private final long horizonMs;
+        private final long levelTauMs;
+        private final long rateTauMs;
+
+        private boolean primed;
+        private long lastTimeMs;
+        // °C and °C per ms.
+        private double level;
+        private double rate;
+        private boolean holding;
+        private double etaMs;
+        private float hotCutC;
+
+        /**
+         * @param horizonMs  how far ahead to warn
+         * @param levelTauMs smoothing time constant of the temperature
+         * @param rateTauMs  smoothing time constant of the rate of rise; longer ignores brief surges
+         */
+        public HotRiseRule(long horizonMs, long levelTauMs, long rateTauMs) {
+            this.horizonMs = horizonMs;
+            this.levelTauMs = Math.max(1L, levelTauMs);
+            this.rateTauMs = Math.max(1L, rateTauMs);
+        }
+
+        @NonNull
+        @Override
+        public String getId() {
+            return "hot_rise";
+        }
+
+        @Override
+        public boolean update(long timeMs, int insideRaw, int hotRaw, int stateBits, @Nullable CoolerParams params) {
+            double hot = CoolerCodec.rawToCelsius(hotRaw);
+            if (!primed) {
+                primed = true;
+                lastTimeMs = timeMs;
+                level = hot;
+                rate = 0;
+                return false;
+            }
+            long dt = timeMs - lastTimeMs;
+            if (dt <= 0) {
+                return holding;
+            }
+            lastTimeMs = timeMs;
+            double a = 1 - Math.exp(-(double) dt / levelTauMs);
+            double b = 1 - Math.exp(-(double) dt / rateTauMs);
+            double previous = level;
+            level = a * hot + (1 - a) * (level + rate * dt);
+            rate = b * (level - previous) / dt + (1 - b) * rate;
+
+            if (params == null || (stateBits & CoolerCodec.STATE_OVERHEAT_ALARM) != 0) {
+                // Unknown limit, or the firmware has already cut: nothing left to predict.
+                holding = false;
+                return false;
+            }
+            hotCutC = params.getHotCutC();
+            double remaining = hotCutC - level;
+            etaMs = rate > 0 ? remaining / rate : Double.POSITIVE_INFINITY;
+            double limit = holding ? horizonMs * CLEAR_FACTOR : horizonMs;
+            holding = remaining > 0 && etaMs <= limit;
+            return holding;
+        }
+
+        @NonNull
+        @Override
+        public String describe() {
+            long minutes = Math.max(1L, Math.round(etaMs / 60_000d));
+            return String.format(Locale.US, "Hot side rising %.1f °C/min, cut-out at %.1f °C in about %d min",
+                    rate * 60_000d, hotCutC, minutes);
+        }
+
+        @Override
+        public void reset() {
+            primed = false;
+            holding = false;
+        }
+    }
+
+    /**
+     * Warns when the inside temperature has stayed outside setpoint ± hysteresis for longer than a
+     * limit, e.g. a lid left open or a cooler that cannot keep up.
+     */
+    public static class OutOfBandRule implements AlarmEngine.Rule {
+        private final long limitMs;
+
+        private boolean outside;
+        private long outsideSinceMs;
+        private boolean above;
+        private float insideC;
+
+        public OutOfBandRule(long limitMs) {
+            this.limitMs = limitMs;
+        }
+
+        @NonNull
+        @Override
+        public String getId() {
+            return "out_of_band";
+        }
+
+        @Override
+        public boolean update(long timeMs, int insideRaw, int hotRaw, int stateBits, @Nullable CoolerParams params) {
+            if (params == null) {
+                outside = false;
+                return false;
+            }
+            int setpoint = CoolerCodec.celsiusToRaw(params.getSetpointC());
+            int band = CoolerCodec.celsiusToRaw(params.getHysteresisC());
+            boolean nowOutside = insideRaw > setpoint + band || insideRaw < setpoint - band;
+            if (!nowOutside) {
+                outside = false;
+                return false;
+            }
+            if (!outside) {
+                outside = true;
+                outsideSinceMs = timeMs;
+            }
+            above = insideRaw > setpoint;
+            insideC = CoolerCodec.rawToCelsius(insideRaw);
+            return timeMs - outsideSinceMs >= limitMs;
+        }
+
+        @NonNull
+        @Override
+        public String describe() {
+            return String.format(Locale.US, "Inside %.1f °C has been %s the set range for over %d min",
+                    insideC, above ? "above" : "below", limitMs / 60_000L);
+        }
+
+        @Override
+        public void reset() {
+            outside = false;
+        }
+    }
+
+    /**
+     * Warns when a sensor has reported exactly the same reading for longer than a limit while the
+     * Peltiers are driven. A working sensor in a working cooler never sits on one 0.1 °C step that long,
+     * whereas a sensor that fell off the bus often keeps its last value.
+     */
+    public static class StuckSensorRule implements AlarmEngine.Rule {
+        private static final int ACTIVE_OUTPUTS = CoolerCodec.STATE_PEL1 | CoolerCodec.STATE_PEL2;
+
+        private final Sensor sensor;
+        private final long limitMs;
+
+        private boolean primed;
+        private int lastRaw;
+        private long sameSinceMs;
+
+        public StuckSensorRule(@NonNull Sensor sensor, long limitMs) {
+            this.sensor = sensor;
+            this.limitMs = limitMs;
+        }
+
+        @NonNull
+        @Override
+        public String getId() {
+            return sensor == Sensor.INSIDE ? "stuck_inside" : "stuck_hot";
+        }
+
+        @Override
+        public boolean update(long timeMs, int insideRaw, int hotRaw, int stateBits, @Nullable CoolerParams params) {
+            int raw = sensor == Sensor.INSIDE ? insideRaw : hotRaw;
+            if (!primed || raw != lastRaw || (stateBits & ACTIVE_OUTPUTS) == 0) {
+                // Restart the clock on any change, and while idle, when a flat reading is expected.
+                primed = true;
+                lastRaw = raw;
+                sameSinceMs = timeMs;
+                return false;
+            }
+            return timeMs - sameSinceMs >= limitMs;
+        }
+
+        @NonNull
+        @Override
+        public String describe() {
+            return String.format(Locale.US, "%s sensor stuck at %.1f °C for over %d min",
+                    sensor == Sensor.INSIDE ? "Inside" : "Hot-side", CoolerCodec.rawToCelsius(lastRaw),
+                    limitMs / 60_000L);
+        }
+
+        @Override
+        public void reset() {
+            primed = false;
+        }
+    }
+}
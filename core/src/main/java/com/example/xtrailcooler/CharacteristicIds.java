@@ -3,7 +3,9 @@ package com.example.xtrailcooler;
 import java.util.UUID;
 
 /**
- * BLE UUIDs exposed by the XTrailCooler firmware.
+ * BLE UUIDs exposed by the XTrailCooler firmware. All of them share the Bluetooth base UUID layout
+ * {@code b4f0xxxx-0000-1000-8000-00805f9b34fb}, so the 16-bit {@code xxxx} part identifies a
+ * characteristic on its own; see {@link #shortId(UUID)}.
  */
 public final class CharacteristicIds {
     public static final UUID SERVICE_COOLER = UUID.fromString("b4f00001-0000-1000-8000-00805f9b34fb");
@@ -21,6 +23,22 @@ public final class CharacteristicIds {
 
     public static final UUID CLIENT_CONFIG_DESCRIPTOR = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
 
+    private static final long COOLER_MSB_MASK = 0xFFFF0000_FFFFFFFFL;
+    private static final long COOLER_MSB_PREFIX = 0xB4F00000_00001000L;
+    private static final long BASE_LSB = 0x80000080_5F9B34FBL;
+
     private CharacteristicIds() {
     }
+
+    /**
+     * The 16-bit short id of a cooler UUID, e.g. {@code 0x1001} for {@link #INSIDE_TEMP}, or
+     * {@code -1} when {@code uuid} is not in the {@code b4f0xxxx} family.
+     */
+    public static int shortId(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        if ((msb & COOLER_MSB_MASK) != COOLER_MSB_PREFIX || uuid.getLeastSignificantBits() != BASE_LSB) {
+            return -1;
+        }
+        return (int) (msb >>> 32) & 0xFFFF;
+    }
 }
@@ -0,0 +1,63 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Constant-time map from cooler characteristic UUIDs to handlers.
+ * <p>
+ * Short ids follow the firmware's {@code 0xGNNN} layout: a group nibble (1 telemetry, 2 parameters,
+ * 3 control, 4 provisioning) and an index within the group. The table is indexed by group and the low
+ * nibble of the index, so a lookup is one {@link CharacteristicIds#shortId} call and one array load.
+ * Registering an id outside that layout, or one that collides with an existing entry, fails.
+ * <p>
+ * Not thread safe while registering; lookups may run concurrently once registration is done.
+ */
+public final class CharacteristicTable<T> {
+    private static final int SLOTS = 16 * 16;
+
+    private final Object[] handlers = new Object[SLOTS];
+    private final int[] shortIds = new int[SLOTS];
+
+    public CharacteristicTable() {
+        Arrays.fill(shortIds, -1);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code uuid} is not a cooler characteristic or its slot is
+     *                                  already taken
+     */
+    public void register(@NonNull UUID uuid, @NonNull T handler) {
+        int id = CharacteristicIds.shortId(uuid);
+        if (id < 0 || (id & 0x0FF0) != 0) {
+            throw new IllegalArgumentException("Not a dispatchable cooler characteristic: " + uuid);
+        }
+        int slot = slot(id);
+        if (handlers[slot] != null) {
+            throw new IllegalArgumentException("Characteristic already registered: " + uuid);
+        }
+        handlers[slot] = handler;
+        shortIds[slot] = id;
+    }
+
+    /**
+     * The handler registered for {@code uuid}, or {@code null}.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T get(@NonNull UUID uuid) {
+        int id = CharacteristicIds.shortId(uuid);
+        if (id < 0) {
+            return null;
+        }
+        int slot = slot(id);
+        return shortIds[slot] == id ? (T) handlers[slot] : null;
+    }
+
+    private static int slot(int shortId) {
+        return ((shortId >>> 12) & 0xF) << 4 | (shortId & 0xF);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Counters describing how reliably and how quickly the link to a controller is brought up. A reconnect
+ * is measured from the moment the link dropped until the client is {@link ConnectionState#READY}
+ * again; each {@link ConnectionState} is timed from entering it until leaving it, and a parameter push
+ * from the first queued write until the last one completed.
+ * <p>
+ * All methods are safe to call from any thread.
+ */
+public class ConnectionMetrics {
+    private long connects;
+    private long linkLosses;
+    private long reconnectAttempts;
+    private long reconnects;
+    private long lastReconnectMs = -1L;
+    private long maxReconnectMs;
+    private long totalReconnectMs;
+    private int lastAttemptsPerReconnect;
+
+    private final long[] lastPhaseMs = new long[ConnectionState.values().length];
+    private final long[] totalPhaseMs = new long[ConnectionState.values().length];
+    private final long[] phaseCounts = new long[ConnectionState.values().length];
+
+    private long pushes;
+    private long lastPushMs = -1L;
+    private long totalPushMs;
+    private int mtu;
+
+    public synchronized void recordConnected() {
+        connects++;
+    }
+
+    public synchronized void recordLinkLost() {
+        linkLosses++;
+    }
+
+    public synchronized void recordReconnectAttempt() {
+        reconnectAttempts++;
+    }
+
+    public synchronized void recordReconnected(long durationMs, int attempts) {
+        reconnects++;
+        lastReconnectMs = durationMs;
+        maxReconnectMs = Math.max(maxReconnectMs, durationMs);
+        totalReconnectMs += durationMs;
+        lastAttemptsPerReconnect = attempts;
+    }
+
+    public synchronized void recordPhase(ConnectionState phase, long durationMs) {
+        int i = phase.ordinal();
+        lastPhaseMs[i] = durationMs;
+        totalPhaseMs[i] += durationMs;
+        phaseCounts[i]++;
+    }
+
+    public synchronized void recordParameterPush(long durationMs) {
+        pushes++;
+        lastPushMs = durationMs;
+        totalPushMs += durationMs;
+    }
+
+    public synchronized void recordMtu(int mtu) {
+        this.mtu = mtu;
+    }
+
+    /** Times the client reached {@link ConnectionState#READY}, first connections included. */
+    public synchronized long getConnects() {
+        return connects;
+    }
+
+    public synchronized long getLinkLosses() {
+        return linkLosses;
+    }
+
+    public synchronized long getReconnectAttempts() {
+        return reconnectAttempts;
+    }
+
+    public synchronized long getReconnects() {
+        return reconnects;
+    }
+
+    /** Duration of the most recent reconnect, or {@code -1} if there was none. */
+    public synchronized long getLastReconnectMs() {
+        return lastReconnectMs;
+    }
+
+    public synchronized long getMaxReconnectMs() {
+        return maxReconnectMs;
+    }
+
+    public synchronized long getMeanReconnectMs() {
+        return reconnects == 0 ? 0 : totalReconnectMs / reconnects;
+    }
+
+    /** Attempts the most recent reconnect took. */
+    public synchronized int getLastAttemptsPerReconnect() {
+        return lastAttemptsPerReconnect;
+    }
+
+    /** How long the client last spent in {@code phase}, or {@code -1} if it never left it. */
+    public synchronized long getLastPhaseMs(ConnectionState phase) {
+        return phaseCounts[phase.ordinal()] == 0 ? -1L : lastPhaseMs[phase.ordinal()];
+    }
+
+    public synchronized long getMeanPhaseMs(ConnectionState phase) {
+        long count = phaseCounts[phase.ordinal()];
+        return count == 0 ? 0 : totalPhaseMs[phase.ordinal()] / count;
+    }
+
+    public synchronized long getPhaseCount(ConnectionState phase) {
+        return phaseCounts[phase.ordinal()];
+    }
+
+    public synchronized long getParameterPushes() {
+        return pushes;
+    }
+
+    /** Duration of the most recent parameter push, or {@code -1} if there was none. */
+    public synchronized long getLastParameterPushMs() {
+        return lastPushMs;
+    }
+
+    public synchronized long getMeanParameterPushMs() {
+        return pushes == 0 ? 0 : totalPushMs / pushes;
+    }
+
+    /** MTU agreed on the current or last connection, or {@code 0} before any negotiation. */
+    public synchronized int getMtu() {
+        return mtu;
+    }
+
+    /**
+     * Writes a plain-text report in the same {@code key value...} form as
+     * {@link GattMetrics#writeReport}.
+     */
+    public synchronized void writeReport(@NonNull Appendable out) throws IOException {
+        out.append(String.format(Locale.US, "connects %d%n", connects));
+        out.append(String.format(Locale.US, "link_losses %d%n", linkLosses));
+        out.append(String.format(Locale.US, "reconnect_attempts %d%n", reconnectAttempts));
+        out.append(String.format(Locale.US, "reconnects %d%n", reconnects));
+        out.append(String.format(Locale.US, "reconnect_ms.last %d%n", lastReconnectMs));
+        out.append(String.format(Locale.US, "reconnect_ms.mean %d%n", getMeanReconnectMs()));
+        out.append(String.format(Locale.US, "reconnect_ms.max %d%n", maxReconnectMs));
+        out.append("# phase count mean_ms last_ms\n");
+        for (ConnectionState phase : ConnectionState.values()) {
+            out.append(String.format(Locale.US, "phase.%s %d %d %d%n", phase.name().toLowerCase(Locale.US),
+                    getPhaseCount(phase), getMeanPhaseMs(phase), getLastPhaseMs(phase)));
+        }
+        out.append(String.format(Locale.US, "parameter_pushes %d%n", pushes));
+        out.append(String.format(Locale.US, "parameter_push_ms.mean %d%n", getMeanParameterPushMs()));
+        out.append(String.format(Locale.US, "mtu %d%n", mtu));
+    }
+}
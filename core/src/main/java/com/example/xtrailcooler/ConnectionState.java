@@ -0,0 +1,28 @@
+package com.example.xtrailcooler;
+
+/**
+ * Lifecycle of the link to a controller.
+ */
+public enum ConnectionState {
+    /** Not connected and not trying to be. */
+    IDLE,
+    /** Looking for a controller to connect to. */
+    SCANNING,
+    /** Waiting for the link to come up. */
+    CONNECTING,
+    /** Link is up; resolving the cooler service. */
+    DISCOVERING,
+    /** Enabling notifications and reading the initial values. */
+    SYNCING,
+    /** Fully synchronised; telemetry is flowing. */
+    READY,
+    /** The link dropped; waiting before the next reconnect attempt. */
+    BACKOFF;
+
+    /**
+     * Whether a link to the controller is currently established.
+     */
+    public boolean isLinkUp() {
+        return this == DISCOVERING || this == SYNCING || this == READY;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.xtrailcooler;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the XTrailCooler characteristics.
+ * <ul>
+ *     <li>Temperatures: SINT16, little-endian, tenths of a degree Celsius.</li>
+ *     <li>State bits and fan run-on: UINT16, little-endian.</li>
+ *     <li>Command: one byte of {@code CMD_*} bits.</li>
+ *     <li>Wi-Fi credentials: SSID length, SSID bytes, password length, password bytes.</li>
+ * </ul>
+ * Every method works directly on a caller-supplied array or buffer at an explicit offset and never
+ * allocates. {@link ByteBuffer} variants use absolute indices and ignore the buffer's byte order and
+ * position.
+ */
+public final class CoolerCodec {
+    public static final int TEMPERATURE_SIZE = 2;
+    public static final int UINT16_SIZE = 2;
+    public static final int COMMAND_SIZE = 1;
+
+    public static final int STATE_PEL1 = 1;
+    public static final int STATE_PEL2 = 1 << 1;
+    public static final int STATE_HOT_FAN = 1 << 2;
+    public static final int STATE_SENSOR_ALARM = 1 << 8;
+    public static final int STATE_OVERHEAT_ALARM = 1 << 9;
+    public static final int STATE_SUPPLY_ALARM = 1 << 10;
+
+    public static final int CMD_FORCE_PEL1 = 1;
+    public static final int CMD_FORCE_PEL2 = 1 << 1;
+    public static final int CMD_FORCE_FANS = 1 << 2;
+    public static final int CMD_CLEAR_ALARMS = 1 << 7;
+
+    public static final int MAX_SSID_BYTES = 32;
+    public static final int MAX_PASSWORD_BYTES = 63;
+
+    private CoolerCodec() {
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Decoding
+    // ---------------------------------------------------------------------------------------------
+
+    public static int decodeSint16(byte[] src, int offset) {
+        return (short) ((src[offset] & 0xFF) | (src[offset + 1] << 8));
+    }
+
+    public static int decodeUint16(byte[] src, int offset) {
+        return (src[offset] & 0xFF) | ((src[offset + 1] & 0xFF) << 8);
+    }
+
+    public static int decodeSint16(ByteBuffer src, int index) {
+        return (short) ((src.get(index) & 0xFF) | (src.get(index + 1) << 8));
+    }
+
+    public static int decodeUint16(ByteBuffer src, int index) {
+        return (src.get(index) & 0xFF) | ((src.get(index + 1) & 0xFF) << 8);
+    }
+
+    public static float decodeTemperature(byte[] src, int offset) {
+        return rawToCelsius(decodeSint16(src, offset));
+    }
+
+    public static float decodeTemperature(ByteBuffer src, int index) {
+        return rawToCelsius(decodeSint16(src, index));
+    }
+
+    public static float rawToCelsius(int raw) {
+        return raw / 10f;
+    }
+
+    public static int celsiusToRaw(float celsius) {
+        return Math.round(celsius * 10f);
+    }
+
+    /**
+     * Decodes {@code count} temperatures spaced {@code stride} bytes apart, e.g. the same field of
+     * consecutive fixed-size frames.
+     */
+    public static void decodeTemperatures(byte[] src, int offset, int stride, int count, float[] dst, int dstOffset) {
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = rawToCelsius(decodeSint16(src, offset + i * stride));
+        }
+    }
+
+    /**
+     * Decodes {@code count} UINT16 values spaced {@code stride} bytes apart.
+     */
+    public static void decodeUint16s(byte[] src, int offset, int stride, int count, int[] dst, int dstOffset) {
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = decodeUint16(src, offset + i * stride);
+        }
+    }
+
+    public static void decodeTemperatures(ByteBuffer src, int index, int stride, int count, float[] dst, int dstOffset) {
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = rawToCelsius(decodeSint16(src, index + i * stride));
+        }
+    }
+
+    public static void decodeUint16s(ByteBuffer src, int index, int stride, int count, int[] dst, int dstOffset) {
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = decodeUint16(src, index + i * stride);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Encoding; each method returns the number of bytes written.
+    // ---------------------------------------------------------------------------------------------
+
+    public static int encodeUint16(int value, byte[] dst, int offset) {
+        dst[offset] = (byte) value;
+        dst[offset + 1] = (byte) (value >> 8);
+        return UINT16_SIZE;
+    }
+
+    public static int encodeUint16(int value, ByteBuffer dst, int index) {
+        dst.put(index, (byte) value);
+        dst.put(index + 1, (byte) (value >> 8));
+        return UINT16_SIZE;
+    }
+
+    public static int encodeTemperature(float celsius, byte[] dst, int offset) {
+        return encodeUint16(celsiusToRaw(celsius), dst, offset);
+    }
+
+    public static int encodeTemperature(float celsius, ByteBuffer dst, int index) {
+        return encodeUint16(celsiusToRaw(celsius), dst, index);
+    }
+
+    public static int encodeCommand(int commandBits, byte[] dst, int offset) {
+        dst[offset] = (byte) commandBits;
+        return COMMAND_SIZE;
+    }
+
+    /**
+     * Size of the WIFI_CREDS payload, or {@code -1} when either field is too long for the firmware.
+     */
+    public static int wifiCredentialsSize(int ssidLength, int passwordLength) {
+        if (ssidLength > MAX_SSID_BYTES || passwordLength > MAX_PASSWORD_BYTES) {
+            return -1;
+        }
+        return 2 + ssidLength + passwordLength;
+    }
+
+    public static int encodeWifiCredentials(byte[] ssid, byte[] password, byte[] dst, int offset) {
+        int size = wifiCredentialsSize(ssid.length, password.length);
+        if (size < 0) {
+            throw new IllegalArgumentException("Credentials too long");
+        }
+        dst[offset] = (byte) ssid.length;
+        System.arraycopy(ssid, 0, dst, offset + 1, ssid.length);
+        dst[offset + 1 + ssid.length] = (byte) password.length;
+        System.arraycopy(password, 0, dst, offset + 2 + ssid.length, password.length);
+        return size;
+    }
+
+    /**
+     * Checks that a WIFI_CREDS payload is well formed.
+     */
+    public static boolean isValidWifiCredentials(byte[] src, int offset, int length) {
+        if (length < 2) {
+            return false;
+        }
+        int ssidLength = src[offset] & 0xFF;
+        if (ssidLength > MAX_SSID_BYTES || 2 + ssidLength > length) {
+            return false;
+        }
+        int passwordLength = src[offset + 1 + ssidLength] & 0xFF;
+        return passwordLength <= MAX_PASSWORD_BYTES && 2 + ssidLength + passwordLength == length;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Client-side mirror of the controller's characteristic values. Reads and notifications are fed to
+ * {@link #apply}, which decodes the payload, updates the mirror and reports what changed.
+ * <p>
+ * Not thread safe; the app confines it to the BLE worker thread.
+ */
+public class CoolerMirror {
+    public static final int CHANGED_NONE = 0;
+    public static final int CHANGED_TELEMETRY = 1;
+    public static final int CHANGED_PARAMS = 1 << 1;
+    public static final int CHANGED_DEVICE_INFO = 1 << 2;
+
+    private static final int FIELD_INSIDE = 1;
+    private static final int FIELD_HOT = 1 << 1;
+    private static final int FIELD_STATE = 1 << 2;
+    private static final int FIELDS_ALL = FIELD_INSIDE | FIELD_HOT | FIELD_STATE;
+
+    // Raw SINT16 tenths of a degree as sent by the controller.
+    private int insideRaw;
+    private int hotRaw;
+    private int stateBits;
+    private int receivedFields;
+
+    private CoolerParams params = new CoolerParams(0f, 0f, 0f, 0f, 0);
+    // ParamField masks of the fields changed since takeChangedParamFields().
+    private int changedParamFields;
+    @Nullable
+    private String deviceInfo;
+
+    /**
+     * Decodes one characteristic's payload into the mirror.
+     */
+    private interface Decoder {
+        /**
+         * @return the {@code CHANGED_*} flags for this update
+         */
+        int decode(@NonNull CoolerMirror mirror, @NonNull byte[] value);
+    }
+
+    private static final CharacteristicTable<Decoder> DECODERS = new CharacteristicTable<>();
+
+    static {
+        DECODERS.register(CharacteristicIds.INSIDE_TEMP, (m, value) -> {
+            if (value.length < CoolerCodec.TEMPERATURE_SIZE) {
+                return CHANGED_NONE;
+            }
+            m.insideRaw = CoolerCodec.decodeSint16(value, 0);
+            return m.telemetryChanged(FIELD_INSIDE);
+        });
+        DECODERS.register(CharacteristicIds.HOT_TEMP, (m, value) -> {
+            if (value.length < CoolerCodec.TEMPERATURE_SIZE) {
+                return CHANGED_NONE;
+            }
+            m.hotRaw = CoolerCodec.decodeSint16(value, 0);
+            return m.telemetryChanged(FIELD_HOT);
+        });
+        DECODERS.register(CharacteristicIds.STATE_BITS, (m, value) -> {
+            if (value.length < CoolerCodec.UINT16_SIZE) {
+                return CHANGED_NONE;
+            }
+            m.stateBits = CoolerCodec.decodeUint16(value, 0);
+            return m.telemetryChanged(FIELD_STATE);
+        });
+        DECODERS.register(CharacteristicIds.SETPOINT, (m, value) ->
+                m.paramsChanged(m.params.withSetpointC(decodeTemperature(value))));
+        DECODERS.register(CharacteristicIds.HYSTERESIS, (m, value) ->
+                m.paramsChanged(m.params.withHysteresisC(decodeTemperature(value))));
+        DECODERS.register(CharacteristicIds.HOT_CUT, (m, value) ->
+                m.paramsChanged(m.params.withHotCutC(decodeTemperature(value))));
+        DECODERS.register(CharacteristicIds.HOT_RESUME, (m, value) ->
+                m.paramsChanged(m.params.withHotResumeC(decodeTemperature(value))));
+        DECODERS.register(CharacteristicIds.FAN_RUNON, (m, value) -> {
+            if (value.length < CoolerCodec.UINT16_SIZE) {
+                return CHANGED_NONE;
+            }
+            return m.paramsChanged(m.params.withFanRunOnSeconds(CoolerCodec.decodeUint16(value, 0)));
+        });
+        DECODERS.register(CharacteristicIds.DEVICE_INFO, (m, value) -> {
+            if (value.length == 0) {
+                return CHANGED_NONE;
+            }
+            m.deviceInfo = new String(value);
+            return CHANGED_DEVICE_INFO;
+        });
+    }
+
+    /**
+     * Applies a characteristic value. Dispatch goes through a {@link CharacteristicTable}, so every
+     * characteristic costs the same regardless of how many are registered.
+     *
+     * @return a combination of the {@code CHANGED_*} flags; {@link #CHANGED_TELEMETRY} is only
+     * reported once all three telemetry values have been received, {@link #CHANGED_PARAMS} only when
+     * a parameter actually changed (see {@link #takeChangedParamFields()})
+     */
+    public int apply(@NonNull UUID uuid, @Nullable byte[] value) {
+        if (value == null) {
+            return CHANGED_NONE;
+        }
+        Decoder decoder = DECODERS.get(uuid);
+        return decoder != null ? decoder.decode(this, value) : CHANGED_NONE;
+    }
+
+    private int telemetryChanged(int field) {
+        receivedFields |= field;
+        return receivedFields == FIELDS_ALL ? CHANGED_TELEMETRY : CHANGED_NONE;
+    }
+
+    private int paramsChanged(@NonNull CoolerParams next) {
+        if (next == params) {
+            return CHANGED_NONE;
+        }
+        changedParamFields |= next.diff(params);
+        params = next;
+        return CHANGED_PARAMS;
+    }
+
+    private static float decodeTemperature(@NonNull byte[] value) {
+        if (value.length < CoolerCodec.TEMPERATURE_SIZE) {
+            return Float.NaN;
+        }
+        return CoolerCodec.decodeTemperature(value, 0);
+    }
+
+    public boolean hasTelemetry() {
+        return receivedFields == FIELDS_ALL;
+    }
+
+    public int getInsideRaw() {
+        return insideRaw;
+    }
+
+    public int getHotRaw() {
+        return hotRaw;
+    }
+
+    public int getStateBits() {
+        return stateBits;
+    }
+
+    /**
+     * The three telemetry fields packed into one long, for handing a consistent snapshot to another
+     * thread without locking or allocating. See {@link #unpackTelemetry(long)}.
+     */
+    public long packTelemetry() {
+        return pack(insideRaw, hotRaw, stateBits);
+    }
+
+    /**
+     * Packs a decoded snapshot the same way as {@link #packTelemetry()}.
+     */
+    public static long packTelemetry(@NonNull Telemetry telemetry) {
+        return pack(CoolerCodec.celsiusToRaw(telemetry.getInsideCelsius()),
+                CoolerCodec.celsiusToRaw(telemetry.getHotCelsius()), telemetry.getStateBits());
+    }
+
+    private static long pack(int insideRaw, int hotRaw, int stateBits) {
+        return ((long) (insideRaw & 0xFFFF) << 32) | ((long) (hotRaw & 0xFFFF) << 16) | (stateBits & 0xFFFF);
+    }
+
+    @NonNull
+    public static Telemetry unpackTelemetry(long packed) {
+        return new Telemetry(
+                CoolerCodec.rawToCelsius((short) (packed >>> 32)),
+                CoolerCodec.rawToCelsius((short) (packed >>> 16)),
+                (int) (packed & 0xFFFF));
+    }
+
+    /**
+     * Seeds parameters and device info remembered from an earlier session. Fresh reads replace them
+     * field by field as they arrive, and only values that differ count as changes.
+     */
+    public void restore(@Nullable CoolerParams cachedParams, @Nullable String cachedDeviceInfo) {
+        if (cachedParams != null) {
+            params = cachedParams;
+        }
+        if (cachedDeviceInfo != null) {
+            deviceInfo = cachedDeviceInfo;
+        }
+    }
+
+    /**
+     * The mirrored parameters. They are immutable, so the instance can be handed to other threads as
+     * is; it stays the same object until a value actually changes.
+     */
+    @NonNull
+    public CoolerParams getParams() {
+        return params;
+    }
+
+    /**
+     * @return the {@link ParamField} masks of the fields changed since the previous call
+     */
+    public int takeChangedParamFields() {
+        int changed = changedParamFields;
+        changedParamFields = 0;
+        return changed;
+    }
+
+    @Nullable
+    public String getDeviceInfo() {
+        return deviceInfo;
+    }
+}
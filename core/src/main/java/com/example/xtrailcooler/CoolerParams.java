@@ -0,0 +1,120 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Immutable parameter set mirrored from the controller, safe to share between threads.
+ * <p>
+ * The {@code with*} methods return {@code this} when the value is unchanged, and otherwise a copy
+ * with that one field replaced and the next {@link #getVersion() version}. An unchanged read therefore
+ * allocates nothing, and a newer snapshot can be told apart from an older one by comparing versions.
+ */
+public final class CoolerParams {
+    private final float setpointC;
+    private final float hysteresisC;
+    private final float hotCutC;
+    private final float hotResumeC;
+    private final int fanRunOnSeconds;
+    private final long version;
+
+    public CoolerParams(float setpointC, float hysteresisC, float hotCutC, float hotResumeC, int fanRunOnSeconds) {
+        this(setpointC, hysteresisC, hotCutC, hotResumeC, fanRunOnSeconds, 0L);
+    }
+
+    private CoolerParams(float setpointC, float hysteresisC, float hotCutC, float hotResumeC, int fanRunOnSeconds,
+                         long version) {
+        this.setpointC = setpointC;
+        this.hysteresisC = hysteresisC;
+        this.hotCutC = hotCutC;
+        this.hotResumeC = hotResumeC;
+        this.fanRunOnSeconds = fanRunOnSeconds;
+        this.version = version;
+    }
+
+    /**
+     * Incremented by every {@code with*} call that changes a value; parameters built with the
+     * constructor start at 0.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public float getSetpointC() {
+        return setpointC;
+    }
+
+    @NonNull
+    public CoolerParams withSetpointC(float setpointC) {
+        return same(this.setpointC, setpointC) ? this
+                : new CoolerParams(setpointC, hysteresisC, hotCutC, hotResumeC, fanRunOnSeconds, version + 1);
+    }
+
+    public float getHysteresisC() {
+        return hysteresisC;
+    }
+
+    @NonNull
+    public CoolerParams withHysteresisC(float hysteresisC) {
+        return same(this.hysteresisC, hysteresisC) ? this
+                : new CoolerParams(setpointC, hysteresisC, hotCutC, hotResumeC, fanRunOnSeconds, version + 1);
+    }
+
+    public float getHotCutC() {
+        return hotCutC;
+    }
+
+    @NonNull
+    public CoolerParams withHotCutC(float hotCutC) {
+        return same(this.hotCutC, hotCutC) ? this
+                : new CoolerParams(setpointC, hysteresisC, hotCutC, hotResumeC, fanRunOnSeconds, version + 1);
+    }
+
+    public float getHotResumeC() {
+        return hotResumeC;
+    }
+
+    @NonNull
+    public CoolerParams withHotResumeC(float hotResumeC) {
+        return same(this.hotResumeC, hotResumeC) ? this
+                : new CoolerParams(setpointC, hysteresisC, hotCutC, hotResumeC, fanRunOnSeconds, version + 1);
+    }
+
+    public int getFanRunOnSeconds() {
+        return fanRunOnSeconds;
+    }
+
+    @NonNull
+    public CoolerParams withFanRunOnSeconds(int fanRunOnSeconds) {
+        return this.fanRunOnSeconds == fanRunOnSeconds ? this
+                : new CoolerParams(setpointC, hysteresisC, hotCutC, hotResumeC, fanRunOnSeconds, version + 1);
+    }
+
+    /**
+     * @return the {@link ParamField#getMask() masks} of the fields whose values differ from
+     * {@code other}'s, ignoring versions
+     */
+    public int diff(@NonNull CoolerParams other) {
+        int changed = 0;
+        if (!same(setpointC, other.setpointC)) {
+            changed |= ParamField.SETPOINT.getMask();
+        }
+        if (!same(hysteresisC, other.hysteresisC)) {
+            changed |= ParamField.HYSTERESIS.getMask();
+        }
+        if (!same(hotCutC, other.hotCutC)) {
+            changed |= ParamField.HOT_CUT.getMask();
+        }
+        if (!same(hotResumeC, other.hotResumeC)) {
+            changed |= ParamField.HOT_RESUME.getMask();
+        }
+        if (fanRunOnSeconds != other.fanRunOnSeconds) {
+            changed |= ParamField.FAN_RUNON.getMask();
+        }
+        return changed;
+    }
+
+    private static boolean same(float a, float b) {
+        // Unlike ==, treats an unreadable NaN as equal to itself.
+        return Float.compare(a, b) == 0;
+    }
+}
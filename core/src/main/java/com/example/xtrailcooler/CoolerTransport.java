@@ -0,0 +1,79 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Link to a single XTrailCooler controller. Characteristics are addressed by the UUIDs in
+ * {@link CharacteristicIds} and carry raw payload bytes, so implementations need not depend on the
+ * Android Bluetooth stack.
+ * <p>
+ * Request methods return {@code false} when the request could not be issued (typically because the
+ * link is busy); otherwise exactly one matching {@link Callback} follows. Like GATT, a transport
+ * handles one outstanding request at a time; {@link GattOperationQueue} takes care of that.
+ */
+public interface CoolerTransport {
+    int STATUS_SUCCESS = 0;
+    int STATUS_FAILURE = 0x101;
+
+    /** Same values as {@code BluetoothGatt.CONNECTION_PRIORITY_*}. */
+    int PRIORITY_BALANCED = 0;
+    int PRIORITY_HIGH = 1;
+    int PRIORITY_LOW_POWER = 2;
+
+    interface Callback {
+        void onConnectionStateChanged(int status, boolean connected);
+
+        void onServicesDiscovered(int status);
+
+        void onCharacteristicRead(@NonNull UUID uuid, @Nullable byte[] value, int status);
+
+        void onCharacteristicWrite(@NonNull UUID uuid, int status);
+
+        void onCharacteristicChanged(@NonNull UUID uuid, @NonNull byte[] value);
+
+        /** Completion of {@link #setNotificationsEnabled}; the CCCD write on a real link. */
+        void onNotificationsChanged(@NonNull UUID uuid, int status);
+
+        void onMtuChanged(int mtu, int status);
+    }
+
+    /**
+     * Creates a transport that delivers every callback through the given executor. The app's
+     * {@code BleClient} passes its worker thread so callbacks never need to be re-posted.
+     */
+    interface Factory {
+        @NonNull
+        CoolerTransport create(@NonNull Executor callbackExecutor);
+    }
+
+    void connect(@NonNull Callback callback);
+
+    boolean discoverServices();
+
+    /**
+     * Whether the characteristic was found during service discovery.
+     */
+    boolean hasCharacteristic(@NonNull UUID uuid);
+
+    boolean readCharacteristic(@NonNull UUID uuid);
+
+    boolean writeCharacteristic(@NonNull UUID uuid, @NonNull byte[] value);
+
+    boolean setNotificationsEnabled(@NonNull UUID uuid, boolean enabled);
+
+    boolean requestMtu(int mtu);
+
+    /**
+     * Connection priority requests complete as soon as they are accepted; there is no callback.
+     */
+    boolean requestConnectionPriority(int priority);
+
+    /**
+     * Disconnects and releases the link. No callbacks are delivered afterwards.
+     */
+    void close();
+}
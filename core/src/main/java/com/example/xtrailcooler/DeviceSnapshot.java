@@ -0,0 +1,171 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * The last known telemetry, parameters and device info of a controller, in a compact binary form
+ * that is cheap enough to decode before the first frame. Any part may be missing.
+ * <p>
+ * Layout, little-endian:
+ * <pre>
+ * "XTCS" (4 ASCII bytes), version (1 byte, = 1), present parts (1 byte: 1 telemetry, 2 params, 4 info)
+ * telemetry: time (int64, ms since the epoch), inside, hot (sint16 tenths), state bits (uint16)
+ * params:    setpoint, hysteresis, hot cut, hot resume (float32 °C), fan run-on (uint16 s)
+ * info:      length (uint16), UTF-8 bytes
+ * CRC-32 of everything before it (int32)
+ * </pre>
+ */
+public final class DeviceSnapshot {
+    private static final byte[] MAGIC = {'X', 'T', 'C', 'S'};
+    private static final int VERSION = 1;
+    private static final int HAS_TELEMETRY = 1;
+    private static final int HAS_PARAMS = 1 << 1;
+    private static final int HAS_INFO = 1 << 2;
+    private static final int HEADER_SIZE = MAGIC.length + 2;
+    private static final int TELEMETRY_SIZE = 8 + 3 * 2;
+    private static final int PARAMS_SIZE = 4 * 4 + 2;
+    private static final int CRC_SIZE = 4;
+    /** Device info is a short version string; anything longer is truncated rather than stored. */
+    private static final int MAX_INFO_BYTES = 0xFFFF;
+
+    @Nullable
+    private final Telemetry telemetry;
+    private final long telemetryTimeMs;
+    @Nullable
+    private final CoolerParams params;
+    @Nullable
+    private final String deviceInfo;
+
+    /**
+     * @param telemetryTimeMs when {@code telemetry} was received, in ms since the epoch
+     */
+    public DeviceSnapshot(@Nullable Telemetry telemetry, long telemetryTimeMs, @Nullable CoolerParams params,
+                          @Nullable String deviceInfo) {
+        this.telemetry = telemetry;
+        this.telemetryTimeMs = telemetryTimeMs;
+        this.params = params;
+        this.deviceInfo = deviceInfo;
+    }
+
+    @Nullable
+    public Telemetry getTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * When the telemetry was received, in ms since the epoch; meaningless without telemetry.
+     */
+    public long getTelemetryTimeMs() {
+        return telemetryTimeMs;
+    }
+
+    @Nullable
+    public CoolerParams getParams() {
+        return params;
+    }
+
+    @Nullable
+    public String getDeviceInfo() {
+        return deviceInfo;
+    }
+
+    public boolean isEmpty() {
+        return telemetry == null && params == null && deviceInfo == null;
+    }
+
+    @NonNull
+    public byte[] encode() {
+        byte[] info = deviceInfo != null ? deviceInfo.getBytes(StandardCharsets.UTF_8) : null;
+        int infoLength = info != null ? Math.min(info.length, MAX_INFO_BYTES) : 0;
+        int size = HEADER_SIZE + (telemetry != null ? TELEMETRY_SIZE : 0) + (params != null ? PARAMS_SIZE : 0)
+                + (info != null ? 2 + infoLength : 0) + CRC_SIZE;
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        out.put(MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) ((telemetry != null ? HAS_TELEMETRY : 0) | (params != null ? HAS_PARAMS : 0)
+                | (info != null ? HAS_INFO : 0)));
+        if (telemetry != null) {
+            out.putLong(telemetryTimeMs);
+            out.putShort((short) CoolerCodec.celsiusToRaw(telemetry.getInsideCelsius()));
+            out.putShort((short) CoolerCodec.celsiusToRaw(telemetry.getHotCelsius()));
+            out.putShort((short) telemetry.getStateBits());
+        }
+        if (params != null) {
+            out.putFloat(params.getSetpointC());
+            out.putFloat(params.getHysteresisC());
+            out.putFloat(params.getHotCutC());
+            out.putFloat(params.getHotResumeC());
+            out.putShort((short) params.getFanRunOnSeconds());
+        }
+        if (info != null) {
+            out.putShort((short) infoLength);
+            out.put(info, 0, infoLength);
+        }
+        out.putInt((int) crc(out.array(), out.position()));
+        return out.array();
+    }
+
+    /**
+     * @return the snapshot, or {@code null} if the data is truncated, corrupt or of another version
+     */
+    @Nullable
+    public static DeviceSnapshot decode(@NonNull byte[] data, int length) {
+        if (length < HEADER_SIZE + CRC_SIZE || length > data.length) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(data, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+        int storedCrc = in.getInt(length - CRC_SIZE);
+        if (storedCrc != (int) crc(data, length - CRC_SIZE)) {
+            return null;
+        }
+        for (byte b : MAGIC) {
+            if (in.get() != b) {
+                return null;
+            }
+        }
+        if (in.get() != VERSION) {
+            return null;
+        }
+        int parts = in.get();
+        in.limit(length - CRC_SIZE);
+        try {
+            Telemetry telemetry = null;
+            long telemetryTimeMs = 0;
+            if ((parts & HAS_TELEMETRY) != 0) {
+                telemetryTimeMs = in.getLong();
+                float inside = CoolerCodec.rawToCelsius(in.getShort());
+                float hot = CoolerCodec.rawToCelsius(in.getShort());
+                telemetry = new Telemetry(inside, hot, in.getShort() & 0xFFFF);
+            }
+            CoolerParams params = null;
+            if ((parts & HAS_PARAMS) != 0) {
+                params = new CoolerParams(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(),
+                        in.getShort() & 0xFFFF);
+            }
+            String deviceInfo = null;
+            if ((parts & HAS_INFO) != 0) {
+                int infoLength = in.getShort() & 0xFFFF;
+                if (infoLength > in.remaining()) {
+                    return null;
+                }
+                deviceInfo = new String(data, in.position(), infoLength, StandardCharsets.UTF_8);
+            }
+            return new DeviceSnapshot(telemetry, telemetryTimeMs, params, deviceInfo);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static long crc(@NonNull byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return crc.getValue();
+    }
+}
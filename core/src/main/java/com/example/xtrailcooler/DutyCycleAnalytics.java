@@ -0,0 +1,317 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Accumulates what the outputs have been doing from the state bits of successive samples: total
+ * on-time per output, duty cycle over a few rolling windows, the energy that implies at a configurable
+ * power per output, and the running mean and variance of the inside temperature.
+ * <p>
+ * The time between two samples is credited to the state and inside temperature of the earlier one,
+ * so the temperature statistics are weighted by time rather than by sample: a burst of notifications
+ * does not outweigh a quiet hour. Gaps longer than
+ * {@link #setMaxGapMs maxGapMs}, and the gap before the first sample after {@link #breakSeries()},
+ * are not credited at all, since nobody knows what the outputs did meanwhile. Duty cycles are the
+ * share of observed time within the window, so they stay meaningful across such gaps.
+ * <p>
+ * Each window is a ring of {@link #BUCKETS} time buckets with running totals, which makes a window's
+ * resolution 1/{@link #BUCKETS} of its length. An update touches a bounded number of buckets and
+ * allocates nothing, so it can run on every sample. All methods are safe to call from any thread.
+ */
+public class DutyCycleAnalytics {
+    public enum Output {
+        PEL1(CoolerCodec.STATE_PEL1),
+        PEL2(CoolerCodec.STATE_PEL2),
+        HOT_FAN(CoolerCodec.STATE_HOT_FAN);
+
+        private final int bit;
+
+        Output(int bit) {
+            this.bit = bit;
+        }
+
+        public int getBit() {
+            return bit;
+        }
+    }
+
+    /** Buckets per rolling window. */
+    public static final int BUCKETS = 60;
+
+    /** A 12 V TEC1-12706 draws about 5 A once warm. */
+    private static final float DEFAULT_PELTIER_WATTS = 60f;
+    private static final float DEFAULT_FAN_WATTS = 3f;
+    private static final long DEFAULT_MAX_GAP_MS = 10 * 60000L;
+    private static final double MS_PER_HOUR = 3_600_000d;
+    private static final Output[] OUTPUTS = Output.values();
+
+    private final long[] windowMs;
+    private final long[] bucketMs;
+    // Per window: absolute index (time / bucketMs) of the newest bucket, or -1 before the first.
+    private final long[] newestBucket;
+    // Per window, BUCKETS entries each: observed time, and on-time per output at [output * BUCKETS + b].
+    private final long[][] bucketObservedMs;
+    private final long[][] bucketOnMs;
+    // Per window: running sums over its buckets.
+    private final long[] windowObservedMs;
+    private final long[][] windowOnMs;
+
+    private final float[] powerWatts = new float[OUTPUTS.length];
+    private long maxGapMs = DEFAULT_MAX_GAP_MS;
+
+    private boolean hasSample;
+    private long lastTimeMs;
+    private int lastStateBits;
+    private int lastInsideRaw;
+    private long observedMs;
+    private final long[] onMs = new long[OUTPUTS.length];
+    private final long[] switchOns = new long[OUTPUTS.length];
+
+    // Welford's running mean and sum of squared deviations of the inside temperature, in °C, with each
+    // sample weighted by the time credited to it (West's weighted form).
+    private long insideCount;
+    private long insideWeightMs;
+    private double insideMean;
+    private double insideM2;
+
+    /**
+     * @param windowMs lengths of the rolling windows, e.g. one hour and one day
+     */
+    public DutyCycleAnalytics(@NonNull long... windowMs) {
+        int windows = windowMs.length;
+        this.windowMs = windowMs.clone();
+        bucketMs = new long[windows];
+        newestBucket = new long[windows];
+        bucketObservedMs = new long[windows][BUCKETS];
+        bucketOnMs = new long[windows][OUTPUTS.length * BUCKETS];
+        windowObservedMs = new long[windows];
+        windowOnMs = new long[windows][OUTPUTS.length];
+        for (int w = 0; w < windows; w++) {
+            if (windowMs[w] < BUCKETS) {
+                throw new IllegalArgumentException("Window too short: " + windowMs[w]);
+            }
+            bucketMs[w] = windowMs[w] / BUCKETS;
+            newestBucket[w] = -1;
+        }
+        powerWatts[Output.PEL1.ordinal()] = DEFAULT_PELTIER_WATTS;
+        powerWatts[Output.PEL2.ordinal()] = DEFAULT_PELTIER_WATTS;
+        powerWatts[Output.HOT_FAN.ordinal()] = DEFAULT_FAN_WATTS;
+    }
+
+    /**
+     * Electrical power drawn while {@code output} is on, for the energy estimate.
+     */
+    public synchronized void setPowerWatts(@NonNull Output output, float watts) {
+        powerWatts[output.ordinal()] = Math.max(0f, watts);
+    }
+
+    public synchronized float getPowerWatts(@NonNull Output output) {
+        return powerWatts[output.ordinal()];
+    }
+
+    /**
+     * Longest gap between samples that is still credited to the earlier sample's state; 10 min by
+     * default.
+     */
+    public synchronized void setMaxGapMs(long maxGapMs) {
+        this.maxGapMs = Math.max(0L, maxGapMs);
+    }
+
+    /**
+     * Folds in one sample.
+     *
+     * @param timeMs monotonic time of the sample
+     */
+    public synchronized void update(long timeMs, int insideRaw, int stateBits) {
+        if (hasSample) {
+            long dt = timeMs - lastTimeMs;
+            if (dt > 0 && dt <= maxGapMs) {
+                credit(lastTimeMs, timeMs, lastStateBits);
+                creditInside(dt, lastInsideRaw);
+            }
+            int switchedOn = stateBits & ~lastStateBits;
+            for (int o = 0; o < OUTPUTS.length; o++) {
+                if ((switchedOn & OUTPUTS[o].bit) != 0) {
+                    switchOns[o]++;
+                }
+            }
+        }
+        hasSample = true;
+        lastTimeMs = timeMs;
+        lastStateBits = stateBits;
+        lastInsideRaw = insideRaw;
+        insideCount++;
+    }
+
+    /**
+     * Leaves the time until the next sample uncredited, e.g. when the link drops.
+     */
+    public synchronized void breakSeries() {
+        hasSample = false;
+    }
+
+    private void creditInside(long weightMs, int insideRaw) {
+        double inside = CoolerCodec.rawToCelsius(insideRaw);
+        insideWeightMs += weightMs;
+        double delta = inside - insideMean;
+        insideMean += delta * weightMs / insideWeightMs;
+        insideM2 += weightMs * delta * (inside - insideMean);
+    }
+
+    private void credit(long fromMs, long toMs, int stateBits) {
+        observedMs += toMs - fromMs;
+        for (int o = 0; o < OUTPUTS.length; o++) {
+            if ((stateBits & OUTPUTS[o].bit) != 0) {
+                onMs[o] += toMs - fromMs;
+            }
+        }
+        for (int w = 0; w < windowMs.length; w++) {
+            // Anything older than the window would be expired straight away.
+            long t = Math.max(fromMs, toMs - windowMs[w]);
+            while (t < toMs) {
+                long bucket = t / bucketMs[w];
+                advance(w, bucket);
+                long end = Math.min(toMs, (bucket + 1) * bucketMs[w]);
+                long d = end - t;
+                int b = (int) (bucket % BUCKETS);
+                bucketObservedMs[w][b] += d;
+                windowObservedMs[w] += d;
+                for (int o = 0; o < OUTPUTS.length; o++) {
+                    if ((stateBits & OUTPUTS[o].bit) != 0) {
+                        bucketOnMs[w][o * BUCKETS + b] += d;
+                        windowOnMs[w][o] += d;
+                    }
+                }
+                t = end;
+            }
+        }
+    }
+
+    /**
+     * Makes {@code bucket} the newest bucket of window {@code w}, expiring those that fall out.
+     */
+    private void advance(int w, long bucket) {
+        long newest = newestBucket[w];
+        if (bucket <= newest) {
+            return;
+        }
+        long expire = newest < 0 ? BUCKETS : Math.min(bucket - newest, BUCKETS);
+        for (long i = 1; i <= expire; i++) {
+            int b = (int) ((newest < 0 ? i : newest + i) % BUCKETS);
+            windowObservedMs[w] -= bucketObservedMs[w][b];
+            bucketObservedMs[w][b] = 0;
+            for (int o = 0; o < OUTPUTS.length; o++) {
+                windowOnMs[w][o] -= bucketOnMs[w][o * BUCKETS + b];
+                bucketOnMs[w][o * BUCKETS + b] = 0;
+            }
+        }
+        newestBucket[w] = bucket;
+    }
+
+    /**
+     * Total time credited to any state since the analytics were created.
+     */
+    public synchronized long getObservedMs() {
+        return observedMs;
+    }
+
+    public synchronized long getOnTimeMs(@NonNull Output output) {
+        return onMs[output.ordinal()];
+    }
+
+    /**
+     * How often {@code output} was seen switching on.
+     */
+    public synchronized long getSwitchOns(@NonNull Output output) {
+        return switchOns[output.ordinal()];
+    }
+
+    /**
+     * Share of observed time {@code output} was on overall, from 0 to 1, or {@code NaN} before any time
+     * was observed.
+     */
+    public synchronized double getDutyCycle(@NonNull Output output) {
+        return observedMs == 0 ? Double.NaN : (double) onMs[output.ordinal()] / observedMs;
+    }
+
+    public int getWindowCount() {
+        return windowMs.length;
+    }
+
+    public long getWindowMs(int window) {
+        return windowMs[window];
+    }
+
+    /**
+     * Share of the observed time within window {@code window} that {@code output} was on, from 0 to 1,
+     * or {@code NaN} when nothing was observed in it.
+     */
+    public synchronized double getDutyCycle(@NonNull Output output, int window) {
+        long observed = windowObservedMs[window];
+        return observed == 0 ? Double.NaN : (double) windowOnMs[window][output.ordinal()] / observed;
+    }
+
+    /**
+     * Energy {@code output} used so far, in Wh, at its configured power.
+     */
+    public synchronized double getEnergyWh(@NonNull Output output) {
+        return onMs[output.ordinal()] * (double) powerWatts[output.ordinal()] / MS_PER_HOUR;
+    }
+
+    public synchronized double getTotalEnergyWh() {
+        double total = 0;
+        for (Output output : OUTPUTS) {
+            total += getEnergyWh(output);
+        }
+        return total;
+    }
+
+    /**
+     * Time-weighted mean inside temperature over the observed time, in °C, or {@code NaN} before any
+     * time was observed.
+     */
+    public synchronized double getInsideMeanC() {
+        return insideWeightMs == 0 ? Double.NaN : insideMean;
+    }
+
+    /**
+     * Time-weighted variance of the inside temperature over the observed time, in °C², or {@code NaN}
+     * before any time was observed.
+     */
+    public synchronized double getInsideVariance() {
+        return insideWeightMs == 0 ? Double.NaN : insideM2 / insideWeightMs;
+    }
+
+    public synchronized double getInsideStdDevC() {
+        return Math.sqrt(getInsideVariance());
+    }
+
+    /**
+     * Samples folded in; only those followed by a credited gap count towards the statistics.
+     */
+    public synchronized long getInsideSampleCount() {
+        return insideCount;
+    }
+
+    /**
+     * Writes a plain-text report in the same {@code key value...} form as
+     * {@link GattMetrics#writeReport}.
+     */
+    public synchronized void writeReport(@NonNull Appendable out) throws IOException {
+        out.append("# output on_ms switch_ons duty energy_wh duty_per_window...\n");
+        out.append(String.format(Locale.US, "observed_ms %d%n", observedMs));
+        for (Output output : OUTPUTS) {
+            out.append(String.format(Locale.US, "output.%s %d %d %.3f %.2f", output.name().toLowerCase(Locale.US),
+                    getOnTimeMs(output), getSwitchOns(output), getDutyCycle(output), getEnergyWh(output)));
+            for (int w = 0; w < windowMs.length; w++) {
+                out.append(String.format(Locale.US, " %ds:%.3f", windowMs[w] / 1000, getDutyCycle(output, w)));
+            }
+            out.append('\n');
+        }
+        out.append(String.format(Locale.US, "inside_c samples %d mean %.2f stddev %.2f%n",
+                insideCount, getInsideMeanC(), getInsideStdDevC()));
+    }
+}
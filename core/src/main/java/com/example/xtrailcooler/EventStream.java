@@ -0,0 +1,198 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Hot, multicast stream of events. Every subscriber gets events published after it subscribed (plus
+ * the latest one, for streams that replay it) on its own executor and with its own
+ * {@link Backpressure} policy, so a slow consumer only ever falls behind itself: {@link #publish}
+ * never blocks on, or waits for, any subscriber.
+ * <p>
+ * Each subscriber receives its events one at a time and in order. Thread safe.
+ */
+public final class EventStream<T> {
+    /**
+     * What a subscriber that cannot keep up is given.
+     */
+    public enum Backpressure {
+        /** Only the most recent event; anything older still waiting is replaced. */
+        LATEST,
+        /** Every event up to the capacity; events published while the buffer is full are dropped. */
+        BUFFER,
+        /** The most recent events up to the capacity; the oldest waiting event makes room. */
+        DROP_OLDEST
+    }
+
+    public interface Subscriber<T> {
+        void onEvent(@NonNull T event);
+    }
+
+    public interface Subscription {
+        /**
+         * Stops delivery. Events already handed to the subscriber's executor are not delivered.
+         */
+        void cancel();
+
+        /**
+         * Events this subscriber lost to its backpressure policy.
+         */
+        long getDropped();
+    }
+
+    private final boolean replayLatest;
+    private final CopyOnWriteArrayList<Slot<T>> slots = new CopyOnWriteArrayList<>();
+    @Nullable
+    private volatile T latest;
+
+    /**
+     * @param replayLatest hand each new subscriber the most recent event straight away; suits streams
+     *                     that describe state, such as connection state or parameters
+     */
+    public EventStream(boolean replayLatest) {
+        this.replayLatest = replayLatest;
+    }
+
+    /**
+     * Subscribes with {@link Backpressure#LATEST}.
+     */
+    @NonNull
+    public Subscription subscribe(@NonNull Executor executor, @NonNull Subscriber<T> subscriber) {
+        return subscribe(executor, Backpressure.LATEST, 1, subscriber);
+    }
+
+    /**
+     * @param capacity events that may wait for the subscriber; ignored for {@link Backpressure#LATEST}
+     */
+    @NonNull
+    public Subscription subscribe(@NonNull Executor executor, @NonNull Backpressure backpressure, int capacity,
+                                  @NonNull Subscriber<T> subscriber) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        Slot<T> slot = new Slot<>(this, executor, backpressure,
+                backpressure == Backpressure.LATEST ? 1 : capacity, subscriber);
+        slots.add(slot);
+        T current = latest;
+        if (replayLatest && current != null) {
+            // A publish racing with this one may already have reached the slot with a newer event.
+            slot.offer(current, true);
+        }
+        return slot;
+    }
+
+    public void publish(@NonNull T event) {
+        latest = event;
+        for (Slot<T> slot : slots) {
+            slot.offer(event, false);
+        }
+    }
+
+    /**
+     * Whether anyone is listening; lets publishers skip building events nobody would receive.
+     */
+    public boolean hasSubscribers() {
+        return !slots.isEmpty();
+    }
+
+    /**
+     * The most recently published event, or {@code null} before the first.
+     */
+    @Nullable
+    public T getLatest() {
+        return latest;
+    }
+
+    private static final class Slot<T> implements Subscription, Runnable {
+        private final EventStream<T> stream;
+        private final Executor executor;
+        private final Backpressure backpressure;
+        private final int capacity;
+        private final Subscriber<T> subscriber;
+
+        // Guarded by this.
+        private final ArrayDeque<T> waiting = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean cancelled;
+        private boolean published;
+        private long dropped;
+
+        Slot(EventStream<T> stream, Executor executor, Backpressure backpressure, int capacity,
+             Subscriber<T> subscriber) {
+            this.stream = stream;
+            this.executor = executor;
+            this.backpressure = backpressure;
+            this.capacity = capacity;
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * @param replay whether {@code event} is the replayed latest event, which is skipped once a
+         *               published event has been offered
+         */
+        void offer(@NonNull T event, boolean replay) {
+            synchronized (this) {
+                if (cancelled || (replay && published)) {
+                    return;
+                }
+                if (!replay) {
+                    published = true;
+                }
+                if (waiting.size() >= capacity) {
+                    dropped++;
+                    if (backpressure == Backpressure.BUFFER) {
+                        return;
+                    }
+                    waiting.poll();
+                }
+                waiting.add(event);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                T event;
+                synchronized (this) {
+                    event = cancelled ? null : waiting.poll();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    subscriber.onEvent(event);
+                } catch (RuntimeException | Error e) {
+                    // Let the next publish schedule delivery again rather than stalling for good.
+                    synchronized (this) {
+                        scheduled = false;
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                waiting.clear();
+            }
+            stream.slots.remove(this);
+        }
+
+        @Override
+        public synchronized long getDropped() {
+            return dropped;
+        }
+    }
+}
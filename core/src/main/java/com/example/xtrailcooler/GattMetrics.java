@@ -0,0 +1,164 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where time goes on the link: a {@link LatencyHistogram} per kind of operation, notification counts
+ * per characteristic, operations that timed out or were dropped, and the depth of the operation queue.
+ * <p>
+ * Recording is lock free and allocation free, so it stays on in release builds. All methods are safe
+ * to call from any thread.
+ */
+public class GattMetrics {
+    public enum Operation {
+        /** From opening the transport until the link is up. */
+        CONNECT,
+        DISCOVERY,
+        /** From starting a scan until a controller is found. */
+        SCAN,
+        READ,
+        WRITE,
+        DESCRIPTOR_WRITE,
+        MTU
+    }
+
+    private static final UUID[] NOTIFYING = {
+            CharacteristicIds.INSIDE_TEMP, CharacteristicIds.HOT_TEMP, CharacteristicIds.STATE_BITS,
+            CharacteristicIds.SETPOINT, CharacteristicIds.HYSTERESIS, CharacteristicIds.HOT_CUT,
+            CharacteristicIds.HOT_RESUME, CharacteristicIds.FAN_RUNON, CharacteristicIds.DEVICE_INFO,
+    };
+    private static final String[] NOTIFYING_NAMES = {
+            "inside_temp", "hot_temp", "state_bits", "setpoint", "hysteresis", "hot_cut", "hot_resume",
+            "fan_runon", "device_info",
+    };
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final AtomicLong[] notificationCounts = new AtomicLong[NOTIFYING.length];
+    private final CharacteristicTable<AtomicLong> notificationsByCharacteristic = new CharacteristicTable<>();
+    private final AtomicLong otherNotifications = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public GattMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < NOTIFYING.length; i++) {
+            notificationCounts[i] = new AtomicLong();
+            notificationsByCharacteristic.register(NOTIFYING[i], notificationCounts[i]);
+        }
+    }
+
+    public void recordLatency(@NonNull Operation operation, long durationNanos) {
+        latencies[operation.ordinal()].record(durationNanos / 1000L);
+    }
+
+    public void recordNotification(@NonNull UUID uuid) {
+        AtomicLong count = notificationsByCharacteristic.get(uuid);
+        (count != null ? count : otherNotifications).incrementAndGet();
+    }
+
+    /** An operation that got no response in time. */
+    public void recordTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    /** An operation the stack kept refusing until the queue gave up on it. */
+    public void recordDropped() {
+        dropped.incrementAndGet();
+    }
+
+    /** An operation abandoned because the link went away. */
+    public void recordCancelled() {
+        cancelled.incrementAndGet();
+    }
+
+    public void recordQueueDepth(int depth) {
+        queueDepth.set(depth);
+        int max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+    }
+
+    @NonNull
+    public LatencyHistogram getLatency(@NonNull Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public long getNotifications(@NonNull UUID uuid) {
+        AtomicLong count = notificationsByCharacteristic.get(uuid);
+        return count != null ? count.get() : 0L;
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+        for (AtomicLong count : notificationCounts) {
+            count.set(0L);
+        }
+        otherNotifications.set(0L);
+        timeouts.set(0L);
+        dropped.set(0L);
+        cancelled.set(0L);
+        maxQueueDepth.set(queueDepth.get());
+    }
+
+    /**
+     * Writes a plain-text report, one {@code key value...} line per figure, meant to be diffed between
+     * phones. Latencies are in milliseconds.
+     */
+    public void writeReport(@NonNull Appendable out) throws IOException {
+        out.append("# operation count mean_ms p50_ms p90_ms p99_ms max_ms\n");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies[operation.ordinal()];
+            out.append(String.format(Locale.US, "latency.%s %d %.1f %.1f %.1f %.1f %.1f%n",
+                    operation.name().toLowerCase(Locale.US), histogram.getCount(),
+                    histogram.getMeanMicros() / 1000d,
+                    histogram.getValueAtPercentile(50) / 1000d,
+                    histogram.getValueAtPercentile(90) / 1000d,
+                    histogram.getValueAtPercentile(99) / 1000d,
+                    histogram.getMaxMicros() / 1000d));
+        }
+        for (int i = 0; i < NOTIFYING.length; i++) {
+            out.append("notifications.").append(NOTIFYING_NAMES[i]).append(' ')
+                    .append(Long.toString(notificationCounts[i].get())).append('\n');
+        }
+        out.append("notifications.other ").append(Long.toString(otherNotifications.get())).append('\n');
+        out.append("ops.timed_out ").append(Long.toString(timeouts.get())).append('\n');
+        out.append("ops.dropped ").append(Long.toString(dropped.get())).append('\n');
+        out.append("ops.cancelled ").append(Long.toString(cancelled.get())).append('\n');
+        out.append("queue.depth ").append(Integer.toString(queueDepth.get())).append('\n');
+        out.append("queue.max_depth ").append(Integer.toString(maxQueueDepth.get())).append('\n');
+    }
+}
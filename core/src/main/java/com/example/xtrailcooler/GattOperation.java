@@ -0,0 +1,158 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.UUID;
+
+/**
+ * A single GATT request scheduled through {@link GattOperationQueue}.
+ */
+public final class GattOperation {
+    public interface Callback {
+        void onComplete(@NonNull GattOperation operation, int status);
+    }
+
+    public static final int TYPE_READ = 0;
+    public static final int TYPE_WRITE = 1;
+    public static final int TYPE_WRITE_DESCRIPTOR = 2;
+    public static final int TYPE_REQUEST_MTU = 3;
+    public static final int TYPE_CONNECTION_PRIORITY = 4;
+
+    private static final long DEFAULT_TIMEOUT_MS = 5000L;
+
+    final int type;
+    @Nullable
+    final UUID uuid;
+    @Nullable
+    byte[] value;
+    private final int argument;
+    final long timeoutMs;
+    // Whether a write survives GattOperationQueue.suspend(); only ever false for writeOnce().
+    final boolean retained;
+    @Nullable
+    Callback callback;
+    int attempts;
+    // When the transport accepted the request, for latency metrics; 0 until then.
+    long startedAtNanos;
+
+    private GattOperation(int type, @Nullable UUID uuid, @Nullable byte[] value, int argument, @Nullable Callback callback) {
+        this(type, uuid, value, argument, callback, true);
+    }
+
+    private GattOperation(int type, @Nullable UUID uuid, @Nullable byte[] value, int argument, @Nullable Callback callback,
+                          boolean retained) {
+        this.type = type;
+        this.uuid = uuid;
+        this.value = value;
+        this.argument = argument;
+        this.callback = callback;
+        this.timeoutMs = DEFAULT_TIMEOUT_MS;
+        this.retained = retained;
+    }
+
+    public static GattOperation read(@NonNull UUID characteristic, @Nullable Callback callback) {
+        return new GattOperation(TYPE_READ, characteristic, null, 0, callback);
+    }
+
+    public static GattOperation write(@NonNull UUID characteristic, @NonNull byte[] value, @Nullable Callback callback) {
+        return new GattOperation(TYPE_WRITE, characteristic, value, 0, callback);
+    }
+
+    /**
+     * A write that is cancelled, like any other operation, when the link drops instead of being sent
+     * again after the reconnect; for writes that belong to a transaction judged on this connection.
+     */
+    public static GattOperation writeOnce(@NonNull UUID characteristic, @NonNull byte[] value,
+                                          @Nullable Callback callback) {
+        return new GattOperation(TYPE_WRITE, characteristic, value, 0, callback, false);
+    }
+
+    /**
+     * Enables or disables notifications, i.e. writes the characteristic's CCCD.
+     */
+    public static GattOperation setNotifications(@NonNull UUID characteristic, boolean enabled, @Nullable Callback callback) {
+        return new GattOperation(TYPE_WRITE_DESCRIPTOR, characteristic, null, enabled ? 1 : 0, callback);
+    }
+
+    public static GattOperation requestMtu(int mtu, @Nullable Callback callback) {
+        return new GattOperation(TYPE_REQUEST_MTU, null, null, mtu, callback);
+    }
+
+    public static GattOperation requestConnectionPriority(int priority, @Nullable Callback callback) {
+        return new GattOperation(TYPE_CONNECTION_PRIORITY, null, null, priority, callback);
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    @Nullable
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Hands the request to the transport. The payload is read here rather than at enqueue time so a
+     * value replaced while the operation was waiting is the one that goes on air.
+     *
+     * @return {@code false} when the transport refused the request, typically because it is still busy
+     */
+    boolean execute(@NonNull CoolerTransport transport) {
+        switch (type) {
+            case TYPE_READ:
+                return transport.readCharacteristic(uuid);
+            case TYPE_WRITE:
+                return transport.writeCharacteristic(uuid, value);
+            case TYPE_WRITE_DESCRIPTOR:
+                return transport.setNotificationsEnabled(uuid, argument != 0);
+            case TYPE_REQUEST_MTU:
+                return transport.requestMtu(argument);
+            case TYPE_CONNECTION_PRIORITY:
+                return transport.requestConnectionPriority(argument);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Connection priority requests have no completion callback; they are done once accepted.
+     */
+    boolean completesOnSubmit() {
+        return type == TYPE_CONNECTION_PRIORITY;
+    }
+
+    /**
+     * The metrics bucket for this kind of operation, or {@code null} for requests without a completion.
+     */
+    @Nullable
+    GattMetrics.Operation metricsOperation() {
+        switch (type) {
+            case TYPE_READ:
+                return GattMetrics.Operation.READ;
+            case TYPE_WRITE:
+                return GattMetrics.Operation.WRITE;
+            case TYPE_WRITE_DESCRIPTOR:
+                return GattMetrics.Operation.DESCRIPTOR_WRITE;
+            case TYPE_REQUEST_MTU:
+                return GattMetrics.Operation.MTU;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Swaps in a newer payload for a write that has not been started yet.
+     */
+    void supersede(@NonNull byte[] value, @Nullable Callback callback) {
+        this.value = value;
+        this.callback = callback;
+    }
+
+    boolean matches(int type, @Nullable UUID uuid) {
+        if (this.type != type) {
+            return false;
+        }
+        return uuid == null || uuid.equals(this.uuid);
+    }
+}
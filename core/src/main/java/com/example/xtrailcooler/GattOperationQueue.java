@@ -0,0 +1,352 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runs GATT operations one at a time. Android keeps a single outstanding request per connection and
+ * silently drops anything issued while one is in flight, so every read, write, descriptor write and
+ * MTU/priority request goes through here.
+ * <p>
+ * Not thread safe: all methods must be called on the thread of the {@link Scheduler} passed to the
+ * constructor.
+ */
+public class GattOperationQueue {
+    /**
+     * Runs the queue's timeouts and retries on its thread and tells the time; on Android, the worker
+     * thread's {@code Handler} and {@code SystemClock}.
+     */
+    public interface Scheduler {
+        void postDelayed(@NonNull Runnable task, long delayMs);
+
+        void removeCallbacks(@NonNull Runnable task);
+
+        /**
+         * Monotonic time in ns, for latency metrics.
+         */
+        long nowNanos();
+    }
+
+    /** The operation did not complete within its timeout. */
+    public static final int STATUS_TIMEOUT = -1;
+    /** The stack kept rejecting the operation after all retries. */
+    public static final int STATUS_BUSY = -2;
+    /** The connection went away before the operation ran. */
+    public static final int STATUS_CANCELLED = -3;
+    /** A newer write to the same characteristic replaced this one before it went on air. */
+    public static final int STATUS_SUPERSEDED = -4;
+
+    private static final int MAX_BUSY_RETRIES = 5;
+    private static final long BUSY_RETRY_DELAY_MS = 40L;
+    // How long the next operation is held back after a timeout in case the stack still answers the
+    // one that timed out; completions carry no request id, so a late one would otherwise be credited
+    // to the next operation on the same characteristic.
+    private static final long LATE_COMPLETION_GRACE_MS = 1000L;
+
+    private final Scheduler scheduler;
+    private final GattMetrics metrics;
+    private final Deque<GattOperation> pending = new ArrayDeque<>();
+    private final Map<UUID, GattOperation> pendingLatest = new HashMap<>();
+    private final Runnable timeoutTask = this::onTimeout;
+    private final Runnable retryTask = this::startCurrent;
+    private final Runnable graceTask = this::endGrace;
+
+    @Nullable
+    private CoolerTransport transport;
+    @Nullable
+    private GattOperation current;
+    // Whether current has been accepted by the transport, i.e. a completion for it can arrive.
+    private boolean onAir;
+    // An operation that timed out and whose completion may still arrive, while within its grace period.
+    @Nullable
+    private GattOperation overdue;
+
+    public GattOperationQueue(@NonNull Scheduler scheduler) {
+        this(scheduler, new GattMetrics());
+    }
+
+    /**
+     * @param metrics receives the latency of every completed operation, failures and the queue depth
+     */
+    public GattOperationQueue(@NonNull Scheduler scheduler, @NonNull GattMetrics metrics) {
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Attaches the queue to a connection, or detaches it when {@code transport} is {@code null}.
+     * Detaching cancels everything that has not completed yet.
+     */
+    public void setTransport(@Nullable CoolerTransport transport) {
+        this.transport = transport;
+        if (transport == null) {
+            clear();
+        } else if (current == null) {
+            startNext();
+        }
+    }
+
+    public void enqueue(@NonNull GattOperation operation) {
+        pending.add(operation);
+        if (current == null) {
+            startNext();
+        }
+        metrics.recordQueueDepth(size());
+    }
+
+    /**
+     * Puts {@code operation} ahead of everything that is waiting; an operation already in flight is
+     * not affected.
+     */
+    public void enqueueFirst(@NonNull GattOperation operation) {
+        pending.addFirst(operation);
+        if (current == null) {
+            startNext();
+        }
+        metrics.recordQueueDepth(size());
+    }
+
+    /**
+     * Enqueues a write where only the most recent value matters. If a write to the same
+     * characteristic is still waiting, its payload is replaced in place and its callback is completed
+     * with {@link #STATUS_SUPERSEDED}; the queue position of the original write is kept.
+     */
+    public void enqueueLatest(@NonNull GattOperation operation) {
+        UUID uuid = operation.uuid;
+        if (operation.type != GattOperation.TYPE_WRITE || uuid == null) {
+            enqueue(operation);
+            return;
+        }
+        GattOperation waiting = pendingLatest.get(uuid);
+        if (waiting != null) {
+            GattOperation.Callback replaced = waiting.callback;
+            waiting.supersede(operation.value, operation.callback);
+            if (replaced != null) {
+                replaced.onComplete(waiting, STATUS_SUPERSEDED);
+            }
+            return;
+        }
+        pendingLatest.put(uuid, operation);
+        enqueue(operation);
+    }
+
+    /**
+     * Drops a write to {@code uuid} that is still waiting from {@link #enqueueLatest}, completing it
+     * with {@link #STATUS_SUPERSEDED}; for a caller about to write the characteristic by other means,
+     * so the older value does not go out after its own.
+     */
+    public void supersedeLatest(@NonNull UUID uuid) {
+        GattOperation waiting = pendingLatest.remove(uuid);
+        if (waiting == null) {
+            return;
+        }
+        pending.remove(waiting);
+        notifyComplete(waiting, STATUS_SUPERSEDED);
+        metrics.recordQueueDepth(size());
+    }
+
+    /**
+     * Detaches from a connection that dropped. Writes that have not completed, including one that was
+     * in flight, keep their order and go out once a transport is attached again; every other operation,
+     * including writes made with {@link GattOperation#writeOnce}, is cancelled.
+     */
+    public void suspend() {
+        transport = null;
+        cancelTasks();
+        GattOperation inFlight = current;
+        current = null;
+        onAir = false;
+        overdue = null;
+        if (inFlight != null) {
+            if (isKept(inFlight) && !pendingLatest.containsKey(inFlight.uuid)) {
+                // It may or may not have reached the controller; writes are idempotent, so send it again.
+                // Registered again so a write made while the link is down replaces it rather than
+                // following it.
+                inFlight.attempts = 0;
+                inFlight.startedAtNanos = 0;
+                pending.addFirst(inFlight);
+                if (inFlight.uuid != null) {
+                    pendingLatest.put(inFlight.uuid, inFlight);
+                }
+            } else {
+                notifyComplete(inFlight, isKept(inFlight) ? STATUS_SUPERSEDED : STATUS_CANCELLED);
+            }
+        }
+        Iterator<GattOperation> it = pending.iterator();
+        while (it.hasNext()) {
+            GattOperation op = it.next();
+            if (!isKept(op)) {
+                it.remove();
+                if (op.uuid != null && pendingLatest.get(op.uuid) == op) {
+                    pendingLatest.remove(op.uuid);
+                }
+                notifyComplete(op, STATUS_CANCELLED);
+            }
+        }
+        metrics.recordQueueDepth(size());
+    }
+
+    private static boolean isKept(@NonNull GattOperation op) {
+        return op.type == GattOperation.TYPE_WRITE && op.retained;
+    }
+
+    /**
+     * Number of operations waiting or in flight.
+     */
+    public int size() {
+        return pending.size() + (current != null ? 1 : 0);
+    }
+
+    public void clear() {
+        cancelTasks();
+        GattOperation inFlight = current;
+        current = null;
+        onAir = false;
+        overdue = null;
+        if (inFlight != null) {
+            notifyComplete(inFlight, STATUS_CANCELLED);
+        }
+        pendingLatest.clear();
+        GattOperation op;
+        while ((op = pending.poll()) != null) {
+            notifyComplete(op, STATUS_CANCELLED);
+        }
+        metrics.recordQueueDepth(0);
+    }
+
+    public void onCharacteristicRead(@NonNull UUID uuid, int status) {
+        complete(GattOperation.TYPE_READ, uuid, status);
+    }
+
+    public void onCharacteristicWrite(@NonNull UUID uuid, int status) {
+        complete(GattOperation.TYPE_WRITE, uuid, status);
+    }
+
+    public void onNotificationsChanged(@NonNull UUID characteristicUuid, int status) {
+        complete(GattOperation.TYPE_WRITE_DESCRIPTOR, characteristicUuid, status);
+    }
+
+    public void onMtuChanged(int status) {
+        complete(GattOperation.TYPE_REQUEST_MTU, null, status);
+    }
+
+    private void complete(int type, @Nullable UUID uuid, int status) {
+        GattOperation late = overdue;
+        if (late != null) {
+            // Nothing else has been sent since the timeout, so this can only be the late completion.
+            if (late.matches(type, uuid)) {
+                scheduler.removeCallbacks(graceTask);
+                endGrace();
+            }
+            return;
+        }
+        GattOperation op = current;
+        if (op == null || !onAir || !op.matches(type, uuid)) {
+            // Not ours, or current is waiting for a busy retry and has not been sent.
+            return;
+        }
+        finishCurrent(status);
+    }
+
+    private void startNext() {
+        if (transport == null || overdue != null) {
+            return;
+        }
+        current = pending.poll();
+        if (current != null) {
+            if (current.uuid != null && pendingLatest.get(current.uuid) == current) {
+                pendingLatest.remove(current.uuid);
+            }
+            startCurrent();
+        }
+    }
+
+    private void startCurrent() {
+        GattOperation op = current;
+        if (op == null || transport == null) {
+            return;
+        }
+        if (!op.execute(transport)) {
+            if (op.attempts++ < MAX_BUSY_RETRIES) {
+                scheduler.postDelayed(retryTask, BUSY_RETRY_DELAY_MS * op.attempts);
+            } else {
+                finishCurrent(STATUS_BUSY);
+            }
+            return;
+        }
+        if (op.completesOnSubmit()) {
+            finishCurrent(CoolerTransport.STATUS_SUCCESS);
+        } else {
+            onAir = true;
+            op.startedAtNanos = scheduler.nowNanos();
+            scheduler.postDelayed(timeoutTask, op.timeoutMs);
+        }
+    }
+
+    private void onTimeout() {
+        if (current != null) {
+            overdue = current;
+            scheduler.postDelayed(graceTask, LATE_COMPLETION_GRACE_MS);
+            finishCurrent(STATUS_TIMEOUT);
+        }
+    }
+
+    private void endGrace() {
+        overdue = null;
+        if (current == null) {
+            startNext();
+        }
+        metrics.recordQueueDepth(size());
+    }
+
+    private void cancelTasks() {
+        scheduler.removeCallbacks(timeoutTask);
+        scheduler.removeCallbacks(retryTask);
+        scheduler.removeCallbacks(graceTask);
+    }
+
+    private void finishCurrent(int status) {
+        scheduler.removeCallbacks(timeoutTask);
+        scheduler.removeCallbacks(retryTask);
+        GattOperation op = current;
+        current = null;
+        onAir = false;
+        if (op != null) {
+            recordCompletion(op, status);
+            notifyComplete(op, status);
+        }
+        if (current == null) {
+            startNext();
+        }
+        metrics.recordQueueDepth(size());
+    }
+
+    private void recordCompletion(@NonNull GattOperation op, int status) {
+        if (status == STATUS_TIMEOUT) {
+            metrics.recordTimeout();
+        } else if (status == STATUS_BUSY) {
+            metrics.recordDropped();
+        } else if (op.startedAtNanos != 0) {
+            GattMetrics.Operation operation = op.metricsOperation();
+            if (operation != null) {
+                metrics.recordLatency(operation, scheduler.nowNanos() - op.startedAtNanos);
+            }
+        }
+    }
+
+    private void notifyComplete(@NonNull GattOperation op, int status) {
+        if (status == STATUS_CANCELLED) {
+            metrics.recordCancelled();
+        }
+        if (op.callback != null) {
+            op.callback.onComplete(op, status);
+        }
+    }
+}
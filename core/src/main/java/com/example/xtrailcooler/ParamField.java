@@ -0,0 +1,68 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import java.util.UUID;
+
+/**
+ * The writable parameters of the controller, each with its characteristic. Values are compared in
+ * wire units (tenths of a degree, whole seconds), so two settings that encode to the same payload are
+ * equal even if their floats differ.
+ */
+public enum ParamField {
+    SETPOINT(CharacteristicIds.SETPOINT),
+    HYSTERESIS(CharacteristicIds.HYSTERESIS),
+    HOT_CUT(CharacteristicIds.HOT_CUT),
+    HOT_RESUME(CharacteristicIds.HOT_RESUME),
+    FAN_RUNON(CharacteristicIds.FAN_RUNON);
+
+    /** Every field's {@link #getMask() mask}. */
+    public static final int ALL_MASK = (1 << 5) - 1;
+
+    private final UUID uuid;
+
+    ParamField(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    @NonNull
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * This field's bit in a set of changed fields, as returned by {@link CoolerParams#diff}.
+     */
+    public int getMask() {
+        return 1 << ordinal();
+    }
+
+    public boolean isIn(int fieldMask) {
+        return (fieldMask & getMask()) != 0;
+    }
+
+    /**
+     * The field's value in {@code params} as it would go on the wire.
+     */
+    public int wireValue(@NonNull CoolerParams params) {
+        switch (this) {
+            case SETPOINT:
+                return CoolerCodec.celsiusToRaw(params.getSetpointC());
+            case HYSTERESIS:
+                return CoolerCodec.celsiusToRaw(params.getHysteresisC());
+            case HOT_CUT:
+                return CoolerCodec.celsiusToRaw(params.getHotCutC());
+            case HOT_RESUME:
+                return CoolerCodec.celsiusToRaw(params.getHotResumeC());
+            default:
+                return Math.max(params.getFanRunOnSeconds(), 0);
+        }
+    }
+
+    @NonNull
+    public byte[] encode(int wireValue) {
+        byte[] value = new byte[CoolerCodec.UINT16_SIZE];
+        CoolerCodec.encodeUint16(wireValue, value, 0);
+        return value;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Outcome of a parameter push, field by field. Only fields that differed from the controller's
+ * values were written; each of those was read back afterwards to confirm the controller kept it.
+ */
+public final class ParamsApplyResult {
+    public enum Outcome {
+        /** Already had the desired value; nothing was sent. */
+        UNCHANGED,
+        /** Written, and the read-back matched. */
+        APPLIED,
+        /** Written, but the controller reports a different value, e.g. because it clamped it. */
+        MISMATCH,
+        /** The write or the read-back failed; see {@link #getStatus}. */
+        FAILED
+    }
+
+    private final Outcome[] outcomes = new Outcome[ParamField.values().length];
+    private final int[] readBack = new int[ParamField.values().length];
+    private final int[] statuses = new int[ParamField.values().length];
+    private final boolean[] written = new boolean[ParamField.values().length];
+
+    public ParamsApplyResult() {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = Outcome.UNCHANGED;
+        }
+    }
+
+    void set(@NonNull ParamField field, @NonNull Outcome outcome, int readBackWireValue, int status) {
+        outcomes[field.ordinal()] = outcome;
+        readBack[field.ordinal()] = readBackWireValue;
+        statuses[field.ordinal()] = status;
+    }
+
+    /**
+     * Records that a write for {@code field} was sent rather than cancelled; a field can still fail
+     * without one, e.g. when the link was not ready or dropped before the write went out.
+     */
+    void markWritten(@NonNull ParamField field) {
+        written[field.ordinal()] = true;
+    }
+
+    @NonNull
+    public Outcome getOutcome(@NonNull ParamField field) {
+        return outcomes[field.ordinal()];
+    }
+
+    /**
+     * The value the controller reported after the write, in wire units; only meaningful for
+     * {@link Outcome#APPLIED} and {@link Outcome#MISMATCH}.
+     */
+    public int getReadBack(@NonNull ParamField field) {
+        return readBack[field.ordinal()];
+    }
+
+    /**
+     * The failing status for {@link Outcome#FAILED}, otherwise {@link CoolerTransport#STATUS_SUCCESS}.
+     */
+    public int getStatus(@NonNull ParamField field) {
+        return statuses[field.ordinal()];
+    }
+
+    /**
+     * Whether every field now holds the desired value.
+     */
+    public boolean isSuccess() {
+        for (Outcome outcome : outcomes) {
+            if (outcome == Outcome.MISMATCH || outcome == Outcome.FAILED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a write for {@code field} was sent, whatever its outcome.
+     */
+    public boolean isWritten(@NonNull ParamField field) {
+        return written[field.ordinal()];
+    }
+
+    /**
+     * Number of fields for which a write was sent.
+     */
+    public int getWrittenCount() {
+        int count = 0;
+        for (boolean w : written) {
+            if (w) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
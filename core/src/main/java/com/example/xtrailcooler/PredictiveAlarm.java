@@ -0,0 +1,36 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A client-side warning raised by an {@link AlarmEngine} rule, ahead of or in addition to the
+ * firmware's own alarm bits.
+ */
+public final class PredictiveAlarm {
+    private final String ruleId;
+    private final String message;
+    private final long raisedAtMs;
+
+    public PredictiveAlarm(@NonNull String ruleId, @NonNull String message, long raisedAtMs) {
+        this.ruleId = ruleId;
+        this.message = message;
+        this.raisedAtMs = raisedAtMs;
+    }
+
+    @NonNull
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    @NonNull
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * When the rule tripped, on the clock the engine was fed with.
+     */
+    public long getRaisedAtMs() {
+        return raisedAtMs;
+    }
+}
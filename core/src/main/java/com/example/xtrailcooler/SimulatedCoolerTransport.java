@@ -0,0 +1,468 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process stand-in for an XTrailCooler controller, for exercising the app's {@code BleClient}
+ * without a phone or hardware. It exposes the characteristics of {@link CharacteristicIds} with the firmware's
+ * wire format, runs a simple thermal model driven by setpoint, hysteresis and the hot-side cut-out,
+ * and adds a configurable link latency to every request.
+ * <p>
+ * Pure JVM: all model state lives on a private scheduler thread, and callbacks are delivered through
+ * the executor passed at construction. Notification interval and {@link Config#setTimeScale time
+ * scale} can be pushed well beyond real rates for throughput and soak runs.
+ */
+public class SimulatedCoolerTransport implements CoolerTransport {
+    /** Link supervision timeout, as reported by Android for a dropped link. */
+    public static final int STATUS_LINK_LOST = 0x08;
+
+    private static final int MAX_MTU = 247;
+
+    private static final Set<UUID> CHARACTERISTICS = new HashSet<>(Arrays.asList(
+            CharacteristicIds.INSIDE_TEMP,
+            CharacteristicIds.HOT_TEMP,
+            CharacteristicIds.STATE_BITS,
+            CharacteristicIds.SETPOINT,
+            CharacteristicIds.HYSTERESIS,
+            CharacteristicIds.HOT_CUT,
+            CharacteristicIds.HOT_RESUME,
+            CharacteristicIds.FAN_RUNON,
+            CharacteristicIds.COMMAND,
+            CharacteristicIds.DEVICE_INFO,
+            CharacteristicIds.WIFI_CREDS));
+
+    /**
+     * Simulation settings. Values are read when the transport is created.
+     */
+    public static class Config {
+        private long notificationIntervalMs = 1000L;
+        private long linkLatencyMs = 30L;
+        private float timeScale = 1f;
+        private float ambientC = 30f;
+        private float setpointC = 4f;
+        private float hysteresisC = 1f;
+        private float hotCutC = 70f;
+        private float hotResumeC = 55f;
+        private int fanRunOnSeconds = 30;
+        private String deviceInfo = "XTrailCooler simulator";
+
+        public long getNotificationIntervalMs() {
+            return notificationIntervalMs;
+        }
+
+        /**
+         * Interval between model steps; every step notifies all subscribed telemetry characteristics.
+         */
+        public void setNotificationIntervalMs(long notificationIntervalMs) {
+            this.notificationIntervalMs = notificationIntervalMs;
+        }
+
+        public long getLinkLatencyMs() {
+            return linkLatencyMs;
+        }
+
+        /**
+         * One-way delay applied to connection events, request completions and notifications.
+         */
+        public void setLinkLatencyMs(long linkLatencyMs) {
+            this.linkLatencyMs = linkLatencyMs;
+        }
+
+        public float getTimeScale() {
+            return timeScale;
+        }
+
+        /**
+         * Simulated seconds per real second; values above 1 make the thermal model run faster.
+         */
+        public void setTimeScale(float timeScale) {
+            this.timeScale = timeScale;
+        }
+
+        public float getAmbientC() {
+            return ambientC;
+        }
+
+        public void setAmbientC(float ambientC) {
+            this.ambientC = ambientC;
+        }
+
+        public float getSetpointC() {
+            return setpointC;
+        }
+
+        public void setSetpointC(float setpointC) {
+            this.setpointC = setpointC;
+        }
+
+        public float getHysteresisC() {
+            return hysteresisC;
+        }
+
+        public void setHysteresisC(float hysteresisC) {
+            this.hysteresisC = hysteresisC;
+        }
+
+        public float getHotCutC() {
+            return hotCutC;
+        }
+
+        public void setHotCutC(float hotCutC) {
+            this.hotCutC = hotCutC;
+        }
+
+        public float getHotResumeC() {
+            return hotResumeC;
+        }
+
+        public void setHotResumeC(float hotResumeC) {
+            this.hotResumeC = hotResumeC;
+        }
+
+        public int getFanRunOnSeconds() {
+            return fanRunOnSeconds;
+        }
+
+        public void setFanRunOnSeconds(int fanRunOnSeconds) {
+            this.fanRunOnSeconds = fanRunOnSeconds;
+        }
+
+        public String getDeviceInfo() {
+            return deviceInfo;
+        }
+
+        public void setDeviceInfo(String deviceInfo) {
+            this.deviceInfo = deviceInfo;
+        }
+    }
+
+    /**
+     * Factory for {@code BleClient.connect(CoolerTransport.Factory)}.
+     */
+    @NonNull
+    public static CoolerTransport.Factory factory(@NonNull Config config) {
+        return callbackExecutor -> new SimulatedCoolerTransport(config, callbackExecutor);
+    }
+
+    private final Executor callbackExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final long notificationIntervalMs;
+    private final long latencyMs;
+    private final float timeScale;
+    private final float ambientC;
+    private final String deviceInfo;
+    private final AtomicBoolean requestInFlight = new AtomicBoolean();
+
+    @Nullable
+    private volatile Callback callback;
+    private volatile boolean connected;
+    private volatile boolean discovered;
+
+    // Controller state, scheduler thread only.
+    private float insideC;
+    private float hotC;
+    private float setpointC;
+    private float hysteresisC;
+    private float hotCutC;
+    private float hotResumeC;
+    private int fanRunOnSeconds;
+    private int commandBits;
+    private int stateBits;
+    private boolean cooling;
+    private boolean hotCutActive;
+    private float fanRunOnRemainingS;
+    private final Set<UUID> subscribed = new HashSet<>();
+
+    public SimulatedCoolerTransport(@NonNull Config config, @NonNull Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        notificationIntervalMs = Math.max(1L, config.getNotificationIntervalMs());
+        latencyMs = Math.max(0L, config.getLinkLatencyMs());
+        timeScale = config.getTimeScale();
+        ambientC = config.getAmbientC();
+        deviceInfo = config.getDeviceInfo();
+        insideC = ambientC;
+        hotC = ambientC;
+        setpointC = config.getSetpointC();
+        hysteresisC = config.getHysteresisC();
+        hotCutC = config.getHotCutC();
+        hotResumeC = config.getHotResumeC();
+        fanRunOnSeconds = config.getFanRunOnSeconds();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "SimulatedCooler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void connect(@NonNull Callback callback) {
+        this.callback = callback;
+        scheduler.schedule(() -> {
+            connected = true;
+            deliver(cb -> cb.onConnectionStateChanged(STATUS_SUCCESS, true));
+        }, latencyMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::step, notificationIntervalMs, notificationIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops the link as if the controller went out of range.
+     */
+    public void simulateLinkLoss() {
+        scheduler.execute(() -> {
+            if (!connected) {
+                return;
+            }
+            connected = false;
+            discovered = false;
+            subscribed.clear();
+            deliver(cb -> cb.onConnectionStateChanged(STATUS_LINK_LOST, false));
+        });
+    }
+
+    @Override
+    public boolean discoverServices() {
+        if (!connected) {
+            return false;
+        }
+        scheduler.schedule(() -> {
+            discovered = true;
+            deliver(cb -> cb.onServicesDiscovered(STATUS_SUCCESS));
+        }, latencyMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    @Override
+    public boolean hasCharacteristic(@NonNull UUID uuid) {
+        return discovered && CHARACTERISTICS.contains(uuid);
+    }
+
+    @Override
+    public boolean readCharacteristic(@NonNull UUID uuid) {
+        return request(uuid, () -> {
+            byte[] value = valueOf(uuid);
+            int status = value != null ? STATUS_SUCCESS : STATUS_FAILURE;
+            deliverCompletion(cb -> cb.onCharacteristicRead(uuid, value, status));
+        });
+    }
+
+    @Override
+    public boolean writeCharacteristic(@NonNull UUID uuid, @NonNull byte[] value) {
+        byte[] copy = value.clone();
+        return request(uuid, () -> {
+            int status = applyWrite(uuid, copy) ? STATUS_SUCCESS : STATUS_FAILURE;
+            deliverCompletion(cb -> cb.onCharacteristicWrite(uuid, status));
+        });
+    }
+
+    @Override
+    public boolean setNotificationsEnabled(@NonNull UUID uuid, boolean enabled) {
+        return request(uuid, () -> {
+            if (enabled) {
+                subscribed.add(uuid);
+            } else {
+                subscribed.remove(uuid);
+            }
+            deliverCompletion(cb -> cb.onNotificationsChanged(uuid, STATUS_SUCCESS));
+        });
+    }
+
+    @Override
+    public boolean requestMtu(int mtu) {
+        return request(null, () -> {
+            int agreed = Math.min(mtu, MAX_MTU);
+            deliverCompletion(cb -> cb.onMtuChanged(agreed, STATUS_SUCCESS));
+        });
+    }
+
+    @Override
+    public boolean requestConnectionPriority(int priority) {
+        return connected;
+    }
+
+    @Override
+    public void close() {
+        callback = null;
+        connected = false;
+        discovered = false;
+        scheduler.shutdownNow();
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Request handling
+    // ---------------------------------------------------------------------------------------------
+
+    private interface Delivery {
+        void deliver(@NonNull Callback callback);
+    }
+
+    private boolean request(@Nullable UUID uuid, @NonNull Runnable handler) {
+        if (!connected || (uuid != null && !hasCharacteristic(uuid))) {
+            return false;
+        }
+        // Like GATT, only one request may be outstanding at a time.
+        if (!requestInFlight.compareAndSet(false, true)) {
+            return false;
+        }
+        scheduler.schedule(handler, latencyMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private void deliverCompletion(@NonNull Delivery delivery) {
+        requestInFlight.set(false);
+        deliver(delivery);
+    }
+
+    private void deliver(@NonNull Delivery delivery) {
+        callbackExecutor.execute(() -> {
+            Callback cb = callback;
+            if (cb != null) {
+                delivery.deliver(cb);
+            }
+        });
+    }
+
+    @Nullable
+    private byte[] valueOf(@NonNull UUID uuid) {
+        if (CharacteristicIds.INSIDE_TEMP.equals(uuid)) {
+            return encodeTemperature(insideC);
+        } else if (CharacteristicIds.HOT_TEMP.equals(uuid)) {
+            return encodeTemperature(hotC);
+        } else if (CharacteristicIds.STATE_BITS.equals(uuid)) {
+            return encodeUint16(stateBits);
+        } else if (CharacteristicIds.SETPOINT.equals(uuid)) {
+            return encodeTemperature(setpointC);
+        } else if (CharacteristicIds.HYSTERESIS.equals(uuid)) {
+            return encodeTemperature(hysteresisC);
+        } else if (CharacteristicIds.HOT_CUT.equals(uuid)) {
+            return encodeTemperature(hotCutC);
+        } else if (CharacteristicIds.HOT_RESUME.equals(uuid)) {
+            return encodeTemperature(hotResumeC);
+        } else if (CharacteristicIds.FAN_RUNON.equals(uuid)) {
+            return encodeUint16(fanRunOnSeconds);
+        } else if (CharacteristicIds.DEVICE_INFO.equals(uuid)) {
+            return deviceInfo.getBytes();
+        }
+        return null;
+    }
+
+    private boolean applyWrite(@NonNull UUID uuid, @NonNull byte[] value) {
+        if (CharacteristicIds.COMMAND.equals(uuid) && value.length >= 1) {
+            int bits = value[0] & 0xFF;
+            if ((bits & CoolerCodec.CMD_CLEAR_ALARMS) != 0) {
+                stateBits &= ~CoolerCodec.STATE_OVERHEAT_ALARM;
+            }
+            commandBits = bits & ~CoolerCodec.CMD_CLEAR_ALARMS;
+            updateOutputs(0f);
+            return true;
+        }
+        if (CharacteristicIds.WIFI_CREDS.equals(uuid)) {
+            return CoolerCodec.isValidWifiCredentials(value, 0, value.length);
+        }
+        if (value.length < CoolerCodec.UINT16_SIZE) {
+            return false;
+        }
+        if (CharacteristicIds.SETPOINT.equals(uuid)) {
+            setpointC = CoolerCodec.decodeTemperature(value, 0);
+        } else if (CharacteristicIds.HYSTERESIS.equals(uuid)) {
+            hysteresisC = CoolerCodec.decodeTemperature(value, 0);
+        } else if (CharacteristicIds.HOT_CUT.equals(uuid)) {
+            hotCutC = CoolerCodec.decodeTemperature(value, 0);
+        } else if (CharacteristicIds.HOT_RESUME.equals(uuid)) {
+            hotResumeC = CoolerCodec.decodeTemperature(value, 0);
+        } else if (CharacteristicIds.FAN_RUNON.equals(uuid)) {
+            fanRunOnSeconds = CoolerCodec.decodeUint16(value, 0);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Thermal model
+    // ---------------------------------------------------------------------------------------------
+
+    /** Cooling per active peltier, °C/s at the cold side. */
+    private static final float PEL_COOLING_C_PER_S = 0.008f;
+    /** Heat pumped into the hot side per active peltier, °C/s. */
+    private static final float PEL_HEATING_C_PER_S = 0.5f;
+    /** Inverse time constant of the cabinet towards ambient. */
+    private static final float INSIDE_LEAK_PER_S = 1f / 1800f;
+    private static final float HOT_FAN_LOSS_PER_S = 0.05f;
+    private static final float HOT_PASSIVE_LOSS_PER_S = 0.005f;
+
+    private void step() {
+        if (!connected) {
+            return;
+        }
+        float dt = notificationIntervalMs / 1000f * timeScale;
+        int pels = Integer.bitCount(stateBits & (CoolerCodec.STATE_PEL1 | CoolerCodec.STATE_PEL2));
+        boolean fan = (stateBits & CoolerCodec.STATE_HOT_FAN) != 0;
+        insideC += (-PEL_COOLING_C_PER_S * pels + (ambientC - insideC) * INSIDE_LEAK_PER_S) * dt;
+        float loss = fan ? HOT_FAN_LOSS_PER_S : HOT_PASSIVE_LOSS_PER_S;
+        hotC += (PEL_HEATING_C_PER_S * pels - (hotC - ambientC) * loss) * dt;
+        updateOutputs(dt);
+
+        notifyIfSubscribed(CharacteristicIds.INSIDE_TEMP);
+        notifyIfSubscribed(CharacteristicIds.HOT_TEMP);
+        notifyIfSubscribed(CharacteristicIds.STATE_BITS);
+    }
+
+    private void updateOutputs(float dt) {
+        if (insideC > setpointC + hysteresisC) {
+            cooling = true;
+        } else if (insideC < setpointC) {
+            cooling = false;
+        }
+        if (hotC >= hotCutC) {
+            hotCutActive = true;
+            stateBits |= CoolerCodec.STATE_OVERHEAT_ALARM;
+        } else if (hotC <= hotResumeC) {
+            hotCutActive = false;
+        }
+        boolean pel1 = (cooling && !hotCutActive) || (commandBits & CoolerCodec.CMD_FORCE_PEL1) != 0;
+        boolean pel2 = (cooling && !hotCutActive && insideC > setpointC + 2 * hysteresisC)
+                || (commandBits & CoolerCodec.CMD_FORCE_PEL2) != 0;
+        if (pel1 || pel2 || hotCutActive) {
+            fanRunOnRemainingS = fanRunOnSeconds;
+        } else {
+            fanRunOnRemainingS = Math.max(0f, fanRunOnRemainingS - dt);
+        }
+        boolean fan = fanRunOnRemainingS > 0f || (commandBits & CoolerCodec.CMD_FORCE_FANS) != 0;
+        int outputs = (pel1 ? CoolerCodec.STATE_PEL1 : 0) | (pel2 ? CoolerCodec.STATE_PEL2 : 0) | (fan ? CoolerCodec.STATE_HOT_FAN : 0);
+        stateBits = (stateBits & ~(CoolerCodec.STATE_PEL1 | CoolerCodec.STATE_PEL2 | CoolerCodec.STATE_HOT_FAN)) | outputs;
+    }
+
+    private void notifyIfSubscribed(@NonNull UUID uuid) {
+        if (!subscribed.contains(uuid)) {
+            return;
+        }
+        byte[] value = valueOf(uuid);
+        if (value != null) {
+            scheduler.schedule(() -> deliver(cb -> cb.onCharacteristicChanged(uuid, value)),
+                    latencyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static byte[] encodeTemperature(float celsius) {
+        byte[] value = new byte[CoolerCodec.TEMPERATURE_SIZE];
+        CoolerCodec.encodeTemperature(celsius, value, 0);
+        return value;
+    }
+
+    private static byte[] encodeUint16(int bits) {
+        byte[] value = new byte[CoolerCodec.UINT16_SIZE];
+        CoolerCodec.encodeUint16(bits, value, 0);
+        return value;
+    }
+}
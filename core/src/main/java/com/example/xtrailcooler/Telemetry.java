@@ -27,26 +27,26 @@ public class Telemetry {
     }
 
     public boolean isPel1Active() {
-        return (stateBits & 0x01) != 0;
+        return (stateBits & CoolerCodec.STATE_PEL1) != 0;
     }
 
     public boolean isPel2Active() {
-        return (stateBits & 0x02) != 0;
+        return (stateBits & CoolerCodec.STATE_PEL2) != 0;
     }
 
     public boolean isHotFanActive() {
-        return (stateBits & 0x04) != 0;
+        return (stateBits & CoolerCodec.STATE_HOT_FAN) != 0;
     }
 
     public boolean hasSensorAlarm() {
-        return (stateBits & (1 << 8)) != 0;
+        return (stateBits & CoolerCodec.STATE_SENSOR_ALARM) != 0;
     }
 
     public boolean hasOverheatAlarm() {
-        return (stateBits & (1 << 9)) != 0;
+        return (stateBits & CoolerCodec.STATE_OVERHEAT_ALARM) != 0;
     }
 
     public boolean hasSupplyAlarm() {
-        return (stateBits & (1 << 10)) != 0;
+        return (stateBits & CoolerCodec.STATE_SUPPLY_ALARM) != 0;
     }
 }
@@ -0,0 +1,306 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a time range of a {@link TelemetryLog} to CSV or to a compact columnar binary format,
+ * optionally downsampled and gzipped. Samples are read straight from the log's cursor and written
+ * through fixed-size buffers, so memory use does not depend on how long the log is.
+ * <p>
+ * Both formats carry the same columns: time (ms since the epoch), inside and hot temperature, state
+ * bits and the number of logged samples the row stands for. Without downsampling every row is one
+ * sample. With it, each row covers one bucket of {@link Options#setBucketMs bucketMs}, starting at
+ * the bucket's start time, with the mean temperatures and the state bits OR-ed together, so any
+ * output or alarm that was on during the bucket shows up.
+ * <p>
+ * CSV has a header line and temperatures in °C with one decimal. The binary format is:
+ * <pre>
+ * header:  "XTCE" (4 ASCII bytes), version (1 byte, = 1), bucketMs (varint, 0 = not downsampled)
+ * block:   rows (varint, &gt; 0), then one column after the other for those rows:
+ *          time, inside raw tenths, hot raw tenths, state bits (each as zigzag varint deltas, the
+ *          first from 0), samples (varint)
+ * end:     a block with 0 rows
+ * </pre>
+ * Varints are unsigned LEB128. Blocks hold up to 4096 rows and can be decoded on their own.
+ */
+public final class TelemetryExporter {
+    public enum Format {
+        CSV,
+        BINARY
+    }
+
+    /**
+     * What to export and how.
+     */
+    public static class Options {
+        private Format format = Format.CSV;
+        private long fromMs = Long.MIN_VALUE;
+        private long toMs = Long.MAX_VALUE;
+        private long bucketMs;
+        private boolean gzip;
+
+        public Format getFormat() {
+            return format;
+        }
+
+        public void setFormat(@NonNull Format format) {
+            this.format = format;
+        }
+
+        public long getFromMs() {
+            return fromMs;
+        }
+
+        public long getToMs() {
+            return toMs;
+        }
+
+        /**
+         * Exports samples with {@code fromMs <= time < toMs}; the whole log by default.
+         */
+        public void setRange(long fromMs, long toMs) {
+            this.fromMs = fromMs;
+            this.toMs = toMs;
+        }
+
+        public long getBucketMs() {
+            return bucketMs;
+        }
+
+        /**
+         * Merges samples into one row per {@code bucketMs} of time; {@code 0} (the default) exports
+         * every sample.
+         */
+        public void setBucketMs(long bucketMs) {
+            this.bucketMs = Math.max(0L, bucketMs);
+        }
+
+        public boolean isGzip() {
+            return gzip;
+        }
+
+        public void setGzip(boolean gzip) {
+            this.gzip = gzip;
+        }
+    }
+
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+    private static final int BLOCK_ROWS = 4096;
+    private static final byte[] BINARY_MAGIC = {'X', 'T', 'C', 'E'};
+    private static final int BINARY_VERSION = 1;
+    private static final byte[] CSV_HEADER =
+            "time_ms,inside_c,hot_c,state_bits,samples\n".getBytes(StandardCharsets.US_ASCII);
+
+    private TelemetryExporter() {
+    }
+
+    /**
+     * Writes the export to {@code out}, which is flushed but left open.
+     *
+     * @return the number of rows written
+     */
+    public static long export(@NonNull TelemetryLog log, @NonNull OutputStream out, @NonNull Options options)
+            throws IOException {
+        // Finished rather than closed below, so the caller's stream stays open.
+        GZIPOutputStream gzip = options.isGzip() ? new GZIPOutputStream(out, OUTPUT_BUFFER_BYTES) : null;
+        OutputStream target = new BufferedOutputStream(gzip != null ? gzip : out, OUTPUT_BUFFER_BYTES);
+        RowSink sink = options.getFormat() == Format.CSV
+                ? new CsvSink(target) : new BinarySink(target, options.getBucketMs());
+        long rows = copy(log.query(options.getFromMs(), options.getToMs()), options.getBucketMs(), sink);
+        sink.finish();
+        target.flush();
+        if (gzip != null) {
+            gzip.finish();
+            gzip.flush();
+        }
+        return rows;
+    }
+
+    private static long copy(@NonNull TelemetryLog.Cursor cursor, long bucketMs, @NonNull RowSink sink)
+            throws IOException {
+        long rows = 0;
+        if (bucketMs <= 0) {
+            while (cursor.next()) {
+                sink.row(cursor.timeMs(), cursor.insideRaw(), cursor.hotRaw(), cursor.stateBits(), 1);
+                rows++;
+            }
+            return rows;
+        }
+        long bucket = Long.MIN_VALUE;
+        long insideSum = 0;
+        long hotSum = 0;
+        int stateBits = 0;
+        int samples = 0;
+        while (cursor.next()) {
+            long time = cursor.timeMs();
+            long start = Math.floorDiv(time, bucketMs) * bucketMs;
+            if (start != bucket && samples > 0) {
+                sink.row(bucket, mean(insideSum, samples), mean(hotSum, samples), stateBits, samples);
+                rows++;
+                insideSum = 0;
+                hotSum = 0;
+                stateBits = 0;
+                samples = 0;
+            }
+            bucket = start;
+            insideSum += cursor.insideRaw();
+            hotSum += cursor.hotRaw();
+            stateBits |= cursor.stateBits();
+            samples++;
+        }
+        if (samples > 0) {
+            sink.row(bucket, mean(insideSum, samples), mean(hotSum, samples), stateBits, samples);
+            rows++;
+        }
+        return rows;
+    }
+
+    private static int mean(long sum, int count) {
+        return (int) Math.round((double) sum / count);
+    }
+
+    private interface RowSink {
+        void row(long timeMs, int insideRaw, int hotRaw, int stateBits, int samples) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final OutputStream out;
+        // Longest row: 20-digit time, two temperatures, 5-digit state bits, 10-digit count, separators.
+        private final byte[] line = new byte[64];
+
+        CsvSink(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(CSV_HEADER);
+        }
+
+        @Override
+        public void row(long timeMs, int insideRaw, int hotRaw, int stateBits, int samples) throws IOException {
+            int n = appendLong(line, 0, timeMs);
+            line[n++] = ',';
+            n = appendTenths(line, n, insideRaw);
+            line[n++] = ',';
+            n = appendTenths(line, n, hotRaw);
+            line[n++] = ',';
+            n = appendLong(line, n, stateBits);
+            line[n++] = ',';
+            n = appendLong(line, n, samples);
+            line[n++] = '\n';
+            out.write(line, 0, n);
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        private static int appendTenths(byte[] dst, int offset, int tenths) {
+            if (tenths < 0) {
+                dst[offset++] = '-';
+                tenths = -tenths;
+            }
+            offset = appendLong(dst, offset, tenths / 10);
+            dst[offset++] = '.';
+            dst[offset++] = (byte) ('0' + tenths % 10);
+            return offset;
+        }
+
+        private static int appendLong(byte[] dst, int offset, long value) {
+            if (value < 0) {
+                dst[offset++] = '-';
+                value = -value;
+            }
+            int start = offset;
+            do {
+                dst[offset++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = offset - 1; i < j; i++, j--) {
+                byte b = dst[i];
+                dst[i] = dst[j];
+                dst[j] = b;
+            }
+            return offset;
+        }
+    }
+
+    private static final class BinarySink implements RowSink {
+        private final OutputStream out;
+        private final long[] times = new long[BLOCK_ROWS];
+        private final int[] inside = new int[BLOCK_ROWS];
+        private final int[] hot = new int[BLOCK_ROWS];
+        private final int[] states = new int[BLOCK_ROWS];
+        private final int[] samples = new int[BLOCK_ROWS];
+        private int rows;
+
+        BinarySink(OutputStream out, long bucketMs) throws IOException {
+            this.out = out;
+            out.write(BINARY_MAGIC);
+            out.write(BINARY_VERSION);
+            writeVarint(out, bucketMs);
+        }
+
+        @Override
+        public void row(long timeMs, int insideRaw, int hotRaw, int stateBits, int count) throws IOException {
+            times[rows] = timeMs;
+            inside[rows] = insideRaw;
+            hot[rows] = hotRaw;
+            states[rows] = stateBits;
+            samples[rows] = count;
+            if (++rows == BLOCK_ROWS) {
+                flushBlock();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            flushBlock();
+            writeVarint(out, 0);
+        }
+
+        private void flushBlock() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            writeVarint(out, rows);
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                writeVarint(out, zigzag(times[i] - previous));
+                previous = times[i];
+            }
+            writeDeltas(inside);
+            writeDeltas(hot);
+            writeDeltas(states);
+            for (int i = 0; i < rows; i++) {
+                writeVarint(out, samples[i]);
+            }
+            rows = 0;
+        }
+
+        private void writeDeltas(int[] column) throws IOException {
+            int previous = 0;
+            for (int i = 0; i < rows; i++) {
+                writeVarint(out, zigzag(column[i] - previous));
+                previous = column[i];
+            }
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private static void writeVarint(OutputStream out, long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.xtrailcooler;
+
+/**
+ * Decides which telemetry samples are worth passing on. A sample passes when either temperature has
+ * moved by at least its deadband since the last sample that passed, when the state bits differ at all,
+ * or, with a heartbeat configured, when nothing has passed for that long. Everything else is a repeat
+ * or sensor jitter and is suppressed.
+ * <p>
+ * Deadbands default to zero, which suppresses exact repeats only. Changes are measured from the last
+ * sample that passed rather than the previous one, so a slow drift in steps smaller than the deadband
+ * is still reported once it adds up.
+ * <p>
+ * Not thread safe; the app confines it to the BLE worker thread. Only the counters may be read from
+ * other threads.
+ */
+public class TelemetryFilter {
+    private int insideDeadbandRaw;
+    private int hotDeadbandRaw;
+    private long heartbeatMs;
+
+    private boolean hasPassed;
+    private int lastInsideRaw;
+    private int lastHotRaw;
+    private int lastStateBits;
+    private long lastPassedAtMs;
+
+    private volatile long passedCount;
+    private volatile long suppressedCount;
+
+    /**
+     * Smallest change of the inside temperature, in °C, that passes on its own.
+     */
+    public void setInsideDeadband(float celsius) {
+        insideDeadbandRaw = Math.max(0, CoolerCodec.celsiusToRaw(celsius));
+    }
+
+    /**
+     * Smallest change of the hot-side temperature, in °C, that passes on its own.
+     */
+    public void setHotDeadband(float celsius) {
+        hotDeadbandRaw = Math.max(0, CoolerCodec.celsiusToRaw(celsius));
+    }
+
+    /**
+     * Longest gap between passed samples, so consumers can tell a quiet link from a dead one; {@code 0}
+     * (the default) disables the heartbeat.
+     */
+    public void setHeartbeatMs(long heartbeatMs) {
+        this.heartbeatMs = Math.max(0L, heartbeatMs);
+    }
+
+    public long getHeartbeatMs() {
+        return heartbeatMs;
+    }
+
+    /**
+     * @return whether the sample should be dispatched and stored; if so it becomes the new reference
+     */
+    public boolean accept(long nowMs, int insideRaw, int hotRaw, int stateBits) {
+        boolean pass = !hasPassed
+                || stateBits != lastStateBits
+                || exceeds(insideRaw - lastInsideRaw, insideDeadbandRaw)
+                || exceeds(hotRaw - lastHotRaw, hotDeadbandRaw)
+                || isHeartbeatDue(nowMs);
+        if (!pass) {
+            suppressedCount++;
+            return false;
+        }
+        hasPassed = true;
+        lastInsideRaw = insideRaw;
+        lastHotRaw = hotRaw;
+        lastStateBits = stateBits;
+        lastPassedAtMs = nowMs;
+        passedCount++;
+        return true;
+    }
+
+    /**
+     * Whether a heartbeat is configured and nothing has passed for at least that long.
+     */
+    public boolean isHeartbeatDue(long nowMs) {
+        return heartbeatMs > 0 && hasPassed && nowMs - lastPassedAtMs >= heartbeatMs;
+    }
+
+    /**
+     * Forgets the reference sample, so the next one passes whatever its value; e.g. after a reconnect.
+     */
+    public void reset() {
+        hasPassed = false;
+    }
+
+    public long getPassedCount() {
+        return passedCount;
+    }
+
+    public long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    private static boolean exceeds(int delta, int deadband) {
+        return delta != 0 && Math.abs(delta) >= deadband;
+    }
+}
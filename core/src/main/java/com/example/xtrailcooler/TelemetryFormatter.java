@@ -0,0 +1,110 @@
+package com.example.xtrailcooler;
+
+/**
+ * Allocation-free text for the telemetry readouts. Temperatures are written into caller-owned
+ * {@code char[]} buffers and every output/alarm combination is precomputed, so rendering a telemetry
+ * frame does not create garbage.
+ */
+public final class TelemetryFormatter {
+    /** Returned by {@link #toTenths(float)} for readings that are not a number. */
+    public static final int NO_READING = Integer.MIN_VALUE;
+
+    /** State bits that drive {@link #outputsText(int)}. */
+    public static final int OUTPUT_MASK = 0x07;
+    /** State bits that drive {@link #alarmsText(int)}. */
+    public static final int ALARM_MASK = 0x07 << 8;
+
+    private static final String[] OUTPUT_TEXT = new String[8];
+    private static final String[] ALARM_TEXT = new String[8];
+
+    static {
+        for (int i = 0; i < OUTPUT_TEXT.length; i++) {
+            OUTPUT_TEXT[i] = "Outputs: P1 " + onOff(i & 0x01) + " | P2 " + onOff(i & 0x02) + " | Fan " + onOff(i & 0x04);
+        }
+        String[] alarmNames = {"Sensor fault", "Overheat", "Supply"};
+        for (int i = 0; i < ALARM_TEXT.length; i++) {
+            StringBuilder text = new StringBuilder("Alarms: ");
+            if (i == 0) {
+                text.append("none");
+            }
+            for (int bit = 0; bit < alarmNames.length; bit++) {
+                if ((i & (1 << bit)) != 0) {
+                    if (text.length() > "Alarms: ".length()) {
+                        text.append(", ");
+                    }
+                    text.append(alarmNames[bit]);
+                }
+            }
+            ALARM_TEXT[i] = text.toString();
+        }
+    }
+
+    private TelemetryFormatter() {
+    }
+
+    private static String onOff(int bit) {
+        return bit != 0 ? "ON" : "OFF";
+    }
+
+    /**
+     * Rounds a reading to the 0.1 °C resolution of the display, or {@link #NO_READING}.
+     */
+    public static int toTenths(float celsius) {
+        if (Float.isNaN(celsius)) {
+            return NO_READING;
+        }
+        return Math.round(celsius * 10f);
+    }
+
+    /**
+     * Writes {@code prefix}, the value with one decimal and {@code suffix} into {@code dst}.
+     *
+     * @return number of chars written
+     */
+    public static int formatTenths(char[] dst, String prefix, int tenths, String suffix) {
+        int pos = 0;
+        prefix.getChars(0, prefix.length(), dst, pos);
+        pos += prefix.length();
+        if (tenths == NO_READING) {
+            dst[pos++] = '-';
+            dst[pos++] = '-';
+            dst[pos++] = '.';
+            dst[pos++] = '-';
+        } else {
+            long value = tenths;
+            if (value < 0) {
+                dst[pos++] = '-';
+                value = -value;
+            }
+            long whole = value / 10;
+            int digits = 1;
+            for (long v = whole; v >= 10; v /= 10) {
+                digits++;
+            }
+            for (int i = digits - 1; i >= 0; i--) {
+                dst[pos + i] = (char) ('0' + whole % 10);
+                whole /= 10;
+            }
+            pos += digits;
+            dst[pos++] = '.';
+            dst[pos++] = (char) ('0' + value % 10);
+        }
+        suffix.getChars(0, suffix.length(), dst, pos);
+        return pos + suffix.length();
+    }
+
+    /**
+     * Buffer size large enough for {@link #formatTenths} with the given affixes.
+     */
+    public static int bufferSize(String prefix, String suffix) {
+        return prefix.length() + suffix.length() + 12;
+    }
+
+    public static String outputsText(int stateBits) {
+        return OUTPUT_TEXT[stateBits & OUTPUT_MASK];
+    }
+
+    public static String alarmsText(int stateBits) {
+        return ALARM_TEXT[(stateBits & ALARM_MASK) >> 8];
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.xtrailcooler;
+
+/**
+ * Fixed-memory telemetry history. Samples are kept in primitive ring buffers at full resolution and
+ * rolled up into min/max/mean buckets of 10 s, 1 min and 10 min as they arrive, so readers can pick a
+ * resolution that matches the time span they display without scanning or allocating per sample.
+ * <p>
+ * Indices passed to the getters run from {@code 0} (oldest) to {@code size(resolution) - 1} (newest).
+ * All methods are safe to call from any thread.
+ */
+public class TelemetryHistory {
+    public static final int RESOLUTION_RAW = 0;
+    public static final int RESOLUTION_10S = 1;
+    public static final int RESOLUTION_1MIN = 2;
+    public static final int RESOLUTION_10MIN = 3;
+
+    private static final long[] BUCKET_MS = {0L, 10_000L, 60_000L, 600_000L};
+
+    /** 6 h at one sample per second, 1 day, 1 week and 30 days respectively. */
+    private static final int[] DEFAULT_CAPACITY = {21_600, 8_640, 10_080, 4_320};
+
+    private final Ring[] rings = new Ring[BUCKET_MS.length];
+
+    public TelemetryHistory() {
+        this(DEFAULT_CAPACITY[0], DEFAULT_CAPACITY[1], DEFAULT_CAPACITY[2], DEFAULT_CAPACITY[3]);
+    }
+
+    public TelemetryHistory(int rawCapacity, int tenSecondCapacity, int minuteCapacity, int tenMinuteCapacity) {
+        int[] capacities = {rawCapacity, tenSecondCapacity, minuteCapacity, tenMinuteCapacity};
+        for (int i = 0; i < rings.length; i++) {
+            if (capacities[i] <= 0) {
+                throw new IllegalArgumentException("Capacity must be positive");
+            }
+            rings[i] = new Ring(BUCKET_MS[i], capacities[i]);
+        }
+    }
+
+    public synchronized void add(long timeMs, float insideCelsius, float hotCelsius, int stateBits) {
+        for (Ring ring : rings) {
+            ring.add(timeMs, insideCelsius, hotCelsius, stateBits);
+        }
+    }
+
+    public synchronized void clear() {
+        for (Ring ring : rings) {
+            ring.head = -1;
+            ring.size = 0;
+        }
+    }
+
+    public synchronized int size(int resolution) {
+        return rings[resolution].size;
+    }
+
+    public synchronized int capacity(int resolution) {
+        return rings[resolution].time.length;
+    }
+
+    /**
+     * Width of a bucket at the given resolution, or {@code 0} for raw samples.
+     */
+    public static long bucketMs(int resolution) {
+        return BUCKET_MS[resolution];
+    }
+
+    /**
+     * Index of the first entry whose timestamp is at or after {@code timeMs}, or {@code size} when
+     * every entry is older.
+     */
+    public synchronized int indexAtOrAfter(int resolution, long timeMs) {
+        Ring ring = rings[resolution];
+        int lo = 0;
+        int hi = ring.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ring.time[ring.slot(mid)] < timeMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Sample time for raw entries, bucket start time for rollups.
+     */
+    public synchronized long getTimeMs(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.time[ring.slot(index)];
+    }
+
+    public synchronized float getInsideMin(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.insideMin[ring.slot(index)];
+    }
+
+    public synchronized float getInsideMax(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.insideMax[ring.slot(index)];
+    }
+
+    public synchronized float getInsideMean(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.insideMean[ring.slot(index)];
+    }
+
+    public synchronized float getHotMin(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.hotMin[ring.slot(index)];
+    }
+
+    public synchronized float getHotMax(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.hotMax[ring.slot(index)];
+    }
+
+    public synchronized float getHotMean(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.hotMean[ring.slot(index)];
+    }
+
+    /**
+     * State bits of a raw sample, or every bit seen set during a rollup bucket.
+     */
+    public synchronized int getStateBits(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.state[ring.slot(index)] & 0xFFFF;
+    }
+
+    /**
+     * Number of samples folded into an entry; always {@code 1} for raw samples.
+     */
+    public synchronized int getSampleCount(int resolution, int index) {
+        Ring ring = rings[resolution];
+        return ring.count == null ? 1 : ring.count[ring.slot(index)];
+    }
+
+    /**
+     * One resolution of the history. For raw samples the min, max and mean arrays are the same array,
+     * so a raw sample costs 18 bytes; a rollup bucket costs 38.
+     */
+    private static final class Ring {
+        final long bucketMs;
+        final long[] time;
+        final float[] insideMin;
+        final float[] insideMax;
+        final float[] insideMean;
+        final float[] hotMin;
+        final float[] hotMax;
+        final float[] hotMean;
+        final short[] state;
+        final int[] count;
+
+        int head = -1;
+        int size;
+
+        // Accumulators for the newest (still open) bucket.
+        double insideSum;
+        int insideSamples;
+        double hotSum;
+        int hotSamples;
+
+        Ring(long bucketMs, int capacity) {
+            this.bucketMs = bucketMs;
+            time = new long[capacity];
+            state = new short[capacity];
+            insideMean = new float[capacity];
+            hotMean = new float[capacity];
+            if (bucketMs == 0L) {
+                insideMin = insideMean;
+                insideMax = insideMean;
+                hotMin = hotMean;
+                hotMax = hotMean;
+                count = null;
+            } else {
+                insideMin = new float[capacity];
+                insideMax = new float[capacity];
+                hotMin = new float[capacity];
+                hotMax = new float[capacity];
+                count = new int[capacity];
+            }
+        }
+
+        int slot(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+            }
+            int slot = head - size + 1 + index;
+            return slot < 0 ? slot + time.length : slot;
+        }
+
+        void add(long timeMs, float inside, float hot, int stateBits) {
+            if (bucketMs == 0L) {
+                advance();
+                time[head] = timeMs;
+                insideMean[head] = inside;
+                hotMean[head] = hot;
+                state[head] = (short) stateBits;
+                return;
+            }
+            long bucketStart = timeMs - Math.floorMod(timeMs, bucketMs);
+            if (size == 0 || bucketStart > time[head]) {
+                advance();
+                time[head] = bucketStart;
+                insideMin[head] = Float.NaN;
+                insideMax[head] = Float.NaN;
+                insideMean[head] = Float.NaN;
+                hotMin[head] = Float.NaN;
+                hotMax[head] = Float.NaN;
+                hotMean[head] = Float.NaN;
+                state[head] = 0;
+                count[head] = 0;
+                insideSum = 0d;
+                insideSamples = 0;
+                hotSum = 0d;
+                hotSamples = 0;
+            }
+            // Samples that arrive out of order fold into the open bucket.
+            count[head]++;
+            state[head] |= (short) stateBits;
+            if (!Float.isNaN(inside)) {
+                insideSum += inside;
+                insideSamples++;
+                insideMean[head] = (float) (insideSum / insideSamples);
+                if (insideSamples == 1 || inside < insideMin[head]) {
+                    insideMin[head] = inside;
+                }
+                if (insideSamples == 1 || inside > insideMax[head]) {
+                    insideMax[head] = inside;
+                }
+            }
+            if (!Float.isNaN(hot)) {
+                hotSum += hot;
+                hotSamples++;
+                hotMean[head] = (float) (hotSum / hotSamples);
+                if (hotSamples == 1 || hot < hotMin[head]) {
+                    hotMin[head] = hot;
+                }
+                if (hotSamples == 1 || hot > hotMax[head]) {
+                    hotMax[head] = hot;
+                }
+            }
+        }
+
+        private void advance() {
+            head = head + 1 == time.length ? 0 : head + 1;
+            if (size < time.length) {
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Append-only on-disk log of every telemetry sample.
+ * <p>
+ * Samples are stored as fixed 16-byte little-endian records: time in ms (int64), inside and hot
+ * temperature in raw tenths (int16), state bits (uint16) and a 16-bit checksum. Records go into
+ * segment files of a fixed size that are memory mapped, so an append is a handful of stores into the
+ * page cache and never a system call; only rotating to a new segment touches the file system. The
+ * oldest segments are deleted once {@code maxSegments} is exceeded.
+ * <p>
+ * A segment's header records its record count and time range when it is sealed. The active segment
+ * is never sealed, so after a crash it is recovered by scanning for the first record that is zero,
+ * torn (bad checksum) or out of order; everything from there on is discarded. Timestamps never go
+ * backwards within the log: a sample older than the previous one is stored with the previous time.
+ * <p>
+ * Range queries go through a sparse index holding one timestamp per 4 KiB page, built lazily for
+ * sealed segments, and return a {@link Cursor} that reads straight from the mapped pages.
+ * <p>
+ * Appends, flushes and queries are synchronized; cursors may be used from any one thread.
+ */
+public class TelemetryLog implements Closeable {
+    public static final int RECORD_SIZE = 16;
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+    public static final int DEFAULT_MAX_SEGMENTS = 64;
+
+    private static final int MAGIC = 0x474F4C54; // "TLOG" little-endian
+    private static final short VERSION = 1;
+
+    // Header: magic, version, record size, sealed record count, reserved, first and last time.
+    private static final int HEADER_SIZE = 32;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_RECORD_SIZE = 6;
+    private static final int HEADER_COUNT = 8;
+    private static final int HEADER_FIRST_TIME = 16;
+    private static final int HEADER_LAST_TIME = 24;
+
+    private static final int OFFSET_TIME = 0;
+    private static final int OFFSET_INSIDE = 8;
+    private static final int OFFSET_HOT = 10;
+    private static final int OFFSET_STATE = 12;
+    private static final int OFFSET_CHECKSUM = 14;
+
+    /** Records per index entry; one entry per 4 KiB page. */
+    private static final int INDEX_STRIDE = 256;
+
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".tlog";
+
+    private final File directory;
+    private final int segmentBytes;
+    private final int recordsPerSegment;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>();
+
+    private Segment active;
+    private boolean closed;
+
+    private TelemetryLog(File directory, int segmentBytes, int maxSegments) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.recordsPerSegment = (segmentBytes - HEADER_SIZE) / RECORD_SIZE;
+        this.maxSegments = maxSegments;
+    }
+
+    @NonNull
+    public static TelemetryLog open(@NonNull File directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Opens or creates the log in {@code directory}, recovering the tail of the newest segment.
+     *
+     * @param segmentBytes size of each segment file, a multiple of 4 KiB
+     * @param maxSegments  segments kept before the oldest is deleted, at least 2
+     */
+    @NonNull
+    public static TelemetryLog open(@NonNull File directory, int segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes < 4096 || segmentBytes % 4096 != 0) {
+            throw new IllegalArgumentException("Segment size must be a positive multiple of 4096");
+        }
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("At least two segments are required");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        TelemetryLog log = new TelemetryLog(directory, segmentBytes, maxSegments);
+        log.load();
+        return log;
+    }
+
+    private void load() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            throw new IOException("Cannot list " + directory);
+        }
+        // Names embed a fixed-width hex key that only ever grows, so name order is log order.
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.length() != segmentBytes) {
+                // Written with a different segment size or cut short; not ours to interpret.
+                continue;
+            }
+            long key;
+            try {
+                key = segmentKey(file.getName());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            Segment segment = new Segment(file, key);
+            if (segment.readSealedHeader()) {
+                segments.add(segment);
+            } else if (segment.recover(recordsPerSegment) > 0) {
+                // Only the newest segment can legitimately be unsealed; seal any other one now.
+                if (active != null) {
+                    active.seal();
+                }
+                active = segment;
+                segments.add(segment);
+            } else {
+                segment.delete();
+            }
+        }
+        if (active != null && active != segments.get(segments.size() - 1)) {
+            active.seal();
+            active = null;
+        }
+    }
+
+    /**
+     * Appends one sample. Only rotating to a new segment can fail.
+     */
+    public synchronized void append(long timeMs, int insideRaw, int hotRaw, int stateBits) throws IOException {
+        if (closed) {
+            throw new IOException("Log closed");
+        }
+        long last = lastTimeMs();
+        if (timeMs < last) {
+            timeMs = last;
+        }
+        if (active == null || active.count == recordsPerSegment) {
+            rotate(timeMs);
+        }
+        active.append(timeMs, insideRaw, hotRaw, stateBits);
+    }
+
+    private void rotate(long firstTimeMs) throws IOException {
+        if (active != null) {
+            active.seal();
+            active = null;
+        }
+        while (segments.size() >= maxSegments) {
+            segments.remove(0).delete();
+        }
+        // Keyed by the first timestamp where possible, but a clamped time can equal that of the
+        // segment before, and a file we skipped on load may hold the name already.
+        long key = firstTimeMs;
+        if (!segments.isEmpty()) {
+            key = Math.max(key, segments.get(segments.size() - 1).key + 1);
+        }
+        File file = segmentFile(key);
+        while (file.exists()) {
+            file = segmentFile(++key);
+        }
+        Segment segment = new Segment(file, key);
+        segment.create(segmentBytes);
+        segments.add(segment);
+        active = segment;
+    }
+
+    @NonNull
+    private File segmentFile(long key) {
+        return new File(directory, String.format(Locale.US, "%s%016x%s", SEGMENT_PREFIX, key, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * The key embedded in a segment file name.
+     *
+     * @throws NumberFormatException when the name is not one of ours
+     */
+    private static long segmentKey(@NonNull String name) {
+        String hex = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+        if (hex.length() != 16) {
+            throw new NumberFormatException(name);
+        }
+        return Long.parseUnsignedLong(hex, 16);
+    }
+
+    /**
+     * Total number of records in the log.
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Time of the oldest record, or {@link Long#MIN_VALUE} when the log is empty.
+     */
+    public synchronized long firstTimeMs() {
+        return segments.isEmpty() ? Long.MIN_VALUE : segments.get(0).firstTimeMs;
+    }
+
+    /**
+     * Time of the newest record, or {@link Long#MIN_VALUE} when the log is empty.
+     */
+    public synchronized long lastTimeMs() {
+        return segments.isEmpty() ? Long.MIN_VALUE : segments.get(segments.size() - 1).lastTimeMs;
+    }
+
+    /**
+     * Records with {@code fromMs <= time < toMs}, oldest first. The cursor sees the log as it was when
+     * this method returned.
+     */
+    @NonNull
+    public synchronized Cursor query(long fromMs, long toMs) throws IOException {
+        int first = segments.size();
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).lastTimeMs >= fromMs) {
+                first = i;
+                break;
+            }
+        }
+        int n = segments.size() - first;
+        ByteBuffer[] buffers = new ByteBuffer[n];
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            Segment segment = segments.get(first + i);
+            buffers[i] = segment.map();
+            starts[i] = i == 0 ? segment.indexAtOrAfter(fromMs) : 0;
+            ends[i] = segment.count;
+        }
+        return new Cursor(buffers, starts, ends, toMs);
+    }
+
+    /**
+     * Forces the active segment to storage. Not needed for crash safety of the process, only to
+     * survive a power loss.
+     */
+    public synchronized void flush() {
+        if (active != null) {
+            active.buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+    }
+
+    static int checksum(long timeMs, int insideRaw, int hotRaw, int stateBits) {
+        int h = (int) timeMs ^ (int) (timeMs >>> 32);
+        h = h * 31 + (short) insideRaw;
+        h = h * 31 + (short) hotRaw;
+        h = h * 31 + (stateBits & 0xFFFF);
+        h ^= h >>> 16;
+        // Non-zero for an all-zero record, so unwritten space never passes as data.
+        return (h ^ 0x5A5A) & 0xFFFF;
+    }
+
+    /**
+     * Forward-only view over a time range of the log. Values are read from the mapped segments on
+     * each call; nothing is copied or allocated while iterating.
+     */
+    public static final class Cursor {
+        private final ByteBuffer[] buffers;
+        private final int[] starts;
+        private final int[] ends;
+        private final long toMs;
+        private int segment;
+        private int position = -1;
+
+        Cursor(ByteBuffer[] buffers, int[] starts, int[] ends, long toMs) {
+            this.buffers = buffers;
+            this.starts = starts;
+            this.ends = ends;
+            this.toMs = toMs;
+            if (buffers.length > 0) {
+                position = starts[0] - 1;
+            }
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return {@code false} once the range is exhausted
+         */
+        public boolean next() {
+            while (segment < buffers.length) {
+                if (++position < ends[segment]) {
+                    if (timeMs() >= toMs) {
+                        segment = buffers.length;
+                        return false;
+                    }
+                    return true;
+                }
+                segment++;
+                if (segment < buffers.length) {
+                    position = starts[segment] - 1;
+                }
+            }
+            return false;
+        }
+
+        private int offset() {
+            return HEADER_SIZE + position * RECORD_SIZE;
+        }
+
+        public long timeMs() {
+            return buffers[segment].getLong(offset() + OFFSET_TIME);
+        }
+
+        public int insideRaw() {
+            return buffers[segment].getShort(offset() + OFFSET_INSIDE);
+        }
+
+        public int hotRaw() {
+            return buffers[segment].getShort(offset() + OFFSET_HOT);
+        }
+
+        public int stateBits() {
+            return buffers[segment].getShort(offset() + OFFSET_STATE) & 0xFFFF;
+        }
+
+        public float insideCelsius() {
+            return CoolerCodec.rawToCelsius(insideRaw());
+        }
+
+        public float hotCelsius() {
+            return CoolerCodec.rawToCelsius(hotRaw());
+        }
+    }
+
+    private static final class Segment {
+        final File file;
+        // From the file name; at least the first record's time when the segment was created.
+        final long key;
+        MappedByteBuffer buffer;
+        int count;
+        long firstTimeMs = Long.MIN_VALUE;
+        long lastTimeMs = Long.MIN_VALUE;
+        long[] index;
+
+        Segment(File file, long key) {
+            this.file = file;
+            this.key = key;
+        }
+
+        void create(int size) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(size);
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(HEADER_MAGIC, MAGIC);
+            buffer.putShort(HEADER_VERSION, VERSION);
+            buffer.putShort(HEADER_RECORD_SIZE, (short) RECORD_SIZE);
+            index = new long[(size - HEADER_SIZE) / RECORD_SIZE / INDEX_STRIDE + 1];
+        }
+
+        /**
+         * Reads the header of a sealed segment without mapping it.
+         *
+         * @return {@code false} when the segment was never sealed
+         */
+        boolean readSealedHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.getChannel().read(header, 0);
+            }
+            if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_COUNT) <= 0) {
+                return false;
+            }
+            count = header.getInt(HEADER_COUNT);
+            firstTimeMs = header.getLong(HEADER_FIRST_TIME);
+            lastTimeMs = header.getLong(HEADER_LAST_TIME);
+            return true;
+        }
+
+        /**
+         * Maps an unsealed segment for writing and finds the end of its valid records, zeroing
+         * anything after it so a later crash cannot resurrect stale data.
+         *
+         * @return the number of valid records
+         */
+        int recover(int capacity) throws IOException {
+            long size = file.length();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(HEADER_MAGIC) != MAGIC) {
+                return 0;
+            }
+            index = new long[capacity / INDEX_STRIDE + 1];
+            long previous = Long.MIN_VALUE;
+            int valid = 0;
+            while (valid < capacity) {
+                int offset = HEADER_SIZE + valid * RECORD_SIZE;
+                long time = buffer.getLong(offset + OFFSET_TIME);
+                int checksum = checksum(time, buffer.getShort(offset + OFFSET_INSIDE),
+                        buffer.getShort(offset + OFFSET_HOT), buffer.getShort(offset + OFFSET_STATE));
+                if (time < previous || (buffer.getShort(offset + OFFSET_CHECKSUM) & 0xFFFF) != checksum) {
+                    break;
+                }
+                if (valid % INDEX_STRIDE == 0) {
+                    index[valid / INDEX_STRIDE] = time;
+                }
+                previous = time;
+                valid++;
+            }
+            for (int offset = HEADER_SIZE + valid * RECORD_SIZE; offset < size; offset += 8) {
+                buffer.putLong(offset, 0L);
+            }
+            count = valid;
+            if (valid > 0) {
+                firstTimeMs = buffer.getLong(HEADER_SIZE + OFFSET_TIME);
+                lastTimeMs = previous;
+            }
+            return valid;
+        }
+
+        void append(long timeMs, int insideRaw, int hotRaw, int stateBits) {
+            int offset = HEADER_SIZE + count * RECORD_SIZE;
+            buffer.putLong(offset + OFFSET_TIME, timeMs);
+            buffer.putShort(offset + OFFSET_INSIDE, (short) insideRaw);
+            buffer.putShort(offset + OFFSET_HOT, (short) hotRaw);
+            buffer.putShort(offset + OFFSET_STATE, (short) stateBits);
+            // Checksum last: a record torn by a crash fails verification on recovery.
+            buffer.putShort(offset + OFFSET_CHECKSUM, (short) checksum(timeMs, insideRaw, hotRaw, stateBits));
+            if (count % INDEX_STRIDE == 0) {
+                index[count / INDEX_STRIDE] = timeMs;
+            }
+            if (count == 0) {
+                firstTimeMs = timeMs;
+            }
+            lastTimeMs = timeMs;
+            count++;
+        }
+
+        void seal() {
+            buffer.putLong(HEADER_FIRST_TIME, firstTimeMs);
+            buffer.putLong(HEADER_LAST_TIME, lastTimeMs);
+            buffer.putInt(HEADER_COUNT, count);
+            buffer.force();
+        }
+
+        /**
+         * Maps a sealed segment read-only on first use and builds its sparse index.
+         */
+        ByteBuffer map() throws IOException {
+            if (buffer == null) {
+                long size = file.length();
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                    buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                index = new long[(count + INDEX_STRIDE - 1) / INDEX_STRIDE];
+                for (int i = 0; i < index.length; i++) {
+                    index[i] = buffer.getLong(HEADER_SIZE + i * INDEX_STRIDE * RECORD_SIZE + OFFSET_TIME);
+                }
+            }
+            return buffer;
+        }
+
+        /**
+         * Index of the first record at or after {@code timeMs}, or {@code count}.
+         */
+        int indexAtOrAfter(long timeMs) {
+            int entries = (count + INDEX_STRIDE - 1) / INDEX_STRIDE;
+            int lo = 0;
+            int hi = entries;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (index[mid] < timeMs) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            // Entry lo is the first page starting at or after timeMs; the match may be in the page before.
+            int i = Math.max(lo - 1, 0) * INDEX_STRIDE;
+            int end = Math.min(lo * INDEX_STRIDE, count);
+            while (i < end && buffer.getLong(HEADER_SIZE + i * RECORD_SIZE + OFFSET_TIME) < timeMs) {
+                i++;
+            }
+            return i;
+        }
+
+        void delete() {
+            buffer = null;
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+}
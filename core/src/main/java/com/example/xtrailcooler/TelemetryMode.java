@@ -0,0 +1,11 @@
+package com.example.xtrailcooler;
+
+/**
+ * How telemetry is fetched from a connected controller.
+ */
+public enum TelemetryMode {
+    /** Notifications enabled; every change is pushed by the controller. */
+    STREAMING,
+    /** Notifications disabled; the values are read on a slow schedule. */
+    POLLING
+}
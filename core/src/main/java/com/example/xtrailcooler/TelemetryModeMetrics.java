@@ -0,0 +1,91 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Cost of each {@link TelemetryMode}, so streaming and polling can be compared on a real phone. A
+ * radio wakeup is one notification received or one read issued; each keeps the radio busy beyond the
+ * bare connection events. Battery drain is the fall in the phone's charge counter while in a mode and
+ * covers the whole phone, so it is only meaningful when compared across modes on the same device;
+ * intervals spent charging or on phones without a charge counter are left out of it.
+ * <p>
+ * All methods are safe to call from any thread.
+ */
+public class TelemetryModeMetrics {
+    private static final double MS_PER_HOUR = 3_600_000d;
+
+    private final long[] timeMs = new long[TelemetryMode.values().length];
+    private final long[] wakeups = new long[TelemetryMode.values().length];
+    private final long[] entries = new long[TelemetryMode.values().length];
+    private final long[] measuredTimeMs = new long[TelemetryMode.values().length];
+    private final long[] drainMicroAh = new long[TelemetryMode.values().length];
+    private long escalations;
+
+    /**
+     * Records one uninterrupted stretch of connected time spent in {@code mode}.
+     *
+     * @param drainMicroAh charge drawn over the interval, or a negative value when it could not be
+     *                     measured
+     */
+    public synchronized void recordInterval(TelemetryMode mode, long durationMs, long wakeups, long drainMicroAh) {
+        int i = mode.ordinal();
+        entries[i]++;
+        timeMs[i] += durationMs;
+        this.wakeups[i] += wakeups;
+        if (drainMicroAh >= 0) {
+            measuredTimeMs[i] += durationMs;
+            this.drainMicroAh[i] += drainMicroAh;
+        }
+    }
+
+    /** Records a switch back to streaming while nobody was watching, triggered by an alarm or a fast change. */
+    public synchronized void recordEscalation() {
+        escalations++;
+    }
+
+    /** Connected time spent in {@code mode}. Like every value here, it only covers completed intervals. */
+    public synchronized long getTimeMs(TelemetryMode mode) {
+        return timeMs[mode.ordinal()];
+    }
+
+    public synchronized long getIntervals(TelemetryMode mode) {
+        return entries[mode.ordinal()];
+    }
+
+    public synchronized long getWakeups(TelemetryMode mode) {
+        return wakeups[mode.ordinal()];
+    }
+
+    /** Wakeups per hour of connected time in {@code mode}, or {@code NaN} before any interval completed. */
+    public synchronized double getWakeupsPerHour(TelemetryMode mode) {
+        long time = timeMs[mode.ordinal()];
+        return time == 0 ? Double.NaN : wakeups[mode.ordinal()] * MS_PER_HOUR / time;
+    }
+
+    /** Phone battery drain per hour in {@code mode}, in µAh, or {@code NaN} when it was never measured. */
+    public synchronized double getDrainMicroAhPerHour(TelemetryMode mode) {
+        long time = measuredTimeMs[mode.ordinal()];
+        return time == 0 ? Double.NaN : drainMicroAh[mode.ordinal()] * MS_PER_HOUR / time;
+    }
+
+    public synchronized long getEscalations() {
+        return escalations;
+    }
+
+    /**
+     * Writes a plain-text report in the same {@code key value...} form as
+     * {@link GattMetrics#writeReport}.
+     */
+    public synchronized void writeReport(@NonNull Appendable out) throws IOException {
+        out.append("# mode intervals time_ms wakeups wakeups_per_h drain_uah_per_h\n");
+        for (TelemetryMode mode : TelemetryMode.values()) {
+            out.append(String.format(Locale.US, "mode.%s %d %d %d %.0f %.0f%n", mode.name().toLowerCase(Locale.US),
+                    getIntervals(mode), getTimeMs(mode), getWakeups(mode), getWakeupsPerHour(mode),
+                    getDrainMicroAhPerHour(mode)));
+        }
+        out.append(String.format(Locale.US, "escalations %d%n", escalations));
+    }
+}
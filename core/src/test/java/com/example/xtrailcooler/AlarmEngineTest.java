@@ -0,0 +1,167 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AlarmEngineTest {
+    private static final long MINUTE_MS = 60_000L;
+    private static final long SAMPLE_MS = 5_000L;
+    private static final int RUNNING = CoolerCodec.STATE_PEL1 | CoolerCodec.STATE_HOT_FAN;
+    private static final CoolerParams PARAMS = new CoolerParams(5f, 2f, 60f, 50f, 30);
+
+    private final List<List<PredictiveAlarm>> changes = new ArrayList<>();
+    private AlarmEngine engine;
+    private long timeMs;
+
+    @Before
+    public void setUp() {
+        engine = new AlarmEngine(changes::add);
+        engine.addRule(new AlarmRules.HotRiseRule(5 * MINUTE_MS, 30_000L, 2 * MINUTE_MS));
+        engine.addRule(new AlarmRules.OutOfBandRule(15 * MINUTE_MS));
+        engine.addRule(new AlarmRules.StuckSensorRule(AlarmRules.Sensor.INSIDE, 30 * MINUTE_MS));
+        engine.setParams(PARAMS);
+    }
+
+    private void sample(float insideC, float hotC, int stateBits) {
+        engine.onSample(timeMs, CoolerCodec.celsiusToRaw(insideC), CoolerCodec.celsiusToRaw(hotC), stateBits);
+        timeMs += SAMPLE_MS;
+    }
+
+    /** Inside wobbles inside the band so only the rule under test can fire. */
+    private float wobble() {
+        return 5f + ((timeMs / SAMPLE_MS) % 2 == 0 ? 0.1f : -0.1f);
+    }
+
+    @NonNull
+    private List<PredictiveAlarm> active() {
+        return changes.isEmpty() ? new ArrayList<>() : changes.get(changes.size() - 1);
+    }
+
+    private boolean isActive(@NonNull String ruleId) {
+        for (PredictiveAlarm alarm : active()) {
+            if (alarm.getRuleId().equals(ruleId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void risingHotSideWarnsBeforeTheCutAndClearsOnRecovery() {
+        float hot = 40f;
+        for (int i = 0; i < 30 * MINUTE_MS / SAMPLE_MS; i++) {
+            sample(wobble(), 40f, RUNNING);
+        }
+        assertTrue(changes.isEmpty());
+
+        // 1 °C/min towards the 60 °C cut-out.
+        float raisedAtC = Float.NaN;
+        while (hot < PARAMS.getHotCutC()) {
+            sample(wobble(), hot, RUNNING);
+            if (isActive("hot_rise")) {
+                raisedAtC = hot;
+                break;
+            }
+            hot += 1f * SAMPLE_MS / MINUTE_MS;
+        }
+        assertFalse("never raised", Float.isNaN(raisedAtC));
+        // Five minutes ahead at 1 °C/min, give or take the smoothing lag.
+        assertTrue("raised at " + raisedAtC, raisedAtC > 50f && raisedAtC < 57f);
+        assertEquals(1, changes.size());
+        assertEquals(timeMs - SAMPLE_MS, active().get(0).getRaisedAtMs());
+
+        // The fan catches up and the hot side cools.
+        for (int i = 0; i < 10 * MINUTE_MS / SAMPLE_MS && isActive("hot_rise"); i++) {
+            hot -= 0.5f * SAMPLE_MS / MINUTE_MS;
+            sample(wobble(), hot, RUNNING);
+        }
+        assertFalse(isActive("hot_rise"));
+        assertEquals(2, changes.size());
+        assertTrue(hot > 50f);
+    }
+
+    @Test
+    public void hotRiseNeedsAKnownCutOut() {
+        engine.setParams(PARAMS.withHotCutC(Float.NaN));
+        float hot = 40f;
+        for (int i = 0; i < 40 * MINUTE_MS / SAMPLE_MS; i++) {
+            sample(wobble(), hot, RUNNING);
+            hot += 1f * SAMPLE_MS / MINUTE_MS;
+        }
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void shortExcursionOutOfBandDoesNotRaise() {
+        for (int i = 0; i < 14 * MINUTE_MS / SAMPLE_MS; i++) {
+            sample(10f, 40f, RUNNING);
+        }
+        sample(5f, 40f, RUNNING);
+        for (int i = 0; i < 14 * MINUTE_MS / SAMPLE_MS; i++) {
+            sample(10f, 40f, RUNNING);
+        }
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void longExcursionOutOfBandRaisesAndClears() {
+        long start = timeMs;
+        while (!isActive("out_of_band")) {
+            sample(10f, 40f, CoolerCodec.STATE_PEL1 | CoolerCodec.STATE_PEL2);
+            assertTrue(timeMs - start <= 16 * MINUTE_MS);
+        }
+        assertEquals(start + 15 * MINUTE_MS, active().get(0).getRaisedAtMs());
+        assertTrue(active().get(0).getMessage().contains("above"));
+
+        sample(6.5f, 40f, RUNNING);
+        assertFalse(isActive("out_of_band"));
+    }
+
+    @Test
+    public void constantReadingWhileRunningRaisesStuckSensor() {
+        long start = timeMs;
+        while (!isActive("stuck_inside")) {
+            sample(5f, 40f + (timeMs / SAMPLE_MS) % 3 * 0.1f, RUNNING);
+            assertTrue(timeMs - start <= 31 * MINUTE_MS);
+        }
+        assertEquals(start + 30 * MINUTE_MS, active().get(0).getRaisedAtMs());
+
+        sample(5.1f, 40f, RUNNING);
+        assertFalse(isActive("stuck_inside"));
+    }
+
+    @Test
+    public void constantReadingWhileIdleIsExpected() {
+        for (int i = 0; i < 60 * MINUTE_MS / SAMPLE_MS; i++) {
+            sample(5f, 30f, i % 20 == 0 ? RUNNING : 0);
+        }
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void resetClearsRaisedAlarms() {
+        for (int i = 0; i <= 30 * MINUTE_MS / SAMPLE_MS; i++) {
+            sample(5f, 40f, RUNNING);
+        }
+        assertTrue(isActive("stuck_inside"));
+
+        engine.reset();
+        assertTrue(active().isEmpty());
+        sample(5f, 40f, RUNNING);
+        assertTrue(active().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateRuleIdsAreRejected() {
+        engine.addRule(new AlarmRules.OutOfBandRule(MINUTE_MS));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.xtrailcooler;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class CharacteristicTableTest {
+    /** Every cooler UUID declared in CharacteristicIds, by reflection so new ones are covered too. */
+    private static List<UUID> coolerIds() throws IllegalAccessException {
+        List<UUID> ids = new ArrayList<>();
+        for (Field field : CharacteristicIds.class.getDeclaredFields()) {
+            if (field.getType() == UUID.class && Modifier.isPublic(field.getModifiers())) {
+                UUID uuid = (UUID) field.get(null);
+                if (!uuid.equals(CharacteristicIds.CLIENT_CONFIG_DESCRIPTOR)) {
+                    ids.add(uuid);
+                }
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void everyIdHasADistinctShortId() throws IllegalAccessException {
+        Set<Integer> seen = new HashSet<>();
+        for (UUID uuid : coolerIds()) {
+            int id = CharacteristicIds.shortId(uuid);
+            assertEquals(uuid.toString(), Integer.parseInt(uuid.toString().substring(4, 8), 16), id);
+            assertTrue("duplicate short id for " + uuid, seen.add(id));
+        }
+        assertEquals(0x1001, CharacteristicIds.shortId(CharacteristicIds.INSIDE_TEMP));
+    }
+
+    @Test
+    public void foreignUuidsHaveNoShortId() {
+        assertEquals(-1, CharacteristicIds.shortId(CharacteristicIds.CLIENT_CONFIG_DESCRIPTOR));
+        assertEquals(-1, CharacteristicIds.shortId(UUID.fromString("b4f11001-0000-1000-8000-00805f9b34fb")));
+        assertEquals(-1, CharacteristicIds.shortId(UUID.fromString("b4f01001-0001-1000-8000-00805f9b34fb")));
+        assertEquals(-1, CharacteristicIds.shortId(UUID.fromString("b4f01001-0000-1000-8000-00805f9b34fc")));
+    }
+
+    @Test
+    public void everyCharacteristicFindsItsOwnHandler() throws IllegalAccessException {
+        CharacteristicTable<UUID> table = new CharacteristicTable<>();
+        List<UUID> registered = new ArrayList<>();
+        for (UUID uuid : coolerIds()) {
+            if (!uuid.equals(CharacteristicIds.SERVICE_COOLER)) {
+                table.register(uuid, uuid);
+                registered.add(uuid);
+            }
+        }
+        for (UUID uuid : registered) {
+            assertEquals(uuid, table.get(uuid));
+        }
+        assertNull(table.get(CharacteristicIds.SERVICE_COOLER));
+        assertNull(table.get(CharacteristicIds.CLIENT_CONFIG_DESCRIPTOR));
+        assertNull(table.get(UUID.randomUUID()));
+        // Same layout and slot group, but not registered.
+        assertNull(table.get(UUID.fromString("b4f01004-0000-1000-8000-00805f9b34fb")));
+    }
+
+    @Test
+    public void idsOutsideTheLayoutAreRejected() {
+        CharacteristicTable<String> table = new CharacteristicTable<>();
+        table.register(CharacteristicIds.INSIDE_TEMP, "inside");
+        assertRejected(table, CharacteristicIds.INSIDE_TEMP);
+        // 0x1011 would share 0x1001's slot.
+        assertRejected(table, UUID.fromString("b4f01011-0000-1000-8000-00805f9b34fb"));
+        assertRejected(table, CharacteristicIds.CLIENT_CONFIG_DESCRIPTOR);
+        assertEquals("inside", table.get(CharacteristicIds.INSIDE_TEMP));
+        assertNull(table.get(UUID.fromString("b4f01011-0000-1000-8000-00805f9b34fb")));
+    }
+
+    private static void assertRejected(CharacteristicTable<String> table, UUID uuid) {
+        assertThrows(IllegalArgumentException.class, () -> table.register(uuid, "other"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.xtrailcooler;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoolerCodecTest {
+    @Test
+    public void temperaturesAreSignedTenthsLittleEndian() {
+        byte[] buffer = new byte[CoolerCodec.TEMPERATURE_SIZE];
+        assertEquals(CoolerCodec.TEMPERATURE_SIZE, CoolerCodec.encodeTemperature(-12.3f, buffer, 0));
+        assertArrayEquals(new byte[]{(byte) 0x85, (byte) 0xFF}, buffer);
+        assertEquals(-123, CoolerCodec.decodeSint16(buffer, 0));
+        assertEquals(-12.3f, CoolerCodec.decodeTemperature(buffer, 0), 0.001f);
+
+        for (float celsius : new float[]{-40f, -0.1f, 0f, 4.5f, 85.2f}) {
+            CoolerCodec.encodeTemperature(celsius, buffer, 0);
+            assertEquals(celsius, CoolerCodec.decodeTemperature(buffer, 0), 0.001f);
+        }
+    }
+
+    @Test
+    public void byteBufferVariantsUseAbsoluteIndicesAndIgnoreByteOrder() {
+        ByteBuffer buffer = ByteBuffer.allocate(6);
+        buffer.position(5);
+        CoolerCodec.encodeTemperature(-0.5f, buffer, 2);
+        assertEquals(5, buffer.position());
+        assertEquals((byte) 0xFB, buffer.get(2));
+        assertEquals((byte) 0xFF, buffer.get(3));
+        assertEquals(-0.5f, CoolerCodec.decodeTemperature(buffer, 2), 0.001f);
+    }
+
+    @Test
+    public void fanRunOnIsUnsigned() {
+        byte[] buffer = new byte[CoolerCodec.UINT16_SIZE];
+        CoolerCodec.encodeUint16(65535, buffer, 0);
+        assertEquals(65535, CoolerCodec.decodeUint16(buffer, 0));
+        assertEquals(-1, CoolerCodec.decodeSint16(buffer, 0));
+        CoolerCodec.encodeUint16(300, buffer, 0);
+        assertArrayEquals(new byte[]{0x2C, 0x01}, buffer);
+        assertEquals(300, CoolerCodec.decodeUint16(ByteBuffer.wrap(buffer), 0));
+    }
+
+    @Test
+    public void batchDecodingHonoursOffsetAndStride() {
+        // Three 5-byte frames after a 3-byte prefix: temperature at +0, state bits at +2, one pad byte.
+        int offset = 3;
+        int stride = 5;
+        float[] temperatures = {-20.5f, 0f, 37.1f};
+        int[] states = {0, 0x8001, 0xFFFF};
+        byte[] frames = new byte[offset + stride * 3];
+        for (int i = 0; i < 3; i++) {
+            CoolerCodec.encodeTemperature(temperatures[i], frames, offset + i * stride);
+            CoolerCodec.encodeUint16(states[i], frames, offset + i * stride + 2);
+        }
+
+        float[] decodedTemperatures = new float[4];
+        int[] decodedStates = new int[4];
+        CoolerCodec.decodeTemperatures(frames, offset, stride, 3, decodedTemperatures, 1);
+        CoolerCodec.decodeUint16s(frames, offset + 2, stride, 3, decodedStates, 1);
+        assertArrayEquals(new float[]{0f, -20.5f, 0f, 37.1f}, decodedTemperatures, 0.001f);
+        assertArrayEquals(new int[]{0, 0, 0x8001, 0xFFFF}, decodedStates);
+
+        ByteBuffer buffer = ByteBuffer.wrap(frames);
+        float[] bufferTemperatures = new float[3];
+        int[] bufferStates = new int[3];
+        CoolerCodec.decodeTemperatures(buffer, offset, stride, 3, bufferTemperatures, 0);
+        CoolerCodec.decodeUint16s(buffer, offset + 2, stride, 3, bufferStates, 0);
+        assertArrayEquals(temperatures, bufferTemperatures, 0.001f);
+        assertArrayEquals(states, bufferStates);
+    }
+
+    @Test
+    public void wifiCredentialsRoundTrip() {
+        byte[] ssid = "Camp".getBytes(StandardCharsets.UTF_8);
+        byte[] password = "secret12".getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[1 + CoolerCodec.wifiCredentialsSize(ssid.length, password.length)];
+
+        int size = CoolerCodec.encodeWifiCredentials(ssid, password, payload, 1);
+        assertEquals(2 + ssid.length + password.length, size);
+        assertEquals(ssid.length, payload[1]);
+        assertEquals(password.length, payload[2 + ssid.length]);
+        assertTrue(CoolerCodec.isValidWifiCredentials(payload, 1, size));
+        assertFalse(CoolerCodec.isValidWifiCredentials(payload, 1, size - 1));
+    }
+
+    @Test
+    public void wifiCredentialsOverTheLimitsAreRefused() {
+        assertEquals(2 + CoolerCodec.MAX_SSID_BYTES + CoolerCodec.MAX_PASSWORD_BYTES,
+                CoolerCodec.wifiCredentialsSize(CoolerCodec.MAX_SSID_BYTES, CoolerCodec.MAX_PASSWORD_BYTES));
+        assertEquals(-1, CoolerCodec.wifiCredentialsSize(CoolerCodec.MAX_SSID_BYTES + 1, 0));
+        assertEquals(-1, CoolerCodec.wifiCredentialsSize(0, CoolerCodec.MAX_PASSWORD_BYTES + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encodingTooLongCredentialsThrows() {
+        CoolerCodec.encodeWifiCredentials(new byte[CoolerCodec.MAX_SSID_BYTES + 1], new byte[0], new byte[128], 0);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.xtrailcooler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CoolerParamsTest {
+    private static final CoolerParams BASE = new CoolerParams(4f, 1f, 65f, 55f, 60);
+
+    @Test
+    public void unchangedValueReturnsTheSameInstance() {
+        assertSame(BASE, BASE.withSetpointC(4f));
+        assertSame(BASE, BASE.withFanRunOnSeconds(60));
+        CoolerParams unread = BASE.withHotCutC(Float.NaN);
+        assertSame(unread, unread.withHotCutC(Float.NaN));
+    }
+
+    @Test
+    public void changedValueBumpsTheVersion() {
+        CoolerParams changed = BASE.withSetpointC(5f).withHysteresisC(2f);
+        assertNotSame(BASE, changed);
+        assertEquals(2L, changed.getVersion());
+        assertEquals(5f, changed.getSetpointC(), 0f);
+        assertEquals(2f, changed.getHysteresisC(), 0f);
+        assertEquals(4f, BASE.getSetpointC(), 0f);
+    }
+
+    @Test
+    public void diffReportsChangedFieldsOnly() {
+        assertEquals(0, BASE.diff(BASE.withSetpointC(5f).withSetpointC(4f)));
+        CoolerParams changed = BASE.withHotResumeC(50f).withFanRunOnSeconds(90);
+        assertEquals(ParamField.HOT_RESUME.getMask() | ParamField.FAN_RUNON.getMask(), changed.diff(BASE));
+        assertEquals(changed.diff(BASE), BASE.diff(changed));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.xtrailcooler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceSnapshotTest {
+    private static final CoolerParams PARAMS = new CoolerParams(4.5f, 1.5f, 65f, 55f, 90);
+
+    @Test
+    public void roundTripsEveryPart() {
+        DeviceSnapshot snapshot = new DeviceSnapshot(new Telemetry(3.7f, -12.3f, 0x8005), 1_700_000_000_123L,
+                PARAMS, "fw 1.2 · hw B");
+        byte[] data = snapshot.encode();
+        DeviceSnapshot decoded = DeviceSnapshot.decode(data, data.length);
+
+        assertNotNull(decoded);
+        assertEquals(1_700_000_000_123L, decoded.getTelemetryTimeMs());
+        assertNotNull(decoded.getTelemetry());
+        assertEquals(3.7f, decoded.getTelemetry().getInsideCelsius(), 0.001f);
+        assertEquals(-12.3f, decoded.getTelemetry().getHotCelsius(), 0.001f);
+        assertEquals(0x8005, decoded.getTelemetry().getStateBits());
+        CoolerParams params = decoded.getParams();
+        assertNotNull(params);
+        assertEquals(4.5f, params.getSetpointC(), 0f);
+        assertEquals(1.5f, params.getHysteresisC(), 0f);
+        assertEquals(65f, params.getHotCutC(), 0f);
+        assertEquals(55f, params.getHotResumeC(), 0f);
+        assertEquals(90, params.getFanRunOnSeconds());
+        assertEquals("fw 1.2 · hw B", decoded.getDeviceInfo());
+    }
+
+    @Test
+    public void missingPartsStayMissing() {
+        byte[] data = new DeviceSnapshot(null, 0L, PARAMS, null).encode();
+        DeviceSnapshot decoded = DeviceSnapshot.decode(data, data.length);
+
+        assertNotNull(decoded);
+        assertNull(decoded.getTelemetry());
+        assertNull(decoded.getDeviceInfo());
+        assertNotNull(decoded.getParams());
+
+        byte[] empty = new DeviceSnapshot(null, 0L, null, null).encode();
+        DeviceSnapshot decodedEmpty = DeviceSnapshot.decode(empty, empty.length);
+        assertNotNull(decodedEmpty);
+        assertTrue(decodedEmpty.isEmpty());
+    }
+
+    @Test
+    public void anyFlippedBitIsRejected() {
+        byte[] data = new DeviceSnapshot(new Telemetry(1f, 2f, 3), 42L, PARAMS, "info").encode();
+        for (int i = 0; i < data.length; i++) {
+            for (int bit = 0; bit < 8; bit++) {
+                byte[] corrupt = data.clone();
+                corrupt[i] ^= (byte) (1 << bit);
+                assertNull("byte " + i + " bit " + bit, DeviceSnapshot.decode(corrupt, corrupt.length));
+            }
+        }
+    }
+
+    @Test
+    public void truncatedDataIsRejected() {
+        byte[] data = new DeviceSnapshot(new Telemetry(1f, 2f, 3), 42L, PARAMS, "info").encode();
+        for (int length = 0; length < data.length; length++) {
+            assertNull("length " + length, DeviceSnapshot.decode(Arrays.copyOf(data, length), length));
+            assertNull("length " + length, DeviceSnapshot.decode(data, length));
+        }
+    }
+
+    @Test
+    public void lengthBeyondTheArrayIsRejected() {
+        byte[] data = new DeviceSnapshot(null, 0L, PARAMS, null).encode();
+        assertNull(DeviceSnapshot.decode(data, data.length + 1));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.xtrailcooler;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DutyCycleAnalyticsTest {
+    private static final double EPS = 1e-9;
+    private static final long MINUTE_MS = 60_000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final int PEL1 = CoolerCodec.STATE_PEL1;
+    private static final int PEL2 = CoolerCodec.STATE_PEL2;
+    private static final int FAN = CoolerCodec.STATE_HOT_FAN;
+    private static final int INSIDE = CoolerCodec.celsiusToRaw(5f);
+
+    /** Credits every gap, so samples are only needed where the state changes. */
+    private static DutyCycleAnalytics sparse(long... windowMs) {
+        DutyCycleAnalytics analytics = new DutyCycleAnalytics(windowMs);
+        analytics.setMaxGapMs(Long.MAX_VALUE);
+        return analytics;
+    }
+
+    @Test
+    public void dutyAndEnergyFollowTheStateBits() {
+        DutyCycleAnalytics analytics = sparse(HOUR_MS);
+        // Two cycles of 10 min PEL1 on, 20 min off, with the fan running throughout and PEL2 on for
+        // the first 5 min of each cycle.
+        long t = 0;
+        for (int cycle = 0; cycle < 2; cycle++) {
+            analytics.update(t, INSIDE, FAN);
+            analytics.update(t += MINUTE_MS, INSIDE, PEL1 | PEL2 | FAN);
+            analytics.update(t += 5 * MINUTE_MS, INSIDE, PEL1 | FAN);
+            analytics.update(t += 5 * MINUTE_MS, INSIDE, FAN);
+            t += 19 * MINUTE_MS;
+        }
+        analytics.update(t, INSIDE, FAN);
+
+        assertEquals(HOUR_MS, analytics.getObservedMs());
+        assertEquals(20 * MINUTE_MS, analytics.getOnTimeMs(DutyCycleAnalytics.Output.PEL1));
+        assertEquals(10 * MINUTE_MS, analytics.getOnTimeMs(DutyCycleAnalytics.Output.PEL2));
+        assertEquals(HOUR_MS, analytics.getOnTimeMs(DutyCycleAnalytics.Output.HOT_FAN));
+        assertEquals(1 / 3d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1), EPS);
+        assertEquals(1 / 6d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL2), EPS);
+        assertEquals(1d, analytics.getDutyCycle(DutyCycleAnalytics.Output.HOT_FAN), EPS);
+        assertEquals(1 / 3d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1, 0), EPS);
+        assertEquals(2, analytics.getSwitchOns(DutyCycleAnalytics.Output.PEL1));
+        assertEquals(2, analytics.getSwitchOns(DutyCycleAnalytics.Output.PEL2));
+        assertEquals(0, analytics.getSwitchOns(DutyCycleAnalytics.Output.HOT_FAN));
+
+        // 60 W for 20 min and 10 min, 3 W for an hour.
+        assertEquals(20d, analytics.getEnergyWh(DutyCycleAnalytics.Output.PEL1), EPS);
+        assertEquals(10d, analytics.getEnergyWh(DutyCycleAnalytics.Output.PEL2), EPS);
+        assertEquals(3d, analytics.getEnergyWh(DutyCycleAnalytics.Output.HOT_FAN), EPS);
+        assertEquals(33d, analytics.getTotalEnergyWh(), EPS);
+        analytics.setPowerWatts(DutyCycleAnalytics.Output.PEL1, 48f);
+        assertEquals(16d, analytics.getEnergyWh(DutyCycleAnalytics.Output.PEL1), EPS);
+    }
+
+    @Test
+    public void rollingWindowForgetsOlderTime() {
+        DutyCycleAnalytics analytics = sparse(HOUR_MS, 4 * HOUR_MS);
+        // On for the first hour, off for the second.
+        analytics.update(0, INSIDE, PEL1);
+        analytics.update(HOUR_MS, INSIDE, 0);
+        analytics.update(2 * HOUR_MS, INSIDE, 0);
+
+        assertEquals(0d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1, 0), EPS);
+        assertEquals(0.5d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1, 1), EPS);
+        assertEquals(0.5d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1), EPS);
+
+        // Half an hour on again: the last hour is half on.
+        analytics.update(2 * HOUR_MS + 30 * MINUTE_MS, INSIDE, PEL1);
+        analytics.update(3 * HOUR_MS, INSIDE, PEL1);
+        assertEquals(0.5d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1, 0), EPS);
+        assertEquals(1.5d / 3, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1, 1), EPS);
+    }
+
+    @Test
+    public void gapsAndBrokenSeriesAreNotCredited() {
+        DutyCycleAnalytics analytics = new DutyCycleAnalytics(HOUR_MS);
+        analytics.setMaxGapMs(5 * MINUTE_MS);
+        analytics.update(0, INSIDE, PEL1);
+        analytics.update(5 * MINUTE_MS, INSIDE, PEL1);
+        // Six minutes without a sample: nobody knows what happened.
+        analytics.update(11 * MINUTE_MS, INSIDE, 0);
+        analytics.update(12 * MINUTE_MS, INSIDE, PEL1);
+        analytics.breakSeries();
+        analytics.update(13 * MINUTE_MS, INSIDE, 0);
+        analytics.update(15 * MINUTE_MS, INSIDE, 0);
+
+        assertEquals(8 * MINUTE_MS, analytics.getObservedMs());
+        assertEquals(5 * MINUTE_MS, analytics.getOnTimeMs(DutyCycleAnalytics.Output.PEL1));
+        assertEquals(5 / 8d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1), EPS);
+        assertEquals(5 / 8d, analytics.getDutyCycle(DutyCycleAnalytics.Output.PEL1, 0), EPS);
+    }
+
+    @Test
+    public void insideStatisticsAreWeightedByTime() {
+        DutyCycleAnalytics analytics = sparse(HOUR_MS);
+        assertTrue(Double.isNaN(analytics.getInsideMeanC()));
+        // 4 °C for 30 min, then a burst of 8 °C samples covering 10 min.
+        analytics.update(0, CoolerCodec.celsiusToRaw(4f), 0);
+        long t = 30 * MINUTE_MS;
+        for (int i = 0; i < 600; i++) {
+            analytics.update(t, CoolerCodec.celsiusToRaw(8f), 0);
+            t += 1000L;
+        }
+        analytics.update(t, CoolerCodec.celsiusToRaw(8f), 0);
+
+        assertEquals(40 * MINUTE_MS, analytics.getObservedMs());
+        // (4 * 30 + 8 * 10) / 40 and (1 * 30 + 9 * 10) / 40.
+        assertEquals(5d, analytics.getInsideMeanC(), 1e-6);
+        assertEquals(3d, analytics.getInsideVariance(), 1e-6);
+        assertEquals(Math.sqrt(3d), analytics.getInsideStdDevC(), 1e-6);
+        assertEquals(602, analytics.getInsideSampleCount());
+    }
+
+    @Test
+    public void reportListsEveryOutput() throws IOException {
+        DutyCycleAnalytics analytics = sparse(HOUR_MS);
+        analytics.update(0, INSIDE, PEL1);
+        analytics.update(30 * MINUTE_MS, INSIDE, 0);
+        StringBuilder report = new StringBuilder();
+        analytics.writeReport(report);
+
+        assertTrue(report.toString(), report.toString().contains("output.pel1 1800000 0 1.000 30.00 3600s:1.000\n"));
+        assertTrue(report.toString(), report.toString().contains("output.hot_fan 0 0 0.000 0.00 3600s:0.000\n"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.xtrailcooler;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventStreamTest {
+    /** Runs tasks only when told to, standing in for a busy consumer thread. */
+    private static final class ManualExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    @Test
+    public void latestKeepsOnlyTheNewestEvent() {
+        EventStream<Integer> stream = new EventStream<>(false);
+        ManualExecutor executor = new ManualExecutor();
+        List<Integer> received = new ArrayList<>();
+        EventStream.Subscription subscription = stream.subscribe(executor, received::add);
+        for (int i = 1; i <= 5; i++) {
+            stream.publish(i);
+        }
+        executor.runAll();
+
+        assertEquals(Collections.singletonList(5), received);
+        assertEquals(4, subscription.getDropped());
+    }
+
+    @Test
+    public void bufferDropsNewEventsWhenFull() {
+        EventStream<Integer> stream = new EventStream<>(false);
+        ManualExecutor executor = new ManualExecutor();
+        List<Integer> received = new ArrayList<>();
+        EventStream.Subscription subscription =
+                stream.subscribe(executor, EventStream.Backpressure.BUFFER, 3, received::add);
+        for (int i = 1; i <= 5; i++) {
+            stream.publish(i);
+        }
+        executor.runAll();
+
+        assertEquals(Arrays.asList(1, 2, 3), received);
+        assertEquals(2, subscription.getDropped());
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewestEvents() {
+        EventStream<Integer> stream = new EventStream<>(false);
+        ManualExecutor executor = new ManualExecutor();
+        List<Integer> received = new ArrayList<>();
+        stream.subscribe(executor, EventStream.Backpressure.DROP_OLDEST, 3, received::add);
+        for (int i = 1; i <= 5; i++) {
+            stream.publish(i);
+        }
+        executor.runAll();
+
+        assertEquals(Arrays.asList(3, 4, 5), received);
+    }
+
+    @Test
+    public void replaysTheLatestEventToNewSubscribers() {
+        EventStream<String> stream = new EventStream<>(true);
+        stream.publish("old");
+        stream.publish("current");
+        List<String> received = new ArrayList<>();
+        stream.subscribe(Runnable::run, received::add);
+        stream.publish("next");
+
+        assertEquals(Arrays.asList("current", "next"), received);
+    }
+
+    @Test
+    public void cancelledSubscriberGetsNothingMore() {
+        EventStream<Integer> stream = new EventStream<>(false);
+        ManualExecutor executor = new ManualExecutor();
+        List<Integer> received = new ArrayList<>();
+        EventStream.Subscription subscription = stream.subscribe(executor, received::add);
+        stream.publish(1);
+        subscription.cancel();
+        stream.publish(2);
+        executor.runAll();
+
+        assertEquals(Collections.emptyList(), received);
+        assertEquals(false, stream.hasSubscribers());
+    }
+}
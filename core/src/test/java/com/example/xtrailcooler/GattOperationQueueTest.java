@@ -0,0 +1,398 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class GattOperationQueueTest {
+    private static final UUID SETPOINT = CharacteristicIds.SETPOINT;
+    private static final UUID HYSTERESIS = CharacteristicIds.HYSTERESIS;
+
+    /** Virtual time: delayed tasks run only when the test advances the clock. */
+    private static final class ManualScheduler implements GattOperationQueue.Scheduler {
+        private static final class Task {
+            final Runnable runnable;
+            final long dueMs;
+
+            Task(Runnable runnable, long dueMs) {
+                this.runnable = runnable;
+                this.dueMs = dueMs;
+            }
+        }
+
+        final List<Task> tasks = new ArrayList<>();
+        long nowMs;
+
+        @Override
+        public void postDelayed(@NonNull Runnable task, long delayMs) {
+            tasks.add(new Task(task, nowMs + delayMs));
+        }
+
+        @Override
+        public void removeCallbacks(@NonNull Runnable task) {
+            Iterator<Task> it = tasks.iterator();
+            while (it.hasNext()) {
+                if (it.next().runnable == task) {
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        public long nowNanos() {
+            return nowMs * 1_000_000L;
+        }
+
+        void advance(long ms) {
+            long target = nowMs + ms;
+            while (true) {
+                Task next = null;
+                for (Task task : tasks) {
+                    if (task.dueMs <= target && (next == null || task.dueMs < next.dueMs)) {
+                        next = task;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                tasks.remove(next);
+                nowMs = next.dueMs;
+                next.runnable.run();
+            }
+            nowMs = target;
+        }
+    }
+
+    /** Records what the queue puts on air; completions are delivered by the test. */
+    private static final class FakeTransport implements CoolerTransport {
+        final List<String> submitted = new ArrayList<>();
+        int refusals;
+
+        private boolean submit(String request) {
+            if (refusals > 0) {
+                refusals--;
+                return false;
+            }
+            submitted.add(request);
+            return true;
+        }
+
+        @Override
+        public void connect(@NonNull Callback callback) {
+        }
+
+        @Override
+        public boolean discoverServices() {
+            return true;
+        }
+
+        @Override
+        public boolean hasCharacteristic(@NonNull UUID uuid) {
+            return true;
+        }
+
+        @Override
+        public boolean readCharacteristic(@NonNull UUID uuid) {
+            return submit("read " + name(uuid));
+        }
+
+        @Override
+        public boolean writeCharacteristic(@NonNull UUID uuid, @NonNull byte[] value) {
+            return submit("write " + name(uuid) + "=" + value[0]);
+        }
+
+        @Override
+        public boolean setNotificationsEnabled(@NonNull UUID uuid, boolean enabled) {
+            return submit("notify " + name(uuid) + "=" + enabled);
+        }
+
+        @Override
+        public boolean requestMtu(int mtu) {
+            return submit("mtu " + mtu);
+        }
+
+        @Override
+        public boolean requestConnectionPriority(int priority) {
+            return submit("priority " + priority);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private static String name(UUID uuid) {
+            return SETPOINT.equals(uuid) ? "setpoint" : HYSTERESIS.equals(uuid) ? "hysteresis" : uuid.toString();
+        }
+    }
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final FakeTransport transport = new FakeTransport();
+    private final List<String> completions = new ArrayList<>();
+    private GattOperationQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new GattOperationQueue(scheduler);
+        queue.setTransport(transport);
+    }
+
+    private GattOperation.Callback record(String label) {
+        return (operation, status) -> completions.add(label + ":" + status);
+    }
+
+    private static byte[] value(int b) {
+        return new byte[]{(byte) b};
+    }
+
+    @Test
+    public void enqueueLatestReplacesAWaitingWriteInPlace() {
+        queue.enqueue(GattOperation.read(HYSTERESIS, record("read")));
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.enqueue(GattOperation.write(HYSTERESIS, value(9), record("hyst")));
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(2), record("w2")));
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(3), record("w3")));
+
+        assertEquals(Arrays.asList(
+                "w1:" + GattOperationQueue.STATUS_SUPERSEDED,
+                "w2:" + GattOperationQueue.STATUS_SUPERSEDED), completions);
+        assertEquals(3, queue.size());
+
+        queue.onCharacteristicRead(HYSTERESIS, CoolerTransport.STATUS_SUCCESS);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        queue.onCharacteristicWrite(HYSTERESIS, CoolerTransport.STATUS_SUCCESS);
+
+        // The newest value goes out once, where the first write was queued.
+        assertEquals(Arrays.asList("read hysteresis", "write setpoint=3", "write hysteresis=9"), transport.submitted);
+        assertEquals(Arrays.asList(
+                "w1:" + GattOperationQueue.STATUS_SUPERSEDED,
+                "w2:" + GattOperationQueue.STATUS_SUPERSEDED,
+                "read:0", "w3:0", "hyst:0"), completions);
+    }
+
+    @Test
+    public void enqueueLatestDoesNotTouchAWriteAlreadyOnAir() {
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(2), record("w2")));
+
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+
+        assertEquals(Arrays.asList("write setpoint=1", "write setpoint=2"), transport.submitted);
+        assertEquals(Arrays.asList("w1:0", "w2:0"), completions);
+    }
+
+    @Test
+    public void suspendKeepsRetainedWritesInOrderAndCancelsTheRest() {
+        queue.enqueue(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.enqueue(GattOperation.read(SETPOINT, record("read")));
+        queue.enqueue(GattOperation.writeOnce(HYSTERESIS, value(5), record("once")));
+        queue.enqueue(GattOperation.write(HYSTERESIS, value(6), record("w2")));
+
+        queue.suspend();
+
+        assertEquals(Arrays.asList(
+                "read:" + GattOperationQueue.STATUS_CANCELLED,
+                "once:" + GattOperationQueue.STATUS_CANCELLED), completions);
+        assertEquals(2, queue.size());
+
+        transport.submitted.clear();
+        queue.setTransport(transport);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        queue.onCharacteristicWrite(HYSTERESIS, CoolerTransport.STATUS_SUCCESS);
+
+        // The write that was in flight is sent again first.
+        assertEquals(Arrays.asList("write setpoint=1", "write hysteresis=6"), transport.submitted);
+        assertEquals("w1:0", completions.get(2));
+        assertEquals("w2:0", completions.get(3));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void writeWhileSuspendedReplacesTheInFlightWrite() {
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.suspend();
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(2), record("w2")));
+
+        assertEquals(Arrays.asList("w1:" + GattOperationQueue.STATUS_SUPERSEDED), completions);
+        assertEquals(1, queue.size());
+
+        transport.submitted.clear();
+        queue.setTransport(transport);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+
+        assertEquals(Arrays.asList("write setpoint=2"), transport.submitted);
+        assertEquals(Arrays.asList("w1:" + GattOperationQueue.STATUS_SUPERSEDED, "w2:0"), completions);
+    }
+
+    @Test
+    public void suspendSupersedesAnInFlightWriteThatIsAlreadyQueuedAgain() {
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(2), record("w2")));
+
+        queue.suspend();
+
+        assertEquals(Arrays.asList("w1:" + GattOperationQueue.STATUS_SUPERSEDED), completions);
+        assertEquals(1, queue.size());
+
+        transport.submitted.clear();
+        queue.setTransport(transport);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+
+        assertEquals(Arrays.asList("write setpoint=2"), transport.submitted);
+        assertEquals("w2:0", completions.get(1));
+    }
+
+    @Test
+    public void setTransportNullCancelsEverything() {
+        queue.enqueue(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.enqueueLatest(GattOperation.write(HYSTERESIS, value(2), record("w2")));
+
+        queue.setTransport(null);
+
+        assertEquals(Arrays.asList(
+                "w1:" + GattOperationQueue.STATUS_CANCELLED,
+                "w2:" + GattOperationQueue.STATUS_CANCELLED), completions);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void timeoutCompletesTheOperationAndMovesOn() {
+        queue.enqueue(GattOperation.read(SETPOINT, record("read")));
+        queue.enqueue(GattOperation.read(HYSTERESIS, record("next")));
+
+        scheduler.advance(4999);
+        assertEquals(Collections.emptyList(), completions);
+
+        scheduler.advance(1);
+        assertEquals(Arrays.asList("read:" + GattOperationQueue.STATUS_TIMEOUT), completions);
+
+        // The next operation waits out the grace period for a late completion first.
+        assertEquals(Arrays.asList("read setpoint"), transport.submitted);
+        scheduler.advance(1000);
+        assertEquals(Arrays.asList("read setpoint", "read hysteresis"), transport.submitted);
+        queue.onCharacteristicRead(HYSTERESIS, CoolerTransport.STATUS_SUCCESS);
+        assertEquals("next:0", completions.get(1));
+    }
+
+    @Test
+    public void busyTransportIsRetriedWithGrowingDelay() {
+        transport.refusals = 5;
+        queue.enqueue(GattOperation.write(SETPOINT, value(1), record("w")));
+
+        // Retries after 40, 80, 120, 160 and 200 ms.
+        long[] delays = {40, 80, 120, 160, 200};
+        for (long delay : delays) {
+            assertEquals(Collections.emptyList(), transport.submitted);
+            scheduler.advance(delay - 1);
+            assertEquals(Collections.emptyList(), transport.submitted);
+            scheduler.advance(1);
+        }
+        assertEquals(Arrays.asList("write setpoint=1"), transport.submitted);
+
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        assertEquals(Arrays.asList("w:0"), completions);
+    }
+
+    @Test
+    public void busyTransportGivesUpAfterFiveRetries() {
+        transport.refusals = 6;
+        queue.enqueue(GattOperation.write(SETPOINT, value(1), record("w")));
+        queue.enqueue(GattOperation.read(HYSTERESIS, record("next")));
+
+        scheduler.advance(40 + 80 + 120 + 160 + 200);
+
+        assertEquals(Arrays.asList("w:" + GattOperationQueue.STATUS_BUSY), completions);
+        assertEquals(Arrays.asList("read hysteresis"), transport.submitted);
+    }
+
+    @Test
+    public void completionWhileWaitingForARetryIsIgnored() {
+        queue.enqueue(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        transport.refusals = 1;
+        queue.enqueue(GattOperation.write(SETPOINT, value(2), record("w2")));
+
+        // A stray completion arrives before the refused write was ever sent.
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        assertEquals(Arrays.asList("w1:0"), completions);
+
+        scheduler.advance(40);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        assertEquals(Arrays.asList("write setpoint=1", "write setpoint=2"), transport.submitted);
+        assertEquals(Arrays.asList("w1:0", "w2:0"), completions);
+    }
+
+    @Test
+    public void enqueueFirstJumpsTheQueueButNotTheOperationInFlight() {
+        queue.enqueue(GattOperation.read(SETPOINT, record("first")));
+        queue.enqueue(GattOperation.read(HYSTERESIS, record("second")));
+        queue.enqueueFirst(GattOperation.write(HYSTERESIS, value(7), record("urgent")));
+
+        queue.onCharacteristicRead(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        queue.onCharacteristicWrite(HYSTERESIS, CoolerTransport.STATUS_SUCCESS);
+        queue.onCharacteristicRead(HYSTERESIS, CoolerTransport.STATUS_SUCCESS);
+
+        assertEquals(Arrays.asList("read setpoint", "write hysteresis=7", "read hysteresis"), transport.submitted);
+        assertEquals(Arrays.asList("first:0", "urgent:0", "second:0"), completions);
+    }
+
+    @Test
+    public void lateCompletionIsNotCreditedToTheNextOperation() {
+        queue.enqueue(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.enqueue(GattOperation.write(SETPOINT, value(2), record("w2")));
+
+        scheduler.advance(5000);
+        assertEquals(Arrays.asList("w1:" + GattOperationQueue.STATUS_TIMEOUT), completions);
+
+        // The stack answers the timed-out write after all; the queued write goes out only now.
+        scheduler.advance(300);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        assertEquals(Arrays.asList("w1:" + GattOperationQueue.STATUS_TIMEOUT), completions);
+        assertEquals(Arrays.asList("write setpoint=1", "write setpoint=2"), transport.submitted);
+
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_FAILURE);
+        assertEquals("w2:" + CoolerTransport.STATUS_FAILURE, completions.get(1));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void completionForAnotherCharacteristicDoesNotEndTheGracePeriod() {
+        queue.enqueue(GattOperation.read(SETPOINT, record("read")));
+        queue.enqueue(GattOperation.read(HYSTERESIS, record("next")));
+        scheduler.advance(5000);
+
+        queue.onCharacteristicRead(HYSTERESIS, CoolerTransport.STATUS_SUCCESS);
+        assertEquals(Arrays.asList("read setpoint"), transport.submitted);
+        assertEquals(1, completions.size());
+
+        scheduler.advance(1000);
+        assertEquals(Arrays.asList("read setpoint", "read hysteresis"), transport.submitted);
+    }
+
+    @Test
+    public void supersedeLatestDropsOnlyTheWaitingCoalescedWrite() {
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(1), record("w1")));
+        queue.enqueueLatest(GattOperation.write(SETPOINT, value(2), record("w2")));
+        queue.enqueue(GattOperation.write(HYSTERESIS, value(3), record("hyst")));
+
+        queue.supersedeLatest(SETPOINT);
+        queue.supersedeLatest(HYSTERESIS);
+        queue.enqueue(GattOperation.writeOnce(SETPOINT, value(4), record("push")));
+
+        assertEquals(Arrays.asList("w2:" + GattOperationQueue.STATUS_SUPERSEDED), completions);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        queue.onCharacteristicWrite(HYSTERESIS, CoolerTransport.STATUS_SUCCESS);
+        queue.onCharacteristicWrite(SETPOINT, CoolerTransport.STATUS_SUCCESS);
+        assertEquals(Arrays.asList("write setpoint=1", "write hysteresis=3", "write setpoint=4"), transport.submitted);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.xtrailcooler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getValueAtPercentile(50));
+        assertEquals(0d, histogram.getMeanMicros(), 0d);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int v = 1; v <= 10; v++) {
+            histogram.record(v);
+        }
+        assertEquals(5L, histogram.getValueAtPercentile(50));
+        assertEquals(9L, histogram.getValueAtPercentile(90));
+        assertEquals(10L, histogram.getValueAtPercentile(100));
+        assertEquals(5.5d, histogram.getMeanMicros(), 1e-9);
+    }
+
+    @Test
+    public void percentilesAreWithinOneSubBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+        for (double percentile : new double[]{1, 25, 50, 90, 99, 99.9}) {
+            long exact = (long) Math.ceil(percentile / 100 * 100_000);
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + reported, reported >= exact);
+            assertTrue(percentile + ": " + reported, reported <= exact + exact / 16 + 1);
+        }
+        assertEquals(100_000L, histogram.getValueAtPercentile(100));
+        assertEquals(100_000L, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void everyValueFallsInTheBucketThatCoversIt() {
+        for (long v = 0; v < 1 << 20; v += 1 + v / 64) {
+            int index = LatencyHistogram.bucketIndex(v);
+            assertTrue(v + " above its bucket", v <= LatencyHistogram.highestEquivalentValue(index));
+            if (index > 0) {
+                assertTrue(v + " in a later bucket", v > LatencyHistogram.highestEquivalentValue(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0L, histogram.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_MICROS, histogram.getMaxMicros());
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_MICROS, histogram.getValueAtPercentile(100));
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.xtrailcooler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatedCoolerTransportTest {
+    private static final long TIMEOUT_MS = 5000L;
+
+    /** Collects callbacks, which the simulator delivers on its own thread here. */
+    private static final class Recorder implements CoolerTransport.Callback {
+        final BlockingQueue<int[]> connections = new LinkedBlockingQueue<>();
+        final BlockingQueue<Integer> discoveries = new LinkedBlockingQueue<>();
+        final BlockingQueue<byte[]> reads = new LinkedBlockingQueue<>();
+        final BlockingQueue<Integer> writes = new LinkedBlockingQueue<>();
+        final BlockingQueue<Integer> subscriptions = new LinkedBlockingQueue<>();
+        final AtomicInteger insideNotifications = new AtomicInteger();
+        final BlockingQueue<Integer> insideRaw = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onConnectionStateChanged(int status, boolean connected) {
+            connections.add(new int[]{status, connected ? 1 : 0});
+        }
+
+        @Override
+        public void onServicesDiscovered(int status) {
+            discoveries.add(status);
+        }
+
+        @Override
+        public void onCharacteristicRead(@NonNull UUID uuid, @Nullable byte[] value, int status) {
+            reads.add(status == CoolerTransport.STATUS_SUCCESS && value != null ? value : new byte[0]);
+        }
+
+        @Override
+        public void onCharacteristicWrite(@NonNull UUID uuid, int status) {
+            writes.add(status);
+        }
+
+        @Override
+        public void onCharacteristicChanged(@NonNull UUID uuid, @NonNull byte[] value) {
+            if (CharacteristicIds.INSIDE_TEMP.equals(uuid)) {
+                insideNotifications.incrementAndGet();
+                insideRaw.add(CoolerCodec.decodeSint16(value, 0));
+            }
+        }
+
+        @Override
+        public void onNotificationsChanged(@NonNull UUID uuid, int status) {
+            subscriptions.add(status);
+        }
+
+        @Override
+        public void onMtuChanged(int mtu, int status) {
+        }
+    }
+
+    private SimulatedCoolerTransport transport;
+    private final Recorder recorder = new Recorder();
+
+    @After
+    public void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    private void connect(@NonNull SimulatedCoolerTransport.Config config) throws InterruptedException {
+        transport = new SimulatedCoolerTransport(config, Runnable::run);
+        transport.connect(recorder);
+        int[] connection = take(recorder.connections);
+        assertEquals(CoolerTransport.STATUS_SUCCESS, connection[0]);
+        assertEquals(1, connection[1]);
+        assertTrue(transport.discoverServices());
+        assertEquals(CoolerTransport.STATUS_SUCCESS, (int) take(recorder.discoveries));
+        assertTrue(transport.hasCharacteristic(CharacteristicIds.SETPOINT));
+    }
+
+    private void subscribeInside() throws InterruptedException {
+        assertTrue(transport.setNotificationsEnabled(CharacteristicIds.INSIDE_TEMP, true));
+        assertEquals(CoolerTransport.STATUS_SUCCESS, (int) take(recorder.subscriptions));
+    }
+
+    @NonNull
+    private static <T> T take(@NonNull BlockingQueue<T> queue) throws InterruptedException {
+        T value = queue.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull("timed out", value);
+        return value;
+    }
+
+    @Test
+    public void notifiesAtTheConfiguredInterval() throws InterruptedException {
+        SimulatedCoolerTransport.Config config = new SimulatedCoolerTransport.Config();
+        config.setNotificationIntervalMs(10L);
+        config.setLinkLatencyMs(1L);
+        connect(config);
+        subscribeInside();
+
+        int before = recorder.insideNotifications.get();
+        Thread.sleep(1000L);
+        int received = recorder.insideNotifications.get() - before;
+        // 100 expected; generous bounds for a loaded CI machine.
+        assertTrue("received " + received, received >= 50 && received <= 110);
+    }
+
+    @Test
+    public void insideTemperatureSettlesWithinTheHysteresisBand() throws InterruptedException {
+        SimulatedCoolerTransport.Config config = new SimulatedCoolerTransport.Config();
+        // Below setpoint + 2 * hysteresis only one Peltier runs, and one Peltier cannot hold 4 °C
+        // against the default 30 °C ambient, so cool a milder cabinet.
+        config.setAmbientC(15f);
+        config.setSetpointC(4f);
+        config.setHysteresisC(1f);
+        config.setNotificationIntervalMs(2L);
+        config.setLinkLatencyMs(0L);
+        // 5 simulated seconds per step: an hour of cooling takes about 1.5 s.
+        config.setTimeScale(2500f);
+        connect(config);
+        subscribeInside();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        int raw;
+        do {
+            raw = take(recorder.insideRaw);
+            assertTrue("did not reach the band", System.currentTimeMillis() < deadline);
+        } while (raw > 50);
+        // Then it stays there: hundreds of steps, each cycling between setpoint and setpoint + hysteresis.
+        recorder.insideRaw.clear();
+        for (int i = 0; i < 300; i++) {
+            raw = take(recorder.insideRaw);
+            assertTrue("left the band at " + raw, raw >= 38 && raw <= 52);
+        }
+    }
+
+    @Test
+    public void writesCompleteAfterTheLinkLatencyAndReadBack() throws InterruptedException {
+        SimulatedCoolerTransport.Config config = new SimulatedCoolerTransport.Config();
+        config.setLinkLatencyMs(100L);
+        connect(config);
+
+        byte[] value = new byte[CoolerCodec.TEMPERATURE_SIZE];
+        CoolerCodec.encodeTemperature(-2.5f, value, 0);
+        long start = System.nanoTime();
+        assertTrue(transport.writeCharacteristic(CharacteristicIds.SETPOINT, value));
+        // Like GATT, one request at a time.
+        assertFalse(transport.readCharacteristic(CharacteristicIds.SETPOINT));
+        assertEquals(CoolerTransport.STATUS_SUCCESS, (int) take(recorder.writes));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("completed after " + elapsedMs + " ms", elapsedMs >= 100L);
+
+        assertTrue(transport.readCharacteristic(CharacteristicIds.SETPOINT));
+        assertArrayEquals(value, take(recorder.reads));
+    }
+
+    @Test
+    public void invalidWritesFail() throws InterruptedException {
+        SimulatedCoolerTransport.Config config = new SimulatedCoolerTransport.Config();
+        config.setLinkLatencyMs(0L);
+        connect(config);
+
+        assertTrue(transport.writeCharacteristic(CharacteristicIds.WIFI_CREDS, new byte[]{5, 'a'}));
+        assertEquals(CoolerTransport.STATUS_FAILURE, (int) take(recorder.writes));
+        assertFalse(transport.writeCharacteristic(UUID.randomUUID(), new byte[2]));
+    }
+
+    @Test
+    public void linkLossReportsADisconnect() throws InterruptedException {
+        SimulatedCoolerTransport.Config config = new SimulatedCoolerTransport.Config();
+        config.setNotificationIntervalMs(5L);
+        config.setLinkLatencyMs(0L);
+        connect(config);
+        subscribeInside();
+        take(recorder.insideRaw);
+
+        transport.simulateLinkLoss();
+        int[] connection = take(recorder.connections);
+        assertEquals(SimulatedCoolerTransport.STATUS_LINK_LOST, connection[0]);
+        assertEquals(0, connection[1]);
+        assertFalse(transport.hasCharacteristic(CharacteristicIds.SETPOINT));
+        assertFalse(transport.readCharacteristic(CharacteristicIds.SETPOINT));
+
+        // Notifications stop with the link.
+        Thread.sleep(50L);
+        int count = recorder.insideNotifications.get();
+        Thread.sleep(100L);
+        assertEquals(count, recorder.insideNotifications.get());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.xtrailcooler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TelemetryExporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void binaryRoundTripsAcrossBlocks() throws IOException {
+        // More rows than one block holds, with negative temperatures and large deltas in every column.
+        int count = 4096 * 2 + 17;
+        long[][] expected = new long[count][];
+        try (TelemetryLog log = TelemetryLog.open(folder.newFolder())) {
+            long time = 1_700_000_000_000L;
+            for (int i = 0; i < count; i++) {
+                time += i % 7 == 0 ? 3_600_000L : 1000L;
+                int inside = (i % 50) - 25;
+                int hot = i % 2 == 0 ? -400 : 850;
+                int state = i % 3 == 0 ? 0xFFFF : i & 0xFF;
+                log.append(time, inside, hot, state);
+                expected[i] = new long[]{time, inside, hot, state, 1};
+            }
+            TelemetryExporter.Options options = new TelemetryExporter.Options();
+            options.setFormat(TelemetryExporter.Format.BINARY);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(count, TelemetryExporter.export(log, out, options));
+
+            Decoded decoded = decode(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(0L, decoded.bucketMs);
+            assertEquals(count, decoded.rows.size());
+            for (int i = 0; i < count; i++) {
+                assertArrayEquals("row " + i, expected[i], decoded.rows.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void gzippedDownsampledBinaryRoundTrips() throws IOException {
+        try (TelemetryLog log = TelemetryLog.open(folder.newFolder())) {
+            log.append(10_000L, 10, 100, CoolerCodec.STATE_PEL1);
+            log.append(15_000L, 20, 200, CoolerCodec.STATE_HOT_FAN);
+            log.append(70_000L, -30, 300, 0);
+            TelemetryExporter.Options options = new TelemetryExporter.Options();
+            options.setFormat(TelemetryExporter.Format.BINARY);
+            options.setBucketMs(60_000L);
+            options.setGzip(true);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(2, TelemetryExporter.export(log, out, options));
+
+            Decoded decoded = decode(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+            assertEquals(60_000L, decoded.bucketMs);
+            assertEquals(2, decoded.rows.size());
+            assertArrayEquals(new long[]{0L, 15, 150, CoolerCodec.STATE_PEL1 | CoolerCodec.STATE_HOT_FAN, 2},
+                    decoded.rows.get(0));
+            assertArrayEquals(new long[]{60_000L, -30, 300, 0, 1}, decoded.rows.get(1));
+        }
+    }
+
+    @Test
+    public void csvHasOneLinePerSample() throws IOException {
+        try (TelemetryLog log = TelemetryLog.open(folder.newFolder())) {
+            log.append(1000L, 43, -7, 5);
+            log.append(2000L, -125, 0, 0);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TelemetryExporter.export(log, out, new TelemetryExporter.Options());
+
+            assertEquals("time_ms,inside_c,hot_c,state_bits,samples\n"
+                            + "1000,4.3,-0.7,5,1\n"
+                            + "2000,-12.5,0.0,0,1\n",
+                    new String(out.toByteArray(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static final class Decoded {
+        long bucketMs;
+        final List<long[]> rows = new ArrayList<>();
+    }
+
+    /**
+     * Reads the binary format as documented in {@link TelemetryExporter}.
+     */
+    private static Decoded decode(InputStream in) throws IOException {
+        byte[] magic = new byte[4];
+        assertEquals(4, in.read(magic));
+        assertArrayEquals("XTCE".getBytes(StandardCharsets.US_ASCII), magic);
+        assertEquals(1, in.read());
+        Decoded decoded = new Decoded();
+        decoded.bucketMs = readVarint(in);
+        int rows;
+        while ((rows = (int) readVarint(in)) > 0) {
+            long[][] block = new long[rows][5];
+            for (int column = 0; column < 4; column++) {
+                long previous = 0;
+                for (int i = 0; i < rows; i++) {
+                    previous += unzigzag(readVarint(in));
+                    block[i][column] = previous;
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                block[i][4] = readVarint(in);
+                decoded.rows.add(block[i]);
+            }
+        }
+        assertEquals(-1, in.read());
+        return decoded;
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
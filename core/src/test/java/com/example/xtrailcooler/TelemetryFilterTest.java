@@ -0,0 +1,101 @@
+package com.example.xtrailcooler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TelemetryFilterTest {
+    private static final int STATE = CoolerCodec.STATE_PEL1 | CoolerCodec.STATE_HOT_FAN;
+
+    private TelemetryFilter filter;
+
+    @Before
+    public void setUp() {
+        filter = new TelemetryFilter();
+        filter.setInsideDeadband(0.3f);
+        filter.setHotDeadband(1.0f);
+    }
+
+    @Test
+    public void firstSamplePassesAndExactRepeatsDoNot() {
+        assertTrue(filter.accept(0, 50, 400, STATE));
+        assertFalse(filter.accept(1000, 50, 400, STATE));
+        assertEquals(1, filter.getPassedCount());
+        assertEquals(1, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void eachFieldHasItsOwnDeadband() {
+        assertTrue(filter.accept(0, 50, 400, STATE));
+        // Within 0.3 °C inside and 1.0 °C hot, in either direction.
+        assertFalse(filter.accept(1, 52, 400, STATE));
+        assertFalse(filter.accept(2, 48, 400, STATE));
+        assertFalse(filter.accept(3, 50, 409, STATE));
+        assertFalse(filter.accept(4, 50, 391, STATE));
+        // 0.3 °C inside is enough on its own, as is 1.0 °C hot.
+        assertTrue(filter.accept(5, 53, 400, STATE));
+        assertTrue(filter.accept(6, 53, 390, STATE));
+        assertEquals(3, filter.getPassedCount());
+        assertEquals(4, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void oneFieldMovingWithinItsDeadbandIsSuppressed() {
+        assertTrue(filter.accept(0, 50, 400, STATE));
+        // Hot creeps up in steps that never reach the deadband between passes until they add up.
+        assertFalse(filter.accept(1, 50, 403, STATE));
+        assertFalse(filter.accept(2, 50, 406, STATE));
+        assertFalse(filter.accept(3, 50, 409, STATE));
+        assertTrue(filter.accept(4, 50, 412, STATE));
+        // Measured from the sample that passed, not the one before.
+        assertFalse(filter.accept(5, 50, 415, STATE));
+    }
+
+    @Test
+    public void anyStateBitChangePasses() {
+        assertTrue(filter.accept(0, 50, 400, STATE));
+        assertTrue(filter.accept(1, 50, 400, STATE | CoolerCodec.STATE_PEL2));
+        assertFalse(filter.accept(2, 50, 400, STATE | CoolerCodec.STATE_PEL2));
+        assertTrue(filter.accept(3, 50, 400, STATE));
+        assertTrue(filter.accept(4, 50, 400, STATE | CoolerCodec.STATE_SENSOR_ALARM));
+    }
+
+    @Test
+    public void zeroDeadbandSuppressesOnlyExactRepeats() {
+        TelemetryFilter exact = new TelemetryFilter();
+        assertTrue(exact.accept(0, 50, 400, STATE));
+        assertFalse(exact.accept(1, 50, 400, STATE));
+        assertTrue(exact.accept(2, 51, 400, STATE));
+        assertTrue(exact.accept(3, 51, 399, STATE));
+    }
+
+    @Test
+    public void heartbeatPassesAQuietSample() {
+        filter.setHeartbeatMs(30_000L);
+        assertTrue(filter.accept(0, 50, 400, STATE));
+        assertFalse(filter.isHeartbeatDue(29_999));
+        assertFalse(filter.accept(29_999, 50, 400, STATE));
+        assertTrue(filter.isHeartbeatDue(30_000));
+        assertTrue(filter.accept(30_000, 50, 400, STATE));
+        // The heartbeat counts as a pass, so the next one is due a full period later.
+        assertFalse(filter.accept(45_000, 50, 400, STATE));
+        assertTrue(filter.accept(60_000, 50, 400, STATE));
+    }
+
+    @Test
+    public void heartbeatIsOffByDefault() {
+        assertTrue(filter.accept(0, 50, 400, STATE));
+        assertFalse(filter.isHeartbeatDue(Long.MAX_VALUE));
+        assertFalse(filter.accept(3_600_000, 50, 400, STATE));
+    }
+
+    @Test
+    public void resetLetsTheNextSamplePass() {
+        assertTrue(filter.accept(0, 50, 400, STATE));
+        filter.reset();
+        assertTrue(filter.accept(1, 50, 400, STATE));
+    }
+}
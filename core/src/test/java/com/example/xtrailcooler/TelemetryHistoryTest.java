@@ -0,0 +1,173 @@
+package com.example.xtrailcooler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TelemetryHistoryTest {
+    private static final float EPS = 1e-4f;
+    // Not a bucket boundary, so the first bucket at every resolution is a partial one.
+    private static final long START_MS = 1_700_000_003_000L;
+
+    private static float inside(int i) {
+        return (i % 37) * 0.5f - 4f;
+    }
+
+    private static float hot(int i) {
+        return 30f + (i % 11) - (i % 7) * 0.25f;
+    }
+
+    private static int stateBits(int i) {
+        return 1 << (i % 5);
+    }
+
+    @Test
+    public void rollupsMatchTheSamplesOfEachBucketAcrossRingWraps() {
+        TelemetryHistory history = new TelemetryHistory(50, 20, 8, 3);
+        // One sample a second for 41 min: every ring wraps, and bucket boundaries of all sizes pass.
+        int samples = 41 * 60;
+        for (int i = 0; i < samples; i++) {
+            history.add(START_MS + i * 1000L, inside(i), hot(i), stateBits(i));
+        }
+
+        assertEquals(50, history.size(TelemetryHistory.RESOLUTION_RAW));
+        for (int k = 0; k < 50; k++) {
+            int i = samples - 50 + k;
+            assertEquals(START_MS + i * 1000L, history.getTimeMs(TelemetryHistory.RESOLUTION_RAW, k));
+            assertEquals(inside(i), history.getInsideMean(TelemetryHistory.RESOLUTION_RAW, k), 0f);
+            assertEquals(hot(i), history.getHotMin(TelemetryHistory.RESOLUTION_RAW, k), 0f);
+            assertEquals(stateBits(i), history.getStateBits(TelemetryHistory.RESOLUTION_RAW, k));
+            assertEquals(1, history.getSampleCount(TelemetryHistory.RESOLUTION_RAW, k));
+        }
+
+        for (int resolution = TelemetryHistory.RESOLUTION_10S; resolution <= TelemetryHistory.RESOLUTION_10MIN;
+             resolution++) {
+            checkRollups(history, resolution, samples);
+        }
+    }
+
+    /** Recomputes every bucket from the samples and compares it with what the history holds. */
+    private static void checkRollups(TelemetryHistory history, int resolution, int samples) {
+        long bucketMs = TelemetryHistory.bucketMs(resolution);
+        List<long[]> buckets = new ArrayList<>();
+        for (int i = 0; i < samples; i++) {
+            long time = START_MS + i * 1000L;
+            long start = time - Math.floorMod(time, bucketMs);
+            if (buckets.isEmpty() || buckets.get(buckets.size() - 1)[0] != start) {
+                buckets.add(new long[]{start, i, i});
+            }
+            buckets.get(buckets.size() - 1)[2] = i;
+        }
+        int size = history.size(resolution);
+        assertEquals(Math.min(buckets.size(), history.capacity(resolution)), size);
+        for (int k = 0; k < size; k++) {
+            long[] bucket = buckets.get(buckets.size() - size + k);
+            float insideMin = Float.MAX_VALUE;
+            float insideMax = -Float.MAX_VALUE;
+            float hotMin = Float.MAX_VALUE;
+            float hotMax = -Float.MAX_VALUE;
+            double insideSum = 0;
+            double hotSum = 0;
+            int bits = 0;
+            for (int i = (int) bucket[1]; i <= bucket[2]; i++) {
+                insideMin = Math.min(insideMin, inside(i));
+                insideMax = Math.max(insideMax, inside(i));
+                hotMin = Math.min(hotMin, hot(i));
+                hotMax = Math.max(hotMax, hot(i));
+                insideSum += inside(i);
+                hotSum += hot(i);
+                bits |= stateBits(i);
+            }
+            int n = (int) (bucket[2] - bucket[1] + 1);
+            String at = "resolution " + resolution + ", index " + k;
+            assertEquals(at, bucket[0], history.getTimeMs(resolution, k));
+            assertEquals(at, n, history.getSampleCount(resolution, k));
+            assertEquals(at, insideMin, history.getInsideMin(resolution, k), 0f);
+            assertEquals(at, insideMax, history.getInsideMax(resolution, k), 0f);
+            assertEquals(at, (float) (insideSum / n), history.getInsideMean(resolution, k), EPS);
+            assertEquals(at, hotMin, history.getHotMin(resolution, k), 0f);
+            assertEquals(at, hotMax, history.getHotMax(resolution, k), 0f);
+            assertEquals(at, (float) (hotSum / n), history.getHotMean(resolution, k), EPS);
+            assertEquals(at, bits, history.getStateBits(resolution, k));
+            if (k > 0) {
+                assertEquals(at, bucketMs, history.getTimeMs(resolution, k) - history.getTimeMs(resolution, k - 1));
+            }
+        }
+    }
+
+    @Test
+    public void firstBucketIsPartialAndAlignedToItsBoundary() {
+        TelemetryHistory history = new TelemetryHistory(10, 10, 10, 10);
+        // 12:00:55 to 12:01:04: two 10 s buckets and two 1 min buckets, one 10 min bucket.
+        long base = 12 * 3_600_000L + 55_000L;
+        for (int i = 0; i < 10; i++) {
+            history.add(base + i * 1000L, i, 0f, 0);
+        }
+        assertEquals(2, history.size(TelemetryHistory.RESOLUTION_10S));
+        assertEquals(12 * 3_600_000L + 50_000L, history.getTimeMs(TelemetryHistory.RESOLUTION_10S, 0));
+        assertEquals(5, history.getSampleCount(TelemetryHistory.RESOLUTION_10S, 0));
+        assertEquals(2f, history.getInsideMean(TelemetryHistory.RESOLUTION_10S, 0), EPS);
+        assertEquals(7f, history.getInsideMean(TelemetryHistory.RESOLUTION_10S, 1), EPS);
+        assertEquals(2, history.size(TelemetryHistory.RESOLUTION_1MIN));
+        assertEquals(12 * 3_600_000L + 60_000L, history.getTimeMs(TelemetryHistory.RESOLUTION_1MIN, 1));
+        assertEquals(1, history.size(TelemetryHistory.RESOLUTION_10MIN));
+        assertEquals(0f, history.getInsideMin(TelemetryHistory.RESOLUTION_10MIN, 0), 0f);
+        assertEquals(9f, history.getInsideMax(TelemetryHistory.RESOLUTION_10MIN, 0), 0f);
+        assertEquals(4.5f, history.getInsideMean(TelemetryHistory.RESOLUTION_10MIN, 0), EPS);
+    }
+
+    @Test
+    public void missingReadingsAreCountedButLeftOutOfTheStatistics() {
+        TelemetryHistory history = new TelemetryHistory(10, 10, 10, 10);
+        history.add(0L, 4f, Float.NaN, 0);
+        history.add(1000L, Float.NaN, Float.NaN, 0);
+        history.add(2000L, 8f, Float.NaN, 0);
+
+        assertEquals(3, history.getSampleCount(TelemetryHistory.RESOLUTION_10S, 0));
+        assertEquals(4f, history.getInsideMin(TelemetryHistory.RESOLUTION_10S, 0), 0f);
+        assertEquals(8f, history.getInsideMax(TelemetryHistory.RESOLUTION_10S, 0), 0f);
+        assertEquals(6f, history.getInsideMean(TelemetryHistory.RESOLUTION_10S, 0), EPS);
+        assertTrue(Float.isNaN(history.getHotMean(TelemetryHistory.RESOLUTION_10S, 0)));
+        assertTrue(Float.isNaN(history.getHotMin(TelemetryHistory.RESOLUTION_10S, 0)));
+    }
+
+    @Test
+    public void lateSampleFoldsIntoTheOpenBucket() {
+        TelemetryHistory history = new TelemetryHistory(10, 10, 10, 10);
+        history.add(5_000L, 1f, 0f, 0);
+        history.add(12_000L, 2f, 0f, 0);
+        history.add(8_000L, 6f, 0f, 0);
+
+        assertEquals(2, history.size(TelemetryHistory.RESOLUTION_10S));
+        assertEquals(10_000L, history.getTimeMs(TelemetryHistory.RESOLUTION_10S, 1));
+        assertEquals(2, history.getSampleCount(TelemetryHistory.RESOLUTION_10S, 1));
+        assertEquals(4f, history.getInsideMean(TelemetryHistory.RESOLUTION_10S, 1), EPS);
+        assertEquals(1f, history.getInsideMean(TelemetryHistory.RESOLUTION_10S, 0), EPS);
+    }
+
+    @Test
+    public void indexAtOrAfterSearchesInTimeOrderAfterAWrap() {
+        TelemetryHistory history = new TelemetryHistory(4, 4, 4, 4);
+        for (int i = 0; i < 7; i++) {
+            history.add(i * 10_000L, i, 0f, 0);
+        }
+        // Buckets 30 s to 60 s remain.
+        assertEquals(0, history.indexAtOrAfter(TelemetryHistory.RESOLUTION_10S, 0L));
+        assertEquals(0, history.indexAtOrAfter(TelemetryHistory.RESOLUTION_10S, 30_000L));
+        assertEquals(1, history.indexAtOrAfter(TelemetryHistory.RESOLUTION_10S, 30_001L));
+        assertEquals(3, history.indexAtOrAfter(TelemetryHistory.RESOLUTION_10S, 60_000L));
+        assertEquals(4, history.indexAtOrAfter(TelemetryHistory.RESOLUTION_10S, 60_001L));
+        assertEquals(3f, history.getInsideMean(TelemetryHistory.RESOLUTION_10S, 0), 0f);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void readingPastTheNewestEntryFails() {
+        TelemetryHistory history = new TelemetryHistory(4, 4, 4, 4);
+        history.add(0L, 1f, 1f, 0);
+        history.getInsideMean(TelemetryHistory.RESOLUTION_RAW, 1);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.xtrailcooler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TelemetryLogTest {
+    private static final int SEGMENT_BYTES = 4096;
+    // Segment header size; records follow it back to back.
+    private static final int HEADER_SIZE = 32;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendedRecordsSurviveReopen() throws IOException {
+        File dir = folder.newFolder();
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(1000L + i, 40 + i, -5 - i, i);
+            }
+        }
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            assertEquals(10, log.size());
+            assertEquals(1000L, log.firstTimeMs());
+            assertEquals(1009L, log.lastTimeMs());
+            TelemetryLog.Cursor cursor = log.query(Long.MIN_VALUE, Long.MAX_VALUE);
+            for (int i = 0; i < 10; i++) {
+                assertTrue(cursor.next());
+                assertEquals(1000L + i, cursor.timeMs());
+                assertEquals(40 + i, cursor.insideRaw());
+                assertEquals(-5 - i, cursor.hotRaw());
+                assertEquals(i, cursor.stateBits());
+            }
+            assertFalse(cursor.next());
+        }
+    }
+
+    @Test
+    public void tornTailIsDiscardedOnRecovery() throws IOException {
+        File dir = folder.newFolder();
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            for (int i = 0; i < 5; i++) {
+                log.append(1000L + i, i, i, 0);
+            }
+        }
+        // A crash halfway through the fourth record: its value changed but its checksum did not.
+        try (RandomAccessFile raf = new RandomAccessFile(onlySegment(dir), "rw")) {
+            raf.seek(HEADER_SIZE + 3 * TelemetryLog.RECORD_SIZE + 8);
+            raf.writeShort(0x7FFF);
+        }
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            assertEquals(3, log.size());
+            assertEquals(1002L, log.lastTimeMs());
+            // Appending continues right after the last good record.
+            log.append(2000L, 1, 1, 0);
+            assertEquals(4, log.size());
+        }
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            assertEquals(4, log.size());
+            assertEquals(2000L, log.lastTimeMs());
+        }
+    }
+
+    @Test
+    public void recordsAfterTheTearAreNotResurrected() throws IOException {
+        File dir = folder.newFolder();
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            for (int i = 0; i < 5; i++) {
+                log.append(1000L + i, i, i, 0);
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(onlySegment(dir), "rw")) {
+            raf.seek(HEADER_SIZE + TelemetryLog.RECORD_SIZE);
+            raf.write(new byte[TelemetryLog.RECORD_SIZE]);
+        }
+        TelemetryLog.open(dir, SEGMENT_BYTES, 4).close();
+        // Recovery zeroed everything after the first record, so repairing the tear changes nothing.
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            assertEquals(1, log.size());
+        }
+    }
+
+    @Test
+    public void rotationDropsOldestSegmentsAndQueriesSpanTheRest() throws IOException {
+        File dir = folder.newFolder();
+        int perSegment = (SEGMENT_BYTES - HEADER_SIZE) / TelemetryLog.RECORD_SIZE;
+        int total = perSegment * 4 + 7;
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 3)) {
+            for (int i = 0; i < total; i++) {
+                log.append(i, 0, 0, 0);
+            }
+            assertEquals(perSegment * 2 + 7, log.size());
+            long from = total - perSegment - 10;
+            TelemetryLog.Cursor cursor = log.query(from, total - 3);
+            long expected = from;
+            while (cursor.next()) {
+                assertEquals(expected++, cursor.timeMs());
+            }
+            assertEquals(total - 3, expected);
+        }
+    }
+
+    @Test
+    public void timeNeverGoesBackwards() throws IOException {
+        try (TelemetryLog log = TelemetryLog.open(folder.newFolder(), SEGMENT_BYTES, 4)) {
+            log.append(5000L, 0, 0, 0);
+            log.append(4000L, 0, 0, 0);
+            TelemetryLog.Cursor cursor = log.query(Long.MIN_VALUE, Long.MAX_VALUE);
+            assertTrue(cursor.next());
+            assertTrue(cursor.next());
+            assertEquals(5000L, cursor.timeMs());
+        }
+    }
+
+    @Test
+    public void clampedTimeAcrossRotationDoesNotOverwriteASegment() throws IOException {
+        File dir = folder.newFolder();
+        int perSegment = (SEGMENT_BYTES - HEADER_SIZE) / TelemetryLog.RECORD_SIZE;
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            // The clock stepped back: every sample is clamped to the same time, and the second and
+            // third segments start at the time the first one did.
+            log.append(5000L, 1, 0, 0);
+            for (int i = 1; i < perSegment * 2 + 5; i++) {
+                log.append(4000L, 2, 0, 0);
+            }
+            assertEquals(perSegment * 2 + 5, log.size());
+        }
+        File[] files = dir.listFiles();
+        assertNotNull(files);
+        assertEquals(3, files.length);
+        try (TelemetryLog log = TelemetryLog.open(dir, SEGMENT_BYTES, 4)) {
+            assertEquals(perSegment * 2 + 5, log.size());
+            TelemetryLog.Cursor cursor = log.query(Long.MIN_VALUE, Long.MAX_VALUE);
+            assertTrue(cursor.next());
+            assertEquals(1, cursor.insideRaw());
+            int n = 1;
+            while (cursor.next()) {
+                assertEquals(5000L, cursor.timeMs());
+                assertEquals(2, cursor.insideRaw());
+                n++;
+            }
+            assertEquals(perSegment * 2 + 5, n);
+        }
+    }
+
+    private static File onlySegment(File dir) {
+        File[] files = dir.listFiles();
+        assertNotNull(files);
+        assertEquals(Arrays.toString(files), 1, files.length);
+        return files[0];
+    }
+}